@@ -0,0 +1,250 @@
+package generators;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import model.ArgumentFramework;
+import model.BitsetCompletion;
+import model.CArgument;
+import model.CAttack;
+import model.CompletionSkeleton;
+import model.PControlAF;
+import util.RandomGen;
+
+/**
+ * Returns random root completions of a PCAF drawn from a biased distribution (importance sampling)
+ * The probabilities of the PCAF are moved toward the completions that are hard for the target:
+ * each uncertain element keeps a share (1 - bias) of its probability and the share bias
+ * goes to the values that harm the target:
+ * - arguments at an odd distance of the target (attackers) present, at an even distance (target, defenders) absent
+ * - attacks on an argument at an even distance present, on an argument at an odd distance absent
+ * Distances are computed on all the attacks that may exist (skeleton), elements far from
+ * any target keep their probability.
+ * Every completion of the PCAF can still be drawn (bias < 1): the draws must be reweighted
+ * with p/q, p and q being given by Completion_Proba_Calculator on the PCAF and on getProposal().
+ * The completions are drawn exactly as Completion_Proba_Calculator counts them
+ * (undirected attacks: from->to with p3, to->from with p4, both otherwise).
+ */
+public class BiasedPCAFRootCompletionGenerator {
+
+	// distance of the arguments not linked to the target
+	private static final int FAR = -1;
+
+	private PControlAF PCAF;
+	private PControlAF proposal;
+	private CompletionSkeleton skeleton;
+	private double bias;
+
+	// biased probabilities of the uncertain elements in the order of the skeleton
+	private double[] uargProbas;
+	private double[] uattProbas;
+	private double[] udattProbas;
+	private RandomGen random;
+
+	/**
+	 * @param PCAF
+	 * @param bias share of the probability of each element moved toward the harmful values (0 <= bias < 1)
+	 */
+	public BiasedPCAFRootCompletionGenerator(PControlAF PCAF, double bias) {
+		if(bias < 0 || bias >= 1) {
+			throw new IllegalArgumentException("bias must be in [0, 1)");
+		}
+		this.PCAF = PCAF;
+		this.bias = bias;
+		this.skeleton = PCAF.getCompletionSkeleton();
+		this.random = new RandomGen();
+		this.loadProbabilities();
+	}
+
+	/**
+	 * random stream used for the draws
+	 * (by default the static methods of RandomGen)
+	 * @param random
+	 */
+	public void setRandom(RandomGen random) {
+		this.random = random;
+	}
+
+	public double getBias() {
+		return this.bias;
+	}
+
+	/**
+	 * PCAF giving the distribution of the draws
+	 * (copy of the PCAF with the biased probabilities)
+	 */
+	public PControlAF getProposal() {
+		return this.proposal;
+	}
+
+	/**
+	 * returns a random root completion drawn from the proposal distribution
+	 * @return
+	 */
+	public ArgumentFramework getRandomRootCompletion() {
+		return this.getRandomBitsetCompletion().toArgumentFramework();
+	}
+
+	/**
+	 * same as getRandomRootCompletion but returns the completion as a bit vector
+	 * over the skeleton of the PCAF
+	 * @return
+	 */
+	public BitsetCompletion getRandomBitsetCompletion() {
+		BitsetCompletion result = new BitsetCompletion(this.skeleton);
+		this.fillRandomCompletion(result);
+		return result;
+	}
+
+	/**
+	 * draws a random completion into an existing bitset completion
+	 * (it must be built on the skeleton of the PCAF)
+	 * @param completion
+	 */
+	public void fillRandomCompletion(BitsetCompletion completion) {
+		completion.clear();
+		for(int i = 0; i<this.uargProbas.length; i++) {
+			if(this.random.nextDouble(0.0, 1.0) < this.uargProbas[i]) {
+				completion.set(this.skeleton.getUncertainArgumentBit(i), true);
+			}
+		}
+		for(int i = 0; i<this.uattProbas.length; i++) {
+			if(completion.isPresent(this.skeleton.getUncertainAttackFrom(i)) && completion.isPresent(this.skeleton.getUncertainAttackTo(i))) {
+				if(this.random.nextDouble(0.0, 1.0) < this.uattProbas[i]) {
+					completion.set(this.skeleton.getUncertainAttackBit(i), true);
+				}
+			}
+		}
+		for(int i = 0; i<this.skeleton.getNbUndirectedAttacks(); i++) {
+			if(!completion.isPresent(this.skeleton.getUndirectedAttackFrom(i)) || !completion.isPresent(this.skeleton.getUndirectedAttackTo(i))) {
+				continue;
+			}
+			double t = this.random.nextDouble(0.0, 1.0);
+			int bit = this.skeleton.getUndirectedAttackBit(i);
+			if(t < this.udattProbas[2*i]) {
+				completion.set(bit, true);
+			} else if(t < this.udattProbas[2*i] + this.udattProbas[2*i+1]) {
+				completion.set(bit+1, true);
+			} else {
+				completion.set(bit, true);
+				completion.set(bit+1, true);
+			}
+		}
+	}
+
+	/**
+	 * biased probabilities in skeleton order and the corresponding proposal PCAF
+	 */
+	private void loadProbabilities() {
+		int[] distance = this.getDistances();
+		this.proposal = this.PCAF.copy();
+
+		this.uargProbas = new double[this.skeleton.getNbUncertainArguments()];
+		for(int i = 0; i<this.uargProbas.length; i++) {
+			CArgument arg = this.skeleton.getUncertainArgument(i);
+			int d = getDistance(distance, this.skeleton.getId(arg));
+			double p = this.PCAF.getUargProba(arg);
+			// an attacker of the target side is harmful when present
+			this.uargProbas[i] = this.getBiased(p, d == FAR ? 0 : (d % 2 == 1 ? 1 : -1));
+			this.proposal.setUargProba(arg, this.uargProbas[i]);
+		}
+		this.uattProbas = new double[this.skeleton.getNbUncertainAttacks()];
+		for(int i = 0; i<this.uattProbas.length; i++) {
+			CAttack att = this.skeleton.getUncertainAttack(i);
+			int d = getDistance(distance, this.skeleton.getUncertainAttackTo(i));
+			double p = this.PCAF.getUattProba(att);
+			this.uattProbas[i] = this.getBiased(p, d == FAR ? 0 : (d % 2 == 0 ? 1 : -1));
+			this.proposal.setUattProba(att, this.uattProbas[i]);
+		}
+		this.udattProbas = new double[2*this.skeleton.getNbUndirectedAttacks()];
+		for(int i = 0; i<this.skeleton.getNbUndirectedAttacks(); i++) {
+			CAttack att = this.skeleton.getUndirectedAttack(i);
+			int dTo = getDistance(distance, this.skeleton.getUndirectedAttackTo(i));
+			int dFrom = getDistance(distance, this.skeleton.getUndirectedAttackFrom(i));
+			double[] p = new double[3];
+			p[0] = this.PCAF.getUDAttFromToProba(att);
+			p[1] = this.PCAF.getUDAttToFromProba(att);
+			p[2] = 1 - p[0] - p[1];
+			// harmful values: the attacks on an argument at an even distance
+			boolean fromTo = dTo != FAR && dTo % 2 == 0;
+			boolean toFrom = dFrom != FAR && dFrom % 2 == 0;
+			boolean[] harmful = new boolean[] {fromTo && !toFrom, toFrom && !fromTo, fromTo || toFrom};
+			double[] q = this.getBiased(p, harmful);
+			this.udattProbas[2*i] = q[0];
+			this.udattProbas[2*i+1] = q[1];
+			this.proposal.setUDattProba(att, q[0], q[1]);
+		}
+	}
+
+	/**
+	 * probability of presence of an element
+	 * @param harm 1 if the presence is harmful, -1 if the absence is, 0 if unknown
+	 */
+	private double getBiased(double p, int harm) {
+		if(harm > 0) {
+			return (1 - this.bias)*p + this.bias;
+		} else if(harm < 0) {
+			return (1 - this.bias)*p;
+		}
+		return p;
+	}
+
+	/**
+	 * probabilities of the values of an element, the share bias being spread over the harmful ones
+	 */
+	private double[] getBiased(double[] p, boolean[] harmful) {
+		int nbHarmful = 0;
+		for(boolean h : harmful) {
+			if(h) {
+				nbHarmful++;
+			}
+		}
+		if(nbHarmful == 0) {
+			return p;
+		}
+		double[] result = new double[p.length];
+		for(int i = 0; i<p.length; i++) {
+			result[i] = (1 - this.bias)*p[i];
+			if(harmful[i]) {
+				result[i] += this.bias/nbHarmful;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * distance of an argument of the skeleton (FAR for an argument not in the skeleton: id -1)
+	 */
+	private static int getDistance(int[] distance, int id) {
+		return id < 0 ? FAR : distance[id];
+	}
+
+	/**
+	 * length of the shortest chain of attacks (that may exist) from each argument to the target
+	 * FAR if there is none
+	 */
+	private int[] getDistances() {
+		int[] result = new int[this.skeleton.getNbArguments()];
+		Arrays.fill(result, FAR);
+		Deque<Integer> queue = new ArrayDeque<Integer>();
+		for(CArgument t : this.PCAF.getTarget()) {
+			int id = this.skeleton.getId(t);
+			if(id >= 0 && result[id] == FAR) {
+				result[id] = 0;
+				queue.add(Integer.valueOf(id));
+			}
+		}
+		while(!queue.isEmpty()) {
+			int id = queue.poll().intValue();
+			for(int k = this.skeleton.getAttackerEdgesStart(id); k<this.skeleton.getAttackerEdgesEnd(id); k++) {
+				int from = this.skeleton.getEdgeFrom(this.skeleton.getAttackerEdge(k));
+				if(result[from] == FAR) {
+					result[from] = result[id] + 1;
+					queue.add(Integer.valueOf(from));
+				}
+			}
+		}
+		return result;
+	}
+}
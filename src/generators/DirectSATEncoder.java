@@ -0,0 +1,505 @@
+package generators;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+
+import model.Argument;
+import model.ArgumentFramework;
+import model.CArgument;
+import model.CAttack;
+import model.CompactArgumentFramework;
+import model.ControlAF;
+import model.GroundedLabelling;
+
+/**
+ * Same encoding as StrongSATEncoder + SATQDIMACSConverter (same models on the acc/on variables)
+ * but the clauses are written directly as ints from the compact representation of the completion
+ * (no Formula tree, no variable names).
+ * Clauses are stored in a buffer (literals + clause ends) reused from one encode() to the next.
+ * Variables:
+ * - 1..n: acc of the arguments of the completion (compact id + 1)
+ * - n+1..n+k: acc of the control arguments
+ * - n+k+1..n+2k: on of the control arguments
+ * - then the Tseitin variables (skeptical only)
+ * credulous: target, on <=> acc, stable and control conflict free constraints are plain clauses
+ * skeptical: as in StrongSATEncoder, body <=> (all constraints) and body => target
+ * Grounded preprocessing (on by default, see GroundedLabelling): the arguments IN or OUT
+ * whatever the control configuration get a unit literal instead of their constraints,
+ * and the attackers OUT are dropped from the constraints of the other arguments.
+ * The models on the acc/on variables are the same.
+ * The control arguments of the CAF (and their index) are loaded once per CAF.
+ */
+public class DirectSATEncoder {
+
+	protected ArgumentFramework instance;
+	protected ControlAF CAF;
+
+	protected CompactArgumentFramework graph;
+	protected CArgument[] controlArgs;
+	protected Map<Argument, Integer> controlIds;
+	protected int n;
+	protected int k;
+	protected int nbVar;
+	protected boolean grounded;
+	protected GroundedLabelling labelling;
+
+	// control attacks (as acc variables) grouped by attacked variable
+	protected int[] controlOffsets;
+	protected int[] controlAttackers;
+
+	// clause buffer
+	protected int[] literals;
+	protected int nbLiterals;
+	protected int[] clauseEnds;
+	protected int nbClauses;
+	protected int[] current;
+
+	public DirectSATEncoder(ArgumentFramework instance, ControlAF CAF) {
+		this.instance = instance;
+		this.CAF = CAF;
+		this.literals = new int[256];
+		this.clauseEnds = new int[64];
+		this.current = new int[16];
+		this.grounded = true;
+	}
+
+	/**
+	 * grounded preprocessing of the completion before encoding (true by default)
+	 */
+	public void setGroundedPreprocessing(boolean grounded) {
+		this.grounded = grounded;
+	}
+
+	/**
+	 * labelling of the last encoded completion (null without grounded preprocessing)
+	 */
+	public GroundedLabelling getGroundedLabelling() {
+		return this.labelling;
+	}
+
+	/**
+	 * changes the completion, the buffer is kept
+	 */
+	public void setInstance(ArgumentFramework instance) {
+		this.instance = instance;
+	}
+
+	/**
+	 * changes the CAF, the control arguments are loaded again
+	 */
+	public void setCAF(ControlAF CAF) {
+		this.CAF = CAF;
+		this.controlArgs = null;
+		this.controlIds = null;
+	}
+
+	public int getNbVar() {
+		return this.nbVar;
+	}
+
+	public int getNbClause() {
+		return this.nbClauses;
+	}
+
+	/**
+	 * fills the buffer with the clauses for type
+	 * (ControllabilityEncoder.CREDULOUS or ControllabilityEncoder.SKEPTICAL)
+	 * @param type
+	 */
+	public void encode(int type) {
+		this.init();
+		this.nbLiterals = 0;
+		this.nbClauses = 0;
+		if(type == ControllabilityEncoder.CREDULOUS) {
+			this.encodeCredulous();
+		} else {
+			this.encodeSkeptical();
+		}
+	}
+
+	/**
+	 * adds the clauses of the buffer to a solver (the solver must accept getNbVar() variables)
+	 * @param solver
+	 * @throws ContradictionException
+	 */
+	public void addClausesTo(ISolver solver) throws ContradictionException {
+		IVecInt clause = new VecInt(16);
+		int start = 0;
+		for(int c = 0; c<this.nbClauses; c++) {
+			clause.clear();
+			for(int i = start; i<this.clauseEnds[c]; i++) {
+				clause.push(this.literals[i]);
+			}
+			solver.addClause(clause);
+			start = this.clauseEnds[c];
+		}
+	}
+
+	/**
+	 * returns the clauses of the buffer (copies)
+	 */
+	public int[][] getClauses() {
+		int[][] result = new int[this.nbClauses][];
+		int start = 0;
+		for(int c = 0; c<this.nbClauses; c++) {
+			result[c] = Arrays.copyOfRange(this.literals, start, this.clauseEnds[c]);
+			start = this.clauseEnds[c];
+		}
+		return result;
+	}
+
+	/**
+	 * acc variable of the argument with compact id
+	 */
+	public int getAccVar(int id) {
+		return id + 1;
+	}
+
+	/**
+	 * acc variable of the i-th control argument
+	 */
+	public int getControlAccVar(int i) {
+		return this.n + i + 1;
+	}
+
+	/**
+	 * on variable of the i-th control argument
+	 */
+	public int getOnVar(int i) {
+		return this.n + this.k + i + 1;
+	}
+
+	/**
+	 * number of control arguments (see getOnVar)
+	 */
+	public int getNbControlArguments() {
+		return this.k;
+	}
+
+	/**
+	 * number of variables of the problem (acc and on), the others are Tseitin variables
+	 */
+	public int getNbOriginalVar() {
+		return this.n + 2*this.k;
+	}
+
+	/**
+	 * argument of an acc or on variable (null for other variables)
+	 */
+	public Argument getArgument(int var) {
+		if(var <= 0 || var > this.getNbOriginalVar()) {
+			return null;
+		}
+		if(var <= this.n) {
+			return this.graph.getArgument(var - 1);
+		}
+		if(var <= this.n + this.k) {
+			return this.controlArgs[var - this.n - 1];
+		}
+		return this.controlArgs[var - this.n - this.k - 1];
+	}
+
+	/**
+	 * true for the on variables
+	 */
+	public boolean isOnVar(int var) {
+		return var > this.n + this.k && var <= this.getNbOriginalVar();
+	}
+
+	/**
+	 * variables and control attacks of the current completion
+	 */
+	protected void init() {
+		this.graph = this.instance.getCompact();
+		if(this.controlArgs == null) {
+			Set<CArgument> controls = this.CAF.getArgumentsByType(CArgument.Type.CONTROL);
+			this.controlArgs = controls.toArray(new CArgument[0]);
+			this.controlIds = new HashMap<Argument, Integer>(2*this.controlArgs.length);
+			for(int i = 0; i<this.controlArgs.length; i++) {
+				this.controlIds.put(this.controlArgs[i], Integer.valueOf(i));
+			}
+		}
+		this.n = this.graph.getNbArguments();
+		this.k = this.controlArgs.length;
+		this.nbVar = this.n + 2*this.k;
+		this.labelling = null;
+		if(this.grounded) {
+			this.labelling = new GroundedLabelling(this.CAF, this.instance);
+		}
+
+		// control attacks: the attacker must be in the completion or be a control argument
+		Set<CAttack> control = this.CAF.getAttacksByType(CAttack.Type.CONTROL);
+		int[] from = new int[control.size()];
+		int[] to = new int[control.size()];
+		int m = 0;
+		for(CAttack att : control) {
+			from[m] = this.getVar(att.getFrom());
+			to[m] = this.getVar(att.getTo());
+			if(from[m] != 0 && to[m] != 0) {
+				m++;
+			}
+		}
+		this.controlOffsets = new int[this.n + this.k + 2];
+		for(int i = 0; i<m; i++) {
+			this.controlOffsets[to[i] + 1]++;
+		}
+		for(int v = 0; v <= this.n + this.k; v++) {
+			this.controlOffsets[v+1] += this.controlOffsets[v];
+		}
+		this.controlAttackers = new int[m];
+		int[] next = new int[this.n + this.k + 1];
+		for(int i = 0; i<m; i++) {
+			this.controlAttackers[this.controlOffsets[to[i]] + next[to[i]]] = from[i];
+			next[to[i]]++;
+		}
+	}
+
+	/**
+	 * acc variable of an argument of the completion or of a control argument, 0 otherwise
+	 */
+	protected int getVar(Argument a) {
+		int id = this.graph.getId(a);
+		if(id >= 0) {
+			return id + 1;
+		}
+		Integer control = this.controlIds.get(a);
+		if(control == null) {
+			return 0;
+		}
+		return this.getControlAccVar(control.intValue());
+	}
+
+	/**
+	 * grounded label of an acc variable (GroundedLabelling.UNDEC without preprocessing)
+	 */
+	protected int getLabel(int var) {
+		if(this.labelling == null) {
+			return GroundedLabelling.UNDEC;
+		}
+		if(var <= this.n) {
+			return this.labelling.getLabel(var - 1);
+		}
+		return this.labelling.getLabel(this.controlArgs[var - this.n - 1]);
+	}
+
+	/**
+	 * puts the acc variables of the attackers of var (completion and control attacks)
+	 * in current, returns their number
+	 * the attackers OUT in the grounded labelling are left out
+	 */
+	protected int loadAttackers(int var) {
+		int size = 0;
+		if(var <= this.n) {
+			int id = var - 1;
+			int nb = this.graph.getNbAttackers(id);
+			this.ensureCurrent(nb + this.controlOffsets[var+1] - this.controlOffsets[var] + 2);
+			for(int j = this.graph.getAttackersStart(id); j < this.graph.getAttackersEnd(id); j++) {
+				this.current[size] = this.graph.getAttacker(j) + 1;
+				if(this.getLabel(this.current[size]) != GroundedLabelling.OUT) {
+					size++;
+				}
+			}
+		} else {
+			this.ensureCurrent(this.controlOffsets[var+1] - this.controlOffsets[var] + 2);
+		}
+		for(int j = this.controlOffsets[var]; j < this.controlOffsets[var+1]; j++) {
+			this.current[size] = this.controlAttackers[j];
+			if(this.getLabel(this.current[size]) != GroundedLabelling.OUT) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	protected void ensureCurrent(int size) {
+		if(this.current.length < size) {
+			this.current = new int[2*size];
+		}
+	}
+
+	/**
+	 * clauses without Tseitin variables (the whole formula must be true)
+	 */
+	protected void encodeCredulous() {
+		// target
+		for(CArgument t : this.CAF.getTarget()) {
+			this.addClause(this.getVar(t));
+		}
+		// on <=> acc
+		for(int i = 0; i<this.k; i++) {
+			this.addClause(-this.getOnVar(i), this.getControlAccVar(i));
+			this.addClause(this.getOnVar(i), -this.getControlAccVar(i));
+		}
+		// accepted <=> no attacker accepted
+		for(int var = 1; var <= this.n; var++) {
+			int label = this.getLabel(var);
+			if(label != GroundedLabelling.UNDEC) {
+				this.addClause(label == GroundedLabelling.IN ? var : -var);
+				continue;
+			}
+			int size = this.loadAttackers(var);
+			for(int j = 0; j<size; j++) {
+				this.addClause(-var, -this.current[j]);
+			}
+			this.current[size] = var;
+			this.addClause(this.current, size + 1);
+		}
+		// control: accepted => no attacker accepted
+		for(int i = 0; i<this.k; i++) {
+			int var = this.getControlAccVar(i);
+			if(this.getLabel(var) == GroundedLabelling.OUT) {
+				this.addClause(-var);
+				continue;
+			}
+			int size = this.loadAttackers(var);
+			for(int j = 0; j<size; j++) {
+				this.addClause(-var, -this.current[j]);
+			}
+		}
+	}
+
+	/**
+	 * body <=> (target and control and conflict free and control conflict free)
+	 * and body => target
+	 */
+	protected void encodeSkeptical() {
+		// literals of the conjuncts of the body
+		int[] conjuncts = new int[this.n + 3*this.k + this.CAF.getTargetSize() + 1];
+		int nbConjuncts = 0;
+		for(CArgument t : this.CAF.getTarget()) {
+			conjuncts[nbConjuncts] = this.getVar(t);
+			nbConjuncts++;
+		}
+		for(int i = 0; i<this.k; i++) {
+			// e <=> (on <=> acc)
+			int on = this.getOnVar(i);
+			int acc = this.getControlAccVar(i);
+			int e = this.newVar();
+			this.addClause(-e, -on, acc);
+			this.addClause(-e, on, -acc);
+			this.addClause(e, on, acc);
+			this.addClause(e, -on, -acc);
+			conjuncts[nbConjuncts] = e;
+			nbConjuncts++;
+		}
+		for(int var = 1; var <= this.n; var++) {
+			int label = this.getLabel(var);
+			int size = 0;
+			if(label == GroundedLabelling.UNDEC) {
+				size = this.loadAttackers(var);
+			}
+			if(label == GroundedLabelling.OUT) {
+				conjuncts[nbConjuncts] = -var;
+			} else if(size == 0) {
+				conjuncts[nbConjuncts] = var;
+			} else {
+				// s <=> (acc xor attacked)
+				int o = this.orGate(size);
+				int s = this.newVar();
+				this.addClause(-s, var, o);
+				this.addClause(-s, -var, -o);
+				this.addClause(s, -var, o);
+				this.addClause(s, var, -o);
+				conjuncts[nbConjuncts] = s;
+			}
+			nbConjuncts++;
+		}
+		for(int i = 0; i<this.k; i++) {
+			int var = this.getControlAccVar(i);
+			if(this.getLabel(var) == GroundedLabelling.OUT) {
+				conjuncts[nbConjuncts] = -var;
+				nbConjuncts++;
+				continue;
+			}
+			int size = this.loadAttackers(var);
+			if(size > 0) {
+				// h <=> (not acc or not attacked)
+				int o = this.orGate(size);
+				int h = this.newVar();
+				this.addClause(-h, -var, -o);
+				this.addClause(h, var);
+				this.addClause(h, o);
+				conjuncts[nbConjuncts] = h;
+				nbConjuncts++;
+			}
+		}
+		int body = this.newVar();
+		for(int j = 0; j<nbConjuncts; j++) {
+			this.addClause(-body, conjuncts[j]);
+			conjuncts[j] = -conjuncts[j];
+		}
+		conjuncts[nbConjuncts] = body;
+		this.addClause(conjuncts, nbConjuncts + 1);
+		// main: body => target
+		for(CArgument t : this.CAF.getTarget()) {
+			this.addClause(-body, this.getVar(t));
+		}
+	}
+
+	/**
+	 * o <=> or(current[0..size-1]), returns o
+	 */
+	protected int orGate(int size) {
+		int o = this.newVar();
+		for(int j = 0; j<size; j++) {
+			this.addClause(o, -this.current[j]);
+		}
+		this.current[size] = -o;
+		this.addClause(this.current, size + 1);
+		return o;
+	}
+
+	protected int newVar() {
+		this.nbVar++;
+		return this.nbVar;
+	}
+
+	protected void addClause(int a) {
+		this.ensureLiterals(1);
+		this.literals[this.nbLiterals++] = a;
+		this.endClause();
+	}
+
+	protected void addClause(int a, int b) {
+		this.ensureLiterals(2);
+		this.literals[this.nbLiterals++] = a;
+		this.literals[this.nbLiterals++] = b;
+		this.endClause();
+	}
+
+	protected void addClause(int a, int b, int c) {
+		this.ensureLiterals(3);
+		this.literals[this.nbLiterals++] = a;
+		this.literals[this.nbLiterals++] = b;
+		this.literals[this.nbLiterals++] = c;
+		this.endClause();
+	}
+
+	protected void addClause(int[] clause, int size) {
+		this.ensureLiterals(size);
+		System.arraycopy(clause, 0, this.literals, this.nbLiterals, size);
+		this.nbLiterals += size;
+		this.endClause();
+	}
+
+	private void ensureLiterals(int size) {
+		if(this.nbLiterals + size > this.literals.length) {
+			this.literals = Arrays.copyOf(this.literals, Math.max(2*this.literals.length, this.nbLiterals + size));
+		}
+	}
+
+	private void endClause() {
+		if(this.nbClauses == this.clauseEnds.length) {
+			this.clauseEnds = Arrays.copyOf(this.clauseEnds, 2*this.clauseEnds.length);
+		}
+		this.clauseEnds[this.nbClauses] = this.nbLiterals;
+		this.nbClauses++;
+	}
+}
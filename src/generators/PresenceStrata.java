@@ -0,0 +1,65 @@
+package generators;
+
+/**
+ * Strata of the completions on the number of present uncertain arguments
+ * (independent arguments, argument i present with probability p[i])
+ * getStratum(u) draws the number of present arguments k (inverse of its distribution function)
+ * then isPresent(...) draws the arguments one by one knowing k:
+ * the arguments drawn this way have the same distribution as independent draws
+ * when u is uniform.
+ */
+public class PresenceStrata {
+
+	protected double[] probas;
+	// tail[i][r]: probability that exactly r arguments among i..n-1 are present
+	protected double[][] tail;
+
+	public PresenceStrata(double[] probas) {
+		this.probas = probas;
+		int n = probas.length;
+		this.tail = new double[n + 1][n + 2];
+		this.tail[n][0] = 1;
+		for(int i = n - 1; i >= 0; i--) {
+			for(int r = 0; r <= n - i; r++) {
+				double absent = (1 - probas[i])*this.tail[i+1][r];
+				double present = r > 0 ? probas[i]*this.tail[i+1][r-1] : 0;
+				this.tail[i][r] = absent + present;
+			}
+		}
+	}
+
+	public int getNbArguments() {
+		return this.probas.length;
+	}
+
+	/**
+	 * number of present arguments for the uniform u
+	 */
+	public int getStratum(double u) {
+		int n = this.probas.length;
+		double cumulated = 0;
+		for(int k = 0; k<n; k++) {
+			cumulated += this.tail[0][k];
+			if(u < cumulated) {
+				return k;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * is argument i present, knowing that remaining arguments among i..n-1 are present
+	 * @param u uniform of argument i
+	 */
+	public boolean isPresent(int i, int remaining, double u) {
+		if(remaining <= 0) {
+			return false;
+		}
+		double all = this.tail[i][remaining];
+		if(all <= 0) {
+			// not reachable with the probabilities: the remaining arguments are taken
+			return true;
+		}
+		return u < this.probas[i]*this.tail[i+1][remaining-1]/all;
+	}
+}
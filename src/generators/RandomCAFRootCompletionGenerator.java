@@ -1,14 +1,16 @@
 package generators;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Set;
 
 import model.ArgumentFramework;
 import model.Attack;
+import model.BitsetCompletion;
 import model.CArgument;
 import model.CAttack;
+import model.CompletionSkeleton;
 import model.ControlAF;
-import model.UnknownArgumentError;
 import util.RandomGen;
 
 /**
@@ -16,14 +18,59 @@ import util.RandomGen;
  * Therefore the random part is purely random:
  * p=1/2 for uncertain elements
  * p=1/3 for undirected elements
+ * With a sampling plan (see setSamplingPlan) the uniforms of each completion come from the plan:
+ * coordinate 0 for the stratum, then one per uncertain argument, one per uncertain attack
+ * and one per undirected attack.
  * @author Fabrice
  *
  */
 public class RandomCAFRootCompletionGenerator {
 	protected ControlAF CAF;
+	protected RandomGen random;
+
+	// sampling plan (built for the skeleton), null for independent draws
+	protected int planType;
+	protected int batchSize;
+	protected SamplingPlan plan;
+	protected PresenceStrata strata;
+	protected CompletionSkeleton planSkeleton;
 
 	public RandomCAFRootCompletionGenerator(ControlAF CAF) {
 		this.CAF = CAF;
+		this.random = new RandomGen();
+		this.planType = SamplingPlan.NONE;
+		this.batchSize = SamplingPlan.DEFAULT_BATCH_SIZE;
+	}
+
+	/**
+	 * random stream used for the draws
+	 * (by default the static methods of RandomGen)
+	 * @param random
+	 */
+	public void setRandom(RandomGen random) {
+		this.random = random;
+		this.plan = null;
+	}
+
+	/**
+	 * draws the next completions by batches following a sampling plan
+	 * (SamplingPlan.NONE for independent draws)
+	 * each completion still has the distribution of getRandomRootCompletion
+	 * @param type see SamplingPlan
+	 * @param batchSize number of completions per batch
+	 */
+	public void setSamplingPlan(int type, int batchSize) {
+		this.planType = type;
+		this.batchSize = batchSize;
+		this.plan = null;
+	}
+
+	/**
+	 * plan of the draws, null if they are independent
+	 * (built at the first draw)
+	 */
+	public SamplingPlan getSamplingPlan() {
+		return this.plan;
 	}
 
 
@@ -114,7 +161,7 @@ public class RandomCAFRootCompletionGenerator {
 			CAttack attud = itud.next();
 			CArgument from = (CArgument)attud.getFrom();
 			CArgument to = (CArgument)attud.getTo();
-			if(RandomGen.randomBoolean() == true) {
+			if(this.random.nextBoolean() == true) {
 				result.addAttack(new Attack(from,to));
 			} else {
 				result.addAttack(new Attack(to,from));
@@ -134,63 +181,115 @@ public class RandomCAFRootCompletionGenerator {
 	 * and 1/3 for undirected attacks
 	 */
 	public ArgumentFramework getRandomRootCompletion() {
-		ArgumentFramework result = new ArgumentFramework();
+		return this.getRandomBitsetCompletion().toArgumentFramework();
+	}
 
-		// put all Fixed arguments
-		Set<CArgument> fixedArgs = CAF.getArgumentsByType(CArgument.Type.FIXED);
-		for(CArgument arg : fixedArgs) {
-			result.addArgument(arg);
-		}
-		// Chose randomly Uncertain Arguments
-		Set<CArgument> uncertainArgs = CAF.getArgumentsByType(CArgument.Type.UNCERTAIN);
-		for(CArgument arg : uncertainArgs) {
-			if(RandomGen.randomBoolean() == true) {
-				result.addArgument(arg);
-			}
-		}
-		// add fixed attacks (for sure) if both arguments are in the AF
-		Set<CAttack> fixedAtts = CAF.getAttacksByType(CAttack.Type.CERTAIN);
-		for(CAttack att : fixedAtts) {
-			try {
-				result.addAttack(att);
-			} catch(UnknownArgumentError uae) {
-				// we do not care if one attack is not added
-			}
+	/**
+	 * same as getRandomRootCompletion but returns the completion as a bit vector
+	 * over the skeleton of the CAF (no ArgumentFramework is built)
+	 */
+	public BitsetCompletion getRandomBitsetCompletion() {
+		BitsetCompletion result = new BitsetCompletion(CAF.getCompletionSkeleton());
+		this.fillRandomCompletion(result);
+		return result;
+	}
+
+	/**
+	 * draws a random completion into an existing bitset completion
+	 * (it must be built on the skeleton of the CAF)
+	 * Allows Monte Carlo loops to reuse the same object for all samples
+	 * @param completion
+	 */
+	public void fillRandomCompletion(BitsetCompletion completion) {
+		CompletionSkeleton skeleton = completion.getSkeleton();
+		completion.clear();
+		if(this.planType != SamplingPlan.NONE) {
+			this.fillPlannedCompletion(completion);
+			return;
 		}
-		// Uncertain Attacks (chosen randomly) if both arguments are in the AF
-		Set<CAttack> uncertainAtts = CAF.getAttacksByType(CAttack.Type.UNCERTAIN);
-		for(CAttack att : uncertainAtts) {
-			if(RandomGen.randomBoolean() == true) {
-				try {
-					result.addAttack(att);
-				} catch(UnknownArgumentError uae) {
-					// we do not care if one attack is not added
+		// Chose randomly Uncertain Arguments and Uncertain Attacks (p=1/2)
+		// their bits come first in the skeleton: drawn 64 at a time
+		int nbCoins = skeleton.getNbUncertainArguments() + skeleton.getNbUncertainAttacks();
+		this.random.nextBits(completion.getWords(), 0, nbCoins);
+		// Uncertain Attacks are kept only if both arguments are in the AF
+		// fixed attacks need nothing: they are present as soon as both arguments are
+		for(int i = 0; i<skeleton.getNbUncertainAttacks(); i++) {
+			int bit = skeleton.getUncertainAttackBit(i);
+			if(completion.get(bit)) {
+				if(!completion.isPresent(skeleton.getUncertainAttackFrom(i)) || !completion.isPresent(skeleton.getUncertainAttackTo(i))) {
+					completion.set(bit, false);
 				}
 			}
 		}
-
 		// add attacks: unknown direction => here we need to decide randomly the direction
 		// or both directions
 		// of course if one argument is missing, the attack is not added
-		Set<CAttack> undirected = this.CAF.getAttacksByType(CAttack.Type.UNDIRECTED);
-		for(CAttack att : undirected) {
-			// easier to check here
-			if(!result.containsArgument(att.getFrom()) || !result.containsArgument(att.getTo())) {
+		for(int i = 0; i<skeleton.getNbUndirectedAttacks(); i++) {
+			if(!completion.isPresent(skeleton.getUndirectedAttackFrom(i)) || !completion.isPresent(skeleton.getUndirectedAttackTo(i))) {
 				continue;
 			}
-			CAttack reverse = new CAttack(att.getTo(), att.getFrom(), CAttack.Type.UNDIRECTED);
-			int random = RandomGen.getIndex(2);
+			int bit = skeleton.getUndirectedAttackBit(i);
+			int random = this.random.nextInt(0, 2);
 			if(random == 0) {
-				result.addAttack(att);
+				completion.set(bit, true);
 			} else if(random == 1) {
-				result.addAttack(reverse);
+				completion.set(bit+1, true);
 			} else {
-				result.addAttack(att);
-				result.addAttack(reverse);
+				completion.set(bit, true);
+				completion.set(bit+1, true);
 			}
-
 		}
-		return result;
 	}
 
+	/**
+	 * same draws as fillRandomCompletion with the uniforms of the plan
+	 */
+	private void fillPlannedCompletion(BitsetCompletion completion) {
+		CompletionSkeleton skeleton = completion.getSkeleton();
+		int nbArgs = skeleton.getNbUncertainArguments();
+		int nbAtts = skeleton.getNbUncertainAttacks();
+		if(this.plan == null || this.planSkeleton != skeleton) {
+			this.plan = new SamplingPlan(this.planType, 1 + nbArgs + nbAtts + skeleton.getNbUndirectedAttacks(), this.batchSize, this.random);
+			double[] probas = new double[nbArgs];
+			Arrays.fill(probas, 0.5);
+			this.strata = new PresenceStrata(probas);
+			this.planSkeleton = skeleton;
+		}
+		double[] u = this.plan.next();
+		int remaining = this.strata.getStratum(u[0]);
+		for(int i = 0; i<nbArgs; i++) {
+			boolean present;
+			if(this.planType == SamplingPlan.STRATIFIED) {
+				present = this.strata.isPresent(i, remaining, u[1+i]);
+			} else {
+				present = u[1+i] < 0.5;
+			}
+			if(present) {
+				completion.set(skeleton.getUncertainArgumentBit(i), true);
+				remaining--;
+			}
+		}
+		for(int i = 0; i<nbAtts; i++) {
+			if(u[1+nbArgs+i] < 0.5) {
+				if(completion.isPresent(skeleton.getUncertainAttackFrom(i)) && completion.isPresent(skeleton.getUncertainAttackTo(i))) {
+					completion.set(skeleton.getUncertainAttackBit(i), true);
+				}
+			}
+		}
+		for(int i = 0; i<skeleton.getNbUndirectedAttacks(); i++) {
+			if(!completion.isPresent(skeleton.getUndirectedAttackFrom(i)) || !completion.isPresent(skeleton.getUndirectedAttackTo(i))) {
+				continue;
+			}
+			int bit = skeleton.getUndirectedAttackBit(i);
+			int option = Math.min(2, (int)(3*u[1+nbArgs+nbAtts+i]));
+			if(option == 0) {
+				completion.set(bit, true);
+			} else if(option == 1) {
+				completion.set(bit+1, true);
+			} else {
+				completion.set(bit, true);
+				completion.set(bit+1, true);
+			}
+		}
+	}
 }
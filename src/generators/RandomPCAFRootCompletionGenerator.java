@@ -1,16 +1,18 @@
 package generators;
 
-import java.util.Set;
-
 import model.ArgumentFramework;
-import model.CArgument;
+import model.BitsetCompletion;
 import model.CAttack;
+import model.CompletionSkeleton;
 import model.PControlAF;
 import util.RandomGen;
 
 /**
  * Returns random root completions for PCAF
  * Therefore it computes the random completions according to the distribution of the completions.
+ * With a sampling plan (see setSamplingPlan) the uniforms of each completion come from the plan:
+ * coordinate 0 for the stratum, then one per uncertain argument, one per uncertain attack
+ * and 4 per undirected attack (t3 or t4 first, first value, second value, choice of the option).
  * @author Fabrice
  *
  */
@@ -18,8 +20,56 @@ public class RandomPCAFRootCompletionGenerator {
 
 	private PControlAF PCAF;
 	
+	// probabilities of the uncertain elements in the order of the skeleton
+	private CompletionSkeleton skeleton;
+	private double[] uargProbas;
+	private double[] uattProbas;
+	private double[] udattProbas;
+	private RandomGen random;
+	
+	// sampling plan (built for the skeleton), null for independent draws
+	private int planType;
+	private int batchSize;
+	private SamplingPlan plan;
+	private PresenceStrata strata;
+	
 	public RandomPCAFRootCompletionGenerator(PControlAF PCAF) {
 		this.PCAF = PCAF;
+		this.skeleton = null;
+		this.random = new RandomGen();
+		this.planType = SamplingPlan.NONE;
+		this.batchSize = SamplingPlan.DEFAULT_BATCH_SIZE;
+	}
+	
+	/**
+	 * random stream used for the draws
+	 * (by default the static methods of RandomGen)
+	 * @param random
+	 */
+	public void setRandom(RandomGen random) {
+		this.random = random;
+		this.plan = null;
+	}
+	
+	/**
+	 * draws the next completions by batches following a sampling plan
+	 * (SamplingPlan.NONE for independent draws)
+	 * each completion still has the distribution of the PCAF
+	 * @param type see SamplingPlan
+	 * @param batchSize number of completions per batch
+	 */
+	public void setSamplingPlan(int type, int batchSize) {
+		this.planType = type;
+		this.batchSize = batchSize;
+		this.plan = null;
+	}
+	
+	/**
+	 * plan of the draws, null if they are independent
+	 * (built at the first draw)
+	 */
+	public SamplingPlan getSamplingPlan() {
+		return this.plan;
 	}
 	
 	/**
@@ -28,7 +78,7 @@ public class RandomPCAFRootCompletionGenerator {
 	 * @return
 	 */
 	public double getUncertain() {
-		return RandomGen.randomDouble(0.0, 1.0);
+		return this.random.nextDouble(0.0, 1.0);
 	}
 	
 	/**
@@ -41,13 +91,13 @@ public class RandomPCAFRootCompletionGenerator {
 	public double[] getUndirected() {
 		double t3 = 0;
 		double t4 = 0;
-		boolean first = RandomGen.randomBoolean();
+		boolean first = this.random.nextBoolean();
 		if(first) {
-			t3 = RandomGen.randomDouble(0.0, 1.0);
-			t4 = RandomGen.randomDouble(0.0, 1-t3);
+			t3 = this.random.nextDouble(0.0, 1.0);
+			t4 = this.random.nextDouble(0.0, 1-t3);
 		} else {
-			t4 = RandomGen.randomDouble(0.0, 1.0);
-			t3 = RandomGen.randomDouble(0.0, 1-t4);
+			t4 = this.random.nextDouble(0.0, 1.0);
+			t3 = this.random.nextDouble(0.0, 1-t4);
 		}
 		double[] result = new double[2];
 		result[0] = t3;
@@ -62,75 +112,170 @@ public class RandomPCAFRootCompletionGenerator {
 	 * @return
 	 */
 	public ArgumentFramework getRandomRootCompletion() {
-		ArgumentFramework af = new ArgumentFramework();
-		this.addFixedArguments(af);
-		this.addUncertainArguments(af);
-		this.addFixedAttacks(af);
-		this.addUncertainAttacks(af);
-		this.addUndirectedAttacks(af);
-		return af;
-	}
-	
-	private void addFixedArguments(ArgumentFramework af) {
-		Set<CArgument> fixed = this.PCAF.getArgumentsByType(CArgument.Type.FIXED);
-		for(CArgument arg : fixed) {
-			af.addArgument(arg);
+		return this.getRandomBitsetCompletion().toArgumentFramework();
+	}
+	
+	/**
+	 * same as getRandomRootCompletion but returns the completion as a bit vector
+	 * over the skeleton of the PCAF (no ArgumentFramework is built)
+	 * @return
+	 */
+	public BitsetCompletion getRandomBitsetCompletion() {
+		BitsetCompletion result = new BitsetCompletion(this.PCAF.getCompletionSkeleton());
+		this.fillRandomCompletion(result);
+		return result;
+	}
+	
+	/**
+	 * draws a random completion into an existing bitset completion
+	 * (it must be built on the skeleton of the PCAF)
+	 * Allows Monte Carlo loops to reuse the same object for all samples
+	 * @param completion
+	 */
+	public void fillRandomCompletion(BitsetCompletion completion) {
+		this.loadProbabilities(completion.getSkeleton());
+		completion.clear();
+		if(this.planType != SamplingPlan.NONE) {
+			this.fillPlannedCompletion(completion);
+			return;
 		}
+		this.addUncertainArguments(completion);
+		this.addUncertainAttacks(completion);
+		this.addUndirectedAttacks(completion);
 	}
 	
-	private void addUncertainArguments(ArgumentFramework af) {
-		Set<CArgument> uncertain = this.PCAF.getArgumentsByType(CArgument.Type.UNCERTAIN);
-		for(CArgument arg : uncertain) {
-			double t1 = this.getUncertain();
-			double proba = PCAF.getUargProba(arg);
-			if(proba >= t1) {
-				af.addArgument(arg);
+	/**
+	 * copies the probabilities of the PCAF in skeleton order
+	 * (done once per skeleton)
+	 */
+	private void loadProbabilities(CompletionSkeleton skeleton) {
+		if(this.skeleton == skeleton) {
+			return;
+		}
+		this.uargProbas = new double[skeleton.getNbUncertainArguments()];
+		for(int i = 0; i<this.uargProbas.length; i++) {
+			this.uargProbas[i] = this.PCAF.getUargProba(skeleton.getUncertainArgument(i));
+		}
+		this.uattProbas = new double[skeleton.getNbUncertainAttacks()];
+		for(int i = 0; i<this.uattProbas.length; i++) {
+			this.uattProbas[i] = this.PCAF.getUattProba(skeleton.getUncertainAttack(i));
+		}
+		this.udattProbas = new double[2*skeleton.getNbUndirectedAttacks()];
+		for(int i = 0; i<skeleton.getNbUndirectedAttacks(); i++) {
+			CAttack att = skeleton.getUndirectedAttack(i);
+			this.udattProbas[2*i] = this.PCAF.getUDAttFromToProba(att);
+			this.udattProbas[2*i+1] = this.PCAF.getUDAttToFromProba(att);
+		}
+		this.skeleton = skeleton;
+		this.plan = null;
+	}
+	
+	/**
+	 * same draws as addUncertainArguments, addUncertainAttacks and addUndirectedAttacks
+	 * with the uniforms of the plan
+	 */
+	private void fillPlannedCompletion(BitsetCompletion completion) {
+		CompletionSkeleton skeleton = completion.getSkeleton();
+		int nbArgs = skeleton.getNbUncertainArguments();
+		int nbAtts = skeleton.getNbUncertainAttacks();
+		if(this.plan == null) {
+			this.plan = new SamplingPlan(this.planType, 1 + nbArgs + nbAtts + 4*skeleton.getNbUndirectedAttacks(), this.batchSize, this.random);
+			this.strata = new PresenceStrata(this.uargProbas);
+		}
+		double[] u = this.plan.next();
+		int remaining = this.strata.getStratum(u[0]);
+		for(int i = 0; i<nbArgs; i++) {
+			boolean present;
+			if(this.planType == SamplingPlan.STRATIFIED) {
+				present = this.strata.isPresent(i, remaining, u[1+i]);
+			} else {
+				present = this.uargProbas[i] >= u[1+i];
+			}
+			if(present) {
+				completion.set(skeleton.getUncertainArgumentBit(i), true);
+				remaining--;
+			}
+		}
+		for(int i = 0; i<nbAtts; i++) {
+			if(this.uattProbas[i] >= u[1+nbArgs+i]) {
+				if(completion.isPresent(skeleton.getUncertainAttackFrom(i)) && completion.isPresent(skeleton.getUncertainAttackTo(i))) {
+					completion.set(skeleton.getUncertainAttackBit(i), true);
+				}
+			}
+		}
+		for(int i = 0; i<skeleton.getNbUndirectedAttacks(); i++) {
+			if(!completion.isPresent(skeleton.getUndirectedAttackFrom(i)) || !completion.isPresent(skeleton.getUndirectedAttackTo(i))) {
+				continue;
+			}
+			int k = 1 + nbArgs + nbAtts + 4*i;
+			// same as getUndirected: nextDouble(0, 1-t) is (1-t).u
+			double t3;
+			double t4;
+			if(u[k] < 0.5) {
+				t3 = u[k+1];
+				t4 = (1 - t3)*u[k+2];
+			} else {
+				t4 = u[k+1];
+				t3 = (1 - t4)*u[k+2];
+			}
+			double p3 = this.udattProbas[2*i];
+			double p4 = this.udattProbas[2*i+1];
+			int o1 = p3 >= t3 ? 1 : 0;
+			int o2 = p4 >= t4 ? 1 : 0;
+			int o3 = p3+p4 <= t3+t4 ? 1 : 0;
+			int option = this.chooseOption(o1, o2, o3, u[k+3]);
+			int bit = skeleton.getUndirectedAttackBit(i);
+			if(option == 1) {
+				completion.set(bit, true);
+			} else if(option == 2) {
+				completion.set(bit+1, true);
+			} else {
+				completion.set(bit, true);
+				completion.set(bit+1, true);
 			}
 		}
 	}
 	
-	private void addFixedAttacks(ArgumentFramework af) {
-		Set<CAttack> fixed = this.PCAF.getAttacksByType(CAttack.Type.CERTAIN);
-		for(CAttack att : fixed) {
-			try {
-				af.addAttack(att);
-			} catch (Error e) {
-				// we do not care if one attack is not added
+	private void addUncertainArguments(BitsetCompletion completion) {
+		CompletionSkeleton skeleton = completion.getSkeleton();
+		for(int i = 0; i<skeleton.getNbUncertainArguments(); i++) {
+			double t1 = this.getUncertain();
+			double proba = this.uargProbas[i];
+			if(proba >= t1) {
+				completion.set(skeleton.getUncertainArgumentBit(i), true);
 			}
 		}
 	}
-
-	private void addUncertainAttacks(ArgumentFramework af) {
-		Set<CAttack> uncertain = this.PCAF.getAttacksByType(CAttack.Type.UNCERTAIN);
-		for(CAttack att : uncertain) {
+	
+	private void addUncertainAttacks(BitsetCompletion completion) {
+		CompletionSkeleton skeleton = completion.getSkeleton();
+		for(int i = 0; i<skeleton.getNbUncertainAttacks(); i++) {
 			double t2 = this.getUncertain();
-			double proba = this.PCAF.getUattProba(att);
+			double proba = this.uattProbas[i];
 			if(proba >= t2) {
-				try {
-					af.addAttack(att);
-				} catch (Error e) {
-					// we do not care if one attack is not added
+				// we do not care if one attack is not added
+				if(completion.isPresent(skeleton.getUncertainAttackFrom(i)) && completion.isPresent(skeleton.getUncertainAttackTo(i))) {
+					completion.set(skeleton.getUncertainAttackBit(i), true);
 				}
 			}
 		}
 	}
 	
-	private void addUndirectedAttacks(ArgumentFramework af) {
-		Set<CAttack> undirected = this.PCAF.getAttacksByType(CAttack.Type.UNDIRECTED);
-		for(CAttack att : undirected) {
+	private void addUndirectedAttacks(BitsetCompletion completion) {
+		CompletionSkeleton skeleton = completion.getSkeleton();
+		for(int i = 0; i<skeleton.getNbUndirectedAttacks(); i++) {
 			double[] t = this.getUndirected();
 			double t3 = t[0];
 			double t4 = t[1];
-			double p3 = this.PCAF.getUDAttFromToProba(att);
-			double p4 = this.PCAF.getUDAttToFromProba(att);
+			double p3 = this.udattProbas[2*i];
+			double p4 = this.udattProbas[2*i+1];
 			int o1 = 0;
 			int o2 = 0;
 			int o3 = 0;
 			// easier to check here
-			if(!af.containsArgument(att.getFrom()) || !af.containsArgument(att.getTo())) {
+			if(!completion.isPresent(skeleton.getUndirectedAttackFrom(i)) || !completion.isPresent(skeleton.getUndirectedAttackTo(i))) {
 				continue;
 			}
-			CAttack reverse = new CAttack(att.getTo(), att.getFrom(), CAttack.Type.UNDIRECTED);
 			if(p3 >= t3) {
 				o1 = 1;
 			}
@@ -141,41 +286,59 @@ public class RandomPCAFRootCompletionGenerator {
 				o3 = 1;
 			}
 			int option = chooseOption(o1,o2,o3);
+			int bit = skeleton.getUndirectedAttackBit(i);
 			if(option == 1) {
-				af.addAttack(att);
+				completion.set(bit, true);
 			} else if(option == 2) {
-				af.addAttack(reverse);
+				completion.set(bit+1, true);
 			} else {
-				af.addAttack(att);
-				af.addAttack(reverse);
+				completion.set(bit, true);
+				completion.set(bit+1, true);
 			}
 		}
 	}
 
 	private int chooseOption(int o1, int o2, int o3) {
+		return this.chooseOption(o1, o2, o3, -1);
+	}
+
+	/**
+	 * @param u uniform of the choice, negative to draw it from the random stream
+	 */
+	private int chooseOption(int o1, int o2, int o3, double u) {
 		if(o1 == 0) {
 			if(o2 == 0 && o3 == 1) {
 				return 3;
 			} else if (o2 == 1 && o3 == 0) {
 				return 2;
 			} else {
-				return RandomGen.randInt(2, 3);
+				return this.pick(2, 3, u);
 			}
 		} else {
 			if(o2 == 0 && o3 == 0) {
 				return 1;
 			} else if (o2 == 0 && o3 == 1) {
-				if(RandomGen.randomBoolean()) {
+				if(u < 0 ? this.random.nextBoolean() : u < 0.5) {
 					return 1;
 				} else {
 					return 3;
 				}
 			} else if (o2 == 1 && o3 == 0) {
-				return RandomGen.randInt(1, 2);
+				return this.pick(1, 2, u);
 			}
 			else {
-				return RandomGen.randInt(1, 3);
+				return this.pick(1, 3, u);
 			}
 		}
 	}
+
+	/**
+	 * same as random.nextInt(min, max) with the uniform u (if not negative)
+	 */
+	private int pick(int min, int max, double u) {
+		if(u < 0) {
+			return this.random.nextInt(min, max);
+		}
+		return Math.min(max, min + (int)(u*(max - min + 1)));
+	}
 }
@@ -0,0 +1,164 @@
+package generators;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import model.BitsetCompletion;
+import model.CompletionSkeleton;
+
+/**
+ * Enumerates all the root completions of a CAF (or PCAF), each one exactly once,
+ * in Gray code order: two consecutive completions differ by one uncertain element only
+ * - uncertain arguments: 2 values (absent, present)
+ * - uncertain attacks: 2 values (absent, present), only while both arguments are present
+ * - undirected attacks: 3 values (from->to, both, to->from), only while both arguments are present
+ * Each element is a digit of a (modular, mixed radix) Gray code: a digit moves only
+ * once all the digits below it have gone through all their values, and it goes through
+ * all its values from the one it has (the arguments are the highest digits).
+ * The bits changed by the last step are given by getNbChangedBits() / getChangedBit(i)
+ * so that an incremental solver only updates these bits (see Incremental_SAT_Completion_Solver.updateBit).
+ * next() returns the same BitsetCompletion object, updated at each call.
+ * Bits of an attack with a missing argument keep their last value: they are ignored
+ * by isEdgePresent(), toArgumentFramework() and the solvers.
+ */
+public class RootCompletionEnumerator implements Iterator<BitsetCompletion> {
+
+	protected CompletionSkeleton skeleton;
+	protected BitsetCompletion completion;
+	protected int nbArgs;
+	protected int nbAtts;
+	protected int nbDigits;
+	// digits: uncertain arguments, then uncertain attacks, then undirected attacks (lowest)
+	protected int[] values;
+	// number of moves of each digit since the last move of a higher digit
+	protected int[] moves;
+	protected int[] changed;
+	protected int nbChanged;
+	protected boolean started;
+
+	public RootCompletionEnumerator(CompletionSkeleton skeleton) {
+		this.skeleton = skeleton;
+		this.completion = new BitsetCompletion(skeleton);
+		this.nbArgs = skeleton.getNbUncertainArguments();
+		this.nbAtts = skeleton.getNbUncertainAttacks();
+		this.nbDigits = this.nbArgs + this.nbAtts + skeleton.getNbUndirectedAttacks();
+		this.values = new int[this.nbDigits];
+		this.moves = new int[this.nbDigits];
+		this.changed = new int[2];
+		this.nbChanged = -1;
+		this.started = false;
+	}
+
+	/**
+	 * upper bound of the number of root completions: 2^|AU|.2^|UA|.3^|UD|
+	 * (attacks with a missing argument are counted as if the arguments were there)
+	 */
+	public static double getSpaceSize(CompletionSkeleton skeleton) {
+		return Math.pow(2, skeleton.getNbUncertainArguments() + skeleton.getNbUncertainAttacks())
+				* Math.pow(3, skeleton.getNbUndirectedAttacks());
+	}
+
+	/**
+	 * number of bits changed by the last call to next()
+	 * -1 for the first completion (all the bits are new)
+	 */
+	public int getNbChangedBits() {
+		return this.nbChanged;
+	}
+
+	public int getChangedBit(int i) {
+		return this.changed[i];
+	}
+
+	public boolean hasNext() {
+		if(!this.started) {
+			return true;
+		}
+		return this.nextDigit() >= 0;
+	}
+
+	public BitsetCompletion next() {
+		if(!this.started) {
+			this.started = true;
+			this.nbChanged = -1;
+			// undirected attacks start from->to
+			for(int i = 0; i<this.skeleton.getNbUndirectedAttacks(); i++) {
+				this.completion.set(this.skeleton.getUndirectedAttackBit(i), true);
+			}
+			return this.completion;
+		}
+		int digit = this.nextDigit();
+		if(digit < 0) {
+			throw new NoSuchElementException();
+		}
+		this.moves[digit]++;
+		for(int lower = digit + 1; lower<this.nbDigits; lower++) {
+			this.moves[lower] = 0;
+		}
+		this.move(digit);
+		return this.completion;
+	}
+
+	/**
+	 * lowest active digit that has not gone through all its values yet, -1 if none
+	 */
+	protected int nextDigit() {
+		for(int digit = this.nbDigits - 1; digit >= 0; digit--) {
+			if(this.isActive(digit) && this.moves[digit] < this.getRadix(digit) - 1) {
+				return digit;
+			}
+		}
+		return -1;
+	}
+
+	protected int getRadix(int digit) {
+		return digit < this.nbArgs + this.nbAtts ? 2 : 3;
+	}
+
+	/**
+	 * arguments are always active, attacks only if both their arguments are present
+	 */
+	protected boolean isActive(int digit) {
+		if(digit < this.nbArgs) {
+			return true;
+		}
+		if(digit < this.nbArgs + this.nbAtts) {
+			int i = digit - this.nbArgs;
+			return this.completion.isPresent(this.skeleton.getUncertainAttackFrom(i)) && this.completion.isPresent(this.skeleton.getUncertainAttackTo(i));
+		}
+		int i = digit - this.nbArgs - this.nbAtts;
+		return this.completion.isPresent(this.skeleton.getUndirectedAttackFrom(i)) && this.completion.isPresent(this.skeleton.getUndirectedAttackTo(i));
+	}
+
+	/**
+	 * next value of a digit (modulo its radix) and the corresponding bits
+	 */
+	protected void move(int digit) {
+		int value = (this.values[digit] + 1) % this.getRadix(digit);
+		this.values[digit] = value;
+		this.nbChanged = 0;
+		if(digit < this.nbArgs) {
+			this.flip(this.skeleton.getUncertainArgumentBit(digit));
+		} else if(digit < this.nbArgs + this.nbAtts) {
+			this.flip(this.skeleton.getUncertainAttackBit(digit - this.nbArgs));
+		} else {
+			// 0: from->to (10), 1: both (11), 2: to->from (01)
+			int bit = this.skeleton.getUndirectedAttackBit(digit - this.nbArgs - this.nbAtts);
+			if(value != 2) {
+				this.flip(bit + 1);
+			}
+			if(value != 1) {
+				this.flip(bit);
+			}
+		}
+	}
+
+	/**
+	 * flips a bit and records it as changed
+	 */
+	protected void flip(int bit) {
+		this.completion.flip(bit);
+		this.changed[this.nbChanged] = bit;
+		this.nbChanged++;
+	}
+}
@@ -0,0 +1,125 @@
+package generators;
+
+import util.RandomGen;
+
+/**
+ * Uniform numbers used to draw a sequence of completions (variance reduction)
+ * Each completion is drawn from a vector of dimension uniforms in [0, 1), one coordinate
+ * per random choice of the generator (always the same coordinate for the same choice).
+ * The completions are drawn by batches of batchSize vectors:
+ * - ANTITHETIC: batches of 2, the second vector is 1 - u (every coin of the first completion is flipped)
+ * - LATIN_HYPERCUBE: in each coordinate, the batch has one value in each of the batchSize strata of [0, 1)
+ * - STRATIFIED: same as LATIN_HYPERCUBE for the first coordinate only (stratum of the completion,
+ * see PresenceStrata), the other coordinates are independent
+ * Each vector alone is uniform on [0, 1)^dimension: the completions have the distribution of
+ * the generator, only the completions of a batch are not independent
+ * (estimators must use the batches as independent replicates).
+ */
+public class SamplingPlan {
+
+	// independent draws (no plan)
+	public static final int NONE = 0;
+	public static final int ANTITHETIC = 1;
+	public static final int LATIN_HYPERCUBE = 2;
+	public static final int STRATIFIED = 3;
+
+	public static final int DEFAULT_BATCH_SIZE = 20;
+
+	protected int type;
+	protected int dimension;
+	protected int batchSize;
+	protected RandomGen random;
+	// vectors of the current batch
+	protected double[][] batch;
+	protected int index;
+
+	/**
+	 * @param type ANTITHETIC, LATIN_HYPERCUBE or STRATIFIED
+	 * @param dimension number of uniforms per completion
+	 * @param batchSize number of completions per batch (always 2 for ANTITHETIC)
+	 * @param random stream of the draws
+	 */
+	public SamplingPlan(int type, int dimension, int batchSize, RandomGen random) {
+		if(type != ANTITHETIC && type != LATIN_HYPERCUBE && type != STRATIFIED) {
+			throw new IllegalArgumentException("unknown sampling plan " + type);
+		}
+		this.type = type;
+		this.dimension = dimension;
+		this.batchSize = type == ANTITHETIC ? 2 : Math.max(1, batchSize);
+		this.random = random;
+		this.batch = new double[this.batchSize][dimension];
+		this.index = this.batchSize;
+	}
+
+	public int getType() {
+		return this.type;
+	}
+
+	public int getDimension() {
+		return this.dimension;
+	}
+
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * uniforms of the next completion (the array is reused by the next batch)
+	 */
+	public double[] next() {
+		if(this.index == this.batchSize) {
+			this.newBatch();
+			this.index = 0;
+		}
+		double[] result = this.batch[this.index];
+		this.index++;
+		return result;
+	}
+
+	/**
+	 * true if the last vector given by next() is the last one of its batch
+	 */
+	public boolean isEndOfBatch() {
+		return this.index == this.batchSize;
+	}
+
+	protected void newBatch() {
+		if(this.type == ANTITHETIC) {
+			for(int d = 0; d<this.dimension; d++) {
+				double u = this.random.nextDouble(0.0, 1.0);
+				this.batch[0][d] = u;
+				this.batch[1][d] = 1 - u;
+			}
+			return;
+		}
+		for(int d = 0; d<this.dimension; d++) {
+			if(d == 0 || this.type == LATIN_HYPERCUBE) {
+				this.stratify(d);
+			} else {
+				for(int i = 0; i<this.batchSize; i++) {
+					this.batch[i][d] = this.random.nextDouble(0.0, 1.0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * one value in each stratum [k/n, (k+1)/n) of coordinate d, in random order
+	 */
+	protected void stratify(int d) {
+		int n = this.batchSize;
+		int[] strata = new int[n];
+		for(int k = 0; k<n; k++) {
+			strata[k] = k;
+		}
+		for(int k = n - 1; k > 0; k--) {
+			int j = this.random.nextInt(0, k);
+			int tmp = strata[k];
+			strata[k] = strata[j];
+			strata[j] = tmp;
+		}
+		for(int i = 0; i<n; i++) {
+			this.batch[i][d] = (strata[i] + this.random.nextDouble(0.0, 1.0))/n;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package generators;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -9,7 +10,14 @@ import model.Argument;
 import model.ArgumentFramework;
 import model.CArgument;
 import model.ControlAF;
+import model.GroundedLabelling;
 
+/**
+ * Encodes the control of a completion as a propositional formula (acc and on variables)
+ * Grounded preprocessing (on by default, see GroundedLabelling): the arguments IN or OUT
+ * whatever the control configuration are encoded by a literal instead of their clause,
+ * and the attackers OUT are dropped from the clauses of the other arguments.
+ */
 public class StrongSATEncoder {
 
 	protected static String main = "main";
@@ -17,10 +25,55 @@ public class StrongSATEncoder {
 	
 	protected ArgumentFramework instance;
 	protected ControlAF CAF;
+	protected boolean grounded;
+	protected GroundedLabelling labelling;
 
 	public StrongSATEncoder(ArgumentFramework instance, ControlAF CAF) {
 		this.instance = instance;
 		this.CAF = CAF;
+		this.grounded = true;
+	}
+
+	/**
+	 * grounded preprocessing of the instance (true by default)
+	 */
+	public void setGroundedPreprocessing(boolean grounded) {
+		this.grounded = grounded;
+		this.labelling = null;
+	}
+
+	/**
+	 * labelling of the instance (null without grounded preprocessing)
+	 */
+	public GroundedLabelling getGroundedLabelling() {
+		if(this.grounded && this.labelling == null) {
+			this.labelling = new GroundedLabelling(this.CAF, this.instance);
+		}
+		return this.labelling;
+	}
+
+	/**
+	 * grounded label of an argument (GroundedLabelling.UNDEC without preprocessing)
+	 */
+	protected int getLabel(Argument a) {
+		GroundedLabelling labelling = this.getGroundedLabelling();
+		if(labelling == null) {
+			return GroundedLabelling.UNDEC;
+		}
+		return labelling.getLabel(a);
+	}
+
+	/**
+	 * attackers that are not OUT in the grounded labelling
+	 */
+	protected List<Argument> getUndecided(Collection<Argument> attackers) {
+		List<Argument> result = new ArrayList<Argument>(attackers.size());
+		for(Argument att : attackers) {
+			if(this.getLabel(att) != GroundedLabelling.OUT) {
+				result.add(att);
+			}
+		}
+		return result;
 	}
 
 	public SatFormula encode(int type) {
@@ -118,7 +171,14 @@ public class StrongSATEncoder {
 		Conjunction result = new Conjunction("conflictfree");
 		Set<Argument> args = this.instance.getAllArguments();
 		for(Argument a : args) {
-			result.addSubformula(this.clause(a));
+			int label = this.getLabel(a);
+			if(label == GroundedLabelling.IN) {
+				result.addSubformula(new Atom("acc_" + a.getName()));
+			} else if(label == GroundedLabelling.OUT) {
+				result.addSubformula(new Negation(new Atom("acc_" + a.getName())));
+			} else {
+				result.addSubformula(this.clause(a));
+			}
 		}
 		return result;
 	}
@@ -132,7 +192,8 @@ public class StrongSATEncoder {
 	 */
 	protected Disjunction clause(Argument a) {
 		Disjunction result = new Disjunction("clause_" + a.getName());
-		Set<Argument> attackers = this.CAF.getArgumentAttackers(this.instance, a);
+		// the instance is not modified (it can be shared with other solvers)
+		List<Argument> attackers = this.getUndecided(this.CAF.getArgumentAttackersView(this.instance, a));
 		Formula accepted = this.isAccepted(a, attackers);
 		Formula notAccepted = this.isNotAccepted(a, attackers);
 		result.addSubformula(accepted);
@@ -148,7 +209,7 @@ public class StrongSATEncoder {
 	 * @param attackers
 	 * @return
 	 */
-	protected Conjunction isAccepted(Argument a, Set<Argument> attackers) {
+	protected Conjunction isAccepted(Argument a, Collection<Argument> attackers) {
 		Conjunction result = new Conjunction("isAccepted_" + a.getName());
 		Conjunction nonAttack = this.nonAttack(a, attackers);
 		if(nonAttack != null) {
@@ -166,7 +227,7 @@ public class StrongSATEncoder {
 	 * @param attackers
 	 * @return
 	 */
-	protected Conjunction isNotAccepted(Argument a, Set<Argument> attackers) {
+	protected Conjunction isNotAccepted(Argument a, Collection<Argument> attackers) {
 		Conjunction result = new Conjunction("isNotAccepted_" + a.getName());
 		Disjunction attack = this.attack(a, attackers);
 		if(attack == null) {
@@ -186,7 +247,7 @@ public class StrongSATEncoder {
 	 * @param attackers
 	 * @return
 	 */
-	protected Conjunction nonAttack(Argument a, Set<Argument> attackers) {
+	protected Conjunction nonAttack(Argument a, Collection<Argument> attackers) {
 		if(attackers.isEmpty()) {
 			return null;
 		}
@@ -205,7 +266,7 @@ public class StrongSATEncoder {
 	 * @param attackers
 	 * @return
 	 */
-	protected Disjunction attack(Argument a, Set<Argument> attackers) {
+	protected Disjunction attack(Argument a, Collection<Argument> attackers) {
 		if(attackers.isEmpty()) {
 			return null;
 		}
@@ -229,7 +290,12 @@ public class StrongSATEncoder {
 		}
 		int i = 0;
 		for(CArgument a : controlArgs) {
-			Set<Argument> attackers = this.CAF.getControlAttackers(a, this.instance);
+			if(this.getLabel(a) == GroundedLabelling.OUT) {
+				result.addSubformula(new Negation(new Atom("acc_" + a.getName())));
+				i++;
+				continue;
+			}
+			List<Argument> attackers = this.getUndecided(this.CAF.getControlAttackers(a, this.instance));
 			Formula controlNotAccepted = this.controlNotAccepted(a, attackers);
 			if(controlNotAccepted != null) {
 				result.addSubformula(controlNotAccepted);
@@ -248,7 +314,7 @@ public class StrongSATEncoder {
 	 * @param controlAttackers
 	 * @return
 	 */
-	protected Disjunction controlNotAccepted(CArgument c, Set<Argument> controlAttackers) {
+	protected Disjunction controlNotAccepted(CArgument c, Collection<Argument> controlAttackers) {
 		Disjunction result = new Disjunction("controlNotAccepted_" + c.getName());
 		Conjunction nonAttack = this.nonAttack(c, controlAttackers);
 		if(nonAttack == null) {
@@ -11,6 +11,8 @@ import parser.CAFParser;
  * In order to retrieve in time O(1) attacking arguments and attacked arguments for a given argument
  * First all arguments must be added to the AF
  * Then attacks can be added
+ * For hot loops, a compressed integer indexed copy of the graph can be obtained
+ * with getCompact(). It is built on demand and dropped at each modification of the AF
  */
 public class ArgumentFramework {
 
@@ -25,10 +27,17 @@ public class ArgumentFramework {
 	// signature (sorted list of arguments)
 	protected SortedSet<String> signature;
 	
+	// compressed representation (built on demand, null when outdated)
+	protected CompactArgumentFramework compact;
+	// canonical fingerprint (built on demand, null when outdated)
+	protected Fingerprint fingerprint;
+	
 	public ArgumentFramework() {
 		 graph_attacked = new HashMap<Argument, Set<Argument>>();
 		 graph_attacking = new HashMap<Argument, Set<Argument>>();
 		 signature = new TreeSet<String>();
+		 compact = null;
+		 fingerprint = null;
 	}
 	
 	/**
@@ -72,6 +81,8 @@ public class ArgumentFramework {
 		graph_attacking.put(a, attacking);
 		
 		signature.add(a.getName());
+		compact = null;
+		fingerprint = null;
 	}
 	
 	/**
@@ -86,6 +97,8 @@ public class ArgumentFramework {
 		this.graph_attacked.remove(a);
 		this.graph_attacking.remove(a);
 		this.signature.remove(a.getName());
+		this.compact = null;
+		this.fingerprint = null;
 		
 		// checks if other arguments attack this argument
 		removeAttacksFrom(a);
@@ -174,6 +187,8 @@ public class ArgumentFramework {
 		}
 		attackedFrom.add(to);
 		attackingTo.add(from);
+		compact = null;
+		fingerprint = null;
 	}
 	
 	/**
@@ -183,6 +198,8 @@ public class ArgumentFramework {
 	public void removeAttack(Attack att) {
 		this.getAttackedArguments(att.getFrom()).remove(att.getTo());
 		this.getAttackingArguments(att.getTo()).remove(att.getFrom());
+		this.compact = null;
+		this.fingerprint = null;
 	}
 	
 	/**
@@ -301,6 +318,36 @@ public class ArgumentFramework {
 		return graph_attacking.get(a);
 	}
 	
+	/**
+	 * returns the compressed integer indexed representation of the AF
+	 * built once and reused until the AF is modified through its own methods
+	 * (sets returned by getAttackedArguments/getAttackingArguments must not be modified directly)
+	 */
+	public CompactArgumentFramework getCompact() {
+		if(this.compact == null) {
+			this.compact = new CompactArgumentFramework(this);
+		}
+		return this.compact;
+	}
+	
+	/**
+	 * returns the canonical fingerprint of the AF (see Fingerprint)
+	 * computed once and reused until the AF is modified through its own methods
+	 */
+	public Fingerprint getFingerprint() {
+		if(this.fingerprint == null) {
+			this.fingerprint = Fingerprint.of(this);
+		}
+		return this.fingerprint;
+	}
+	
+	/**
+	 * returns the dense id of an argument in getCompact(), -1 if not present
+	 */
+	public int getArgumentId(Argument a) {
+		return this.getCompact().getId(a);
+	}
+	
 	/**
 	 * returns true if the AF contains the argument a
 	 */
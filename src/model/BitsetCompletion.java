@@ -0,0 +1,179 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Root completion of a CAF stored as a bit vector over the uncertain elements
+ * of a shared CompletionSkeleton (uncertain arguments, uncertain attacks and
+ * directions of undirected attacks).
+ * Solvers can read it directly (isPresent, isEdgePresent) without building an ArgumentFramework.
+ * toArgumentFramework() builds the corresponding ArgumentFramework if needed.
+ * Bits of attacks with a missing argument are expected to be cleared
+ * (this is what the generators do), so that two equal completions have equal bits.
+ */
+public class BitsetCompletion {
+
+	protected CompletionSkeleton skeleton;
+	protected long[] bits;
+
+	public BitsetCompletion(CompletionSkeleton skeleton) {
+		this.skeleton = skeleton;
+		this.bits = new long[(skeleton.getNbBits() + 63) >>> 6];
+	}
+
+	/**
+	 * bits of a completion given as an ArgumentFramework
+	 * (for instance a completion built by the generators or read from a file)
+	 * @param skeleton
+	 * @param completion
+	 * @return
+	 */
+	public static BitsetCompletion of(CompletionSkeleton skeleton, ArgumentFramework completion) {
+		BitsetCompletion result = new BitsetCompletion(skeleton);
+		for(int i = 0; i<skeleton.getNbUncertainArguments(); i++) {
+			result.set(skeleton.getUncertainArgumentBit(i), completion.containsArgument(skeleton.getUncertainArgument(i)));
+		}
+		for(int i = 0; i<skeleton.getNbUncertainAttacks(); i++) {
+			result.set(skeleton.getUncertainAttackBit(i), completion.containsAttack(skeleton.getUncertainAttack(i)));
+		}
+		for(int i = 0; i<skeleton.getNbUndirectedAttacks(); i++) {
+			CAttack att = skeleton.getUndirectedAttack(i);
+			int bit = skeleton.getUndirectedAttackBit(i);
+			result.set(bit, completion.containsAttack(att));
+			result.set(bit + 1, completion.containsAttack(new Attack(att.getTo(), att.getFrom())));
+		}
+		return result;
+	}
+
+	public CompletionSkeleton getSkeleton() {
+		return this.skeleton;
+	}
+
+	public boolean get(int bit) {
+		return (this.bits[bit >>> 6] & (1L << bit)) != 0;
+	}
+
+	public void set(int bit, boolean value) {
+		if(value) {
+			this.bits[bit >>> 6] |= (1L << bit);
+		} else {
+			this.bits[bit >>> 6] &= ~(1L << bit);
+		}
+	}
+
+	public void flip(int bit) {
+		this.bits[bit >>> 6] ^= (1L << bit);
+	}
+
+	/**
+	 * clears all the bits (completion with fixed part only)
+	 */
+	public void clear() {
+		Arrays.fill(this.bits, 0L);
+	}
+
+	/**
+	 * returns the underlying words (read only)
+	 */
+	public long[] getWords() {
+		return this.bits;
+	}
+
+	/**
+	 * true if argument id of the skeleton belongs to the completion
+	 * (false for -1, unknown argument)
+	 */
+	public boolean isPresent(int id) {
+		if(id < 0) {
+			return false;
+		}
+		if(this.skeleton.isFixed(id)) {
+			return true;
+		}
+		return this.get(id - this.skeleton.getNbFixedArguments());
+	}
+
+	/**
+	 * true if the argument belongs to the completion
+	 */
+	public boolean containsArgument(Argument a) {
+		return this.isPresent(this.skeleton.getId(a));
+	}
+
+	/**
+	 * true if edge e of the skeleton is an attack of the completion
+	 */
+	public boolean isEdgePresent(int e) {
+		int bit = this.skeleton.getEdgeBit(e);
+		if(bit != CompletionSkeleton.NO_BIT && !this.get(bit)) {
+			return false;
+		}
+		return this.isPresent(this.skeleton.getEdgeFrom(e)) && this.isPresent(this.skeleton.getEdgeTo(e));
+	}
+
+	/**
+	 * returns the number of arguments of the completion
+	 */
+	public int getNbArguments() {
+		int result = this.skeleton.getNbFixedArguments();
+		for(int i = 0; i<this.skeleton.getNbUncertainArguments(); i++) {
+			if(this.get(this.skeleton.getUncertainArgumentBit(i))) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * builds the ArgumentFramework of this completion
+	 * (arguments and attacks are the ones of the CAF, never duplicated)
+	 */
+	public ArgumentFramework toArgumentFramework() {
+		ArgumentFramework result = new ArgumentFramework();
+		for(int id = 0; id<this.skeleton.getNbArguments(); id++) {
+			if(this.isPresent(id)) {
+				result.addArgument(this.skeleton.getArgument(id));
+			}
+		}
+		for(int e = 0; e<this.skeleton.getNbEdges(); e++) {
+			if(this.isEdgePresent(e)) {
+				result.addAttack(this.skeleton.getEdgeAttack(e));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * copy sharing the same skeleton
+	 */
+	public BitsetCompletion copy() {
+		BitsetCompletion result = new BitsetCompletion(this.skeleton);
+		System.arraycopy(this.bits, 0, result.bits, 0, this.bits.length);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(this == other) {
+			return true;
+		}
+		if(!(other instanceof BitsetCompletion)) {
+			return false;
+		}
+		BitsetCompletion o = (BitsetCompletion)other;
+		return this.skeleton == o.skeleton && Arrays.equals(this.bits, o.bits);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(this.bits);
+	}
+
+	public String toString() {
+		StringBuffer result = new StringBuffer();
+		for(int bit = 0; bit<this.skeleton.getNbBits(); bit++) {
+			result.append(this.get(bit) ? '1' : '0');
+		}
+		return result.toString();
+	}
+}
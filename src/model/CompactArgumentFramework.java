@@ -0,0 +1,234 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Frozen compressed (CSR style) representation of an Argument Framework.
+ * Arguments are given dense integer ids from 0 to n-1
+ * For each argument id, attackers (resp. attacked arguments) are stored contiguously
+ * in one int[] and delimited by an int[] of offsets:
+ * attackers of i are attackers[attackersOffsets[i]] ... attackers[attackersOffsets[i+1]-1]
+ * This is meant to be used in hot loops (solvers) where no boxing must happen.
+ * It is never modified once built. Any change to the AF requires a new one
+ * (see ArgumentFramework.getCompact())
+ */
+public class CompactArgumentFramework {
+
+	// id -> argument
+	protected Argument[] arguments;
+	// argument -> id
+	protected Map<Argument, Integer> ids;
+	// attackers in CSR format
+	protected int[] attackersOffsets;
+	protected int[] attackers;
+	// attacked arguments in CSR format
+	protected int[] attackedOffsets;
+	protected int[] attacked;
+
+	/**
+	 * builds the compact representation of af
+	 * ids are given in the iteration order of af.getAllArguments()
+	 * @param af
+	 */
+	public CompactArgumentFramework(ArgumentFramework af) {
+		Set<Argument> args = af.getAllArguments();
+		int n = args.size();
+		this.arguments = new Argument[n];
+		this.ids = new HashMap<Argument, Integer>(2*n);
+		int id = 0;
+		for(Argument arg : args) {
+			this.arguments[id] = arg;
+			this.ids.put(arg, Integer.valueOf(id));
+			id++;
+		}
+
+		this.attackersOffsets = new int[n+1];
+		this.attackedOffsets = new int[n+1];
+		for(int i = 0; i<n; i++) {
+			this.attackersOffsets[i+1] = this.attackersOffsets[i] + af.getNumberOfAttackingArgs(arguments[i]);
+			this.attackedOffsets[i+1] = this.attackedOffsets[i] + af.getNumberOfAttackedArgs(arguments[i]);
+		}
+
+		this.attackers = new int[this.attackersOffsets[n]];
+		this.attacked = new int[this.attackedOffsets[n]];
+		for(int i = 0; i<n; i++) {
+			int k = this.attackersOffsets[i];
+			for(Argument attacker : af.getAttackingArguments(arguments[i])) {
+				this.attackers[k] = this.ids.get(attacker).intValue();
+				k++;
+			}
+			k = this.attackedOffsets[i];
+			for(Argument other : af.getAttackedArguments(arguments[i])) {
+				this.attacked[k] = this.ids.get(other).intValue();
+				k++;
+			}
+		}
+	}
+
+	protected CompactArgumentFramework() {
+	}
+
+	/**
+	 * returns the sub framework induced by the arguments ids[0..size-1]
+	 * (argument ids[i] gets id i, only the attacks between these arguments are kept)
+	 * @param ids
+	 * @param size
+	 * @return
+	 */
+	public CompactArgumentFramework getRestriction(int[] ids, int size) {
+		CompactArgumentFramework result = new CompactArgumentFramework();
+		result.arguments = new Argument[size];
+		result.ids = new HashMap<Argument, Integer>(2*size);
+		// new id + 1 of each argument of this framework, 0 if not kept
+		int[] newIds = new int[this.arguments.length];
+		for(int i = 0; i<size; i++) {
+			result.arguments[i] = this.arguments[ids[i]];
+			result.ids.put(result.arguments[i], Integer.valueOf(i));
+			newIds[ids[i]] = i + 1;
+		}
+		result.attackersOffsets = new int[size+1];
+		result.attackedOffsets = new int[size+1];
+		for(int i = 0; i<size; i++) {
+			int nbAttackers = 0;
+			for(int k = this.getAttackersStart(ids[i]); k<this.getAttackersEnd(ids[i]); k++) {
+				if(newIds[this.attackers[k]] != 0) {
+					nbAttackers++;
+				}
+			}
+			int nbAttacked = 0;
+			for(int k = this.getAttackedStart(ids[i]); k<this.getAttackedEnd(ids[i]); k++) {
+				if(newIds[this.attacked[k]] != 0) {
+					nbAttacked++;
+				}
+			}
+			result.attackersOffsets[i+1] = result.attackersOffsets[i] + nbAttackers;
+			result.attackedOffsets[i+1] = result.attackedOffsets[i] + nbAttacked;
+		}
+		result.attackers = new int[result.attackersOffsets[size]];
+		result.attacked = new int[result.attackedOffsets[size]];
+		for(int i = 0; i<size; i++) {
+			int j = result.attackersOffsets[i];
+			for(int k = this.getAttackersStart(ids[i]); k<this.getAttackersEnd(ids[i]); k++) {
+				if(newIds[this.attackers[k]] != 0) {
+					result.attackers[j++] = newIds[this.attackers[k]] - 1;
+				}
+			}
+			j = result.attackedOffsets[i];
+			for(int k = this.getAttackedStart(ids[i]); k<this.getAttackedEnd(ids[i]); k++) {
+				if(newIds[this.attacked[k]] != 0) {
+					result.attacked[j++] = newIds[this.attacked[k]] - 1;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * returns the number of arguments
+	 */
+	public int getNbArguments() {
+		return this.arguments.length;
+	}
+
+	/**
+	 * returns the number of attacks
+	 */
+	public int getNbAttacks() {
+		return this.attackers.length;
+	}
+
+	/**
+	 * returns the id of an argument, -1 if the argument is not in the AF
+	 * @param a
+	 * @return
+	 */
+	public int getId(Argument a) {
+		Integer id = this.ids.get(a);
+		if(id == null) {
+			return -1;
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * returns the argument with the given id
+	 * @param id
+	 * @return
+	 */
+	public Argument getArgument(int id) {
+		return this.arguments[id];
+	}
+
+	/**
+	 * first position of the attackers of argument id (see getAttacker)
+	 */
+	public int getAttackersStart(int id) {
+		return this.attackersOffsets[id];
+	}
+
+	/**
+	 * position following the last attacker of argument id (see getAttacker)
+	 */
+	public int getAttackersEnd(int id) {
+		return this.attackersOffsets[id+1];
+	}
+
+	/**
+	 * returns the id of the attacker stored at position k
+	 * with getAttackersStart(id) <= k < getAttackersEnd(id)
+	 */
+	public int getAttacker(int k) {
+		return this.attackers[k];
+	}
+
+	/**
+	 * returns the number of arguments attacking argument id
+	 */
+	public int getNbAttackers(int id) {
+		return this.attackersOffsets[id+1] - this.attackersOffsets[id];
+	}
+
+	/**
+	 * first position of the arguments attacked by argument id (see getAttacked)
+	 */
+	public int getAttackedStart(int id) {
+		return this.attackedOffsets[id];
+	}
+
+	/**
+	 * position following the last argument attacked by argument id (see getAttacked)
+	 */
+	public int getAttackedEnd(int id) {
+		return this.attackedOffsets[id+1];
+	}
+
+	/**
+	 * returns the id of the attacked argument stored at position k
+	 * with getAttackedStart(id) <= k < getAttackedEnd(id)
+	 */
+	public int getAttacked(int k) {
+		return this.attacked[k];
+	}
+
+	/**
+	 * returns the number of arguments attacked by argument id
+	 */
+	public int getNbAttacked(int id) {
+		return this.attackedOffsets[id+1] - this.attackedOffsets[id];
+	}
+
+	/**
+	 * returns true if argument from attacks argument to
+	 * linear in the number of arguments attacked by from
+	 */
+	public boolean isAttack(int from, int to) {
+		for(int k = this.attackedOffsets[from]; k < this.attackedOffsets[from+1]; k++) {
+			if(this.attacked[k] == to) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
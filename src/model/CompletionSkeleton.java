@@ -0,0 +1,303 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable skeleton shared by all the completions of a CAF (see BitsetCompletion)
+ * It contains the fixed and uncertain arguments (no control part) with dense ids:
+ * fixed arguments first (0 ... nbFixed-1), then uncertain arguments
+ * and all the attacks that can appear in a completion, as edges (from id, to id)
+ * Each uncertain element of the CAF is given a bit:
+ * - one bit per uncertain argument (present or not)
+ * - one bit per uncertain attack (present or not)
+ * - two bits per undirected attack (direction from->to and direction to->from)
+ * an edge exists in a completion if its bit is set (no bit for fixed attacks)
+ * and if both its arguments are present.
+ * Built once per CAF (see ControlAF.getCompletionSkeleton())
+ */
+public class CompletionSkeleton {
+
+	// no bit for the edges of fixed attacks
+	public static final int NO_BIT = -1;
+
+	// id -> argument
+	protected CArgument[] arguments;
+	// argument -> id
+	protected Map<Argument, Integer> ids;
+	protected int nbFixed;
+
+	// uncertain elements (in bit order)
+	protected CAttack[] uncertainAttacks;
+	protected CAttack[] undirectedAttacks;
+	// ids of the arguments of uncertain and undirected attacks (-1 if not in the skeleton)
+	protected int[] uncertainAttackEnds;
+	protected int[] undirectedAttackEnds;
+	protected int uncertainAttackBase;
+	protected int undirectedBase;
+	protected int nbBits;
+
+	// edges
+	protected int[] edgeFrom;
+	protected int[] edgeTo;
+	protected int[] edgeBit;
+	// the attack stored for each edge (reverse direction is a new attack for undirected attacks)
+	protected Attack[] edgeAttack;
+	// incoming edges for each argument in CSR format
+	protected int[] attackerOffsets;
+	protected int[] attackerEdges;
+
+	public CompletionSkeleton(ControlAF CAF) {
+		Set<CArgument> fixed = CAF.getArgumentsByType(CArgument.Type.FIXED);
+		Set<CArgument> uncertain = CAF.getArgumentsByType(CArgument.Type.UNCERTAIN);
+		this.nbFixed = fixed.size();
+		int n = fixed.size() + uncertain.size();
+		this.arguments = new CArgument[n];
+		this.ids = new HashMap<Argument, Integer>(2*n);
+		int id = 0;
+		for(CArgument arg : fixed) {
+			this.arguments[id] = arg;
+			this.ids.put(arg, Integer.valueOf(id));
+			id++;
+		}
+		for(CArgument arg : uncertain) {
+			this.arguments[id] = arg;
+			this.ids.put(arg, Integer.valueOf(id));
+			id++;
+		}
+
+		Set<CAttack> uatts = CAF.getAttacksByType(CAttack.Type.UNCERTAIN);
+		Set<CAttack> udatts = CAF.getAttacksByType(CAttack.Type.UNDIRECTED);
+		this.uncertainAttacks = uatts.toArray(new CAttack[0]);
+		this.undirectedAttacks = udatts.toArray(new CAttack[0]);
+		this.uncertainAttackBase = uncertain.size();
+		this.undirectedBase = this.uncertainAttackBase + this.uncertainAttacks.length;
+		this.nbBits = this.undirectedBase + 2*this.undirectedAttacks.length;
+		this.uncertainAttackEnds = this.getEnds(this.uncertainAttacks);
+		this.undirectedAttackEnds = this.getEnds(this.undirectedAttacks);
+
+		// edges: fixed attacks, uncertain attacks, both directions of undirected attacks
+		List<int[]> edges = new ArrayList<int[]>();
+		List<Attack> attacks = new ArrayList<Attack>();
+		for(CAttack att : CAF.getAttacksByType(CAttack.Type.CERTAIN)) {
+			this.addEdge(edges, attacks, att, NO_BIT);
+		}
+		for(int i = 0; i<this.uncertainAttacks.length; i++) {
+			this.addEdge(edges, attacks, this.uncertainAttacks[i], this.uncertainAttackBase + i);
+		}
+		for(int i = 0; i<this.undirectedAttacks.length; i++) {
+			CAttack att = this.undirectedAttacks[i];
+			CAttack reverse = new CAttack(att.getTo(), att.getFrom(), CAttack.Type.UNDIRECTED);
+			this.addEdge(edges, attacks, att, this.undirectedBase + 2*i);
+			this.addEdge(edges, attacks, reverse, this.undirectedBase + 2*i + 1);
+		}
+
+		int m = edges.size();
+		this.edgeFrom = new int[m];
+		this.edgeTo = new int[m];
+		this.edgeBit = new int[m];
+		this.edgeAttack = attacks.toArray(new Attack[0]);
+		this.attackerOffsets = new int[n+1];
+		for(int e = 0; e<m; e++) {
+			int[] edge = edges.get(e);
+			this.edgeFrom[e] = edge[0];
+			this.edgeTo[e] = edge[1];
+			this.edgeBit[e] = edge[2];
+			this.attackerOffsets[edge[1]+1]++;
+		}
+		for(int i = 0; i<n; i++) {
+			this.attackerOffsets[i+1] += this.attackerOffsets[i];
+		}
+		this.attackerEdges = new int[m];
+		int[] next = new int[n];
+		for(int e = 0; e<m; e++) {
+			int to = this.edgeTo[e];
+			this.attackerEdges[this.attackerOffsets[to] + next[to]] = e;
+			next[to]++;
+		}
+	}
+
+	private int[] getEnds(CAttack[] attacks) {
+		int[] result = new int[2*attacks.length];
+		for(int i = 0; i<attacks.length; i++) {
+			result[2*i] = this.getId(attacks[i].getFrom());
+			result[2*i+1] = this.getId(attacks[i].getTo());
+		}
+		return result;
+	}
+
+	/**
+	 * an attack with an argument outside the skeleton (control part) is ignored
+	 */
+	private void addEdge(List<int[]> edges, List<Attack> attacks, Attack att, int bit) {
+		int from = this.getId(att.getFrom());
+		int to = this.getId(att.getTo());
+		if(from < 0 || to < 0) {
+			return;
+		}
+		edges.add(new int[] {from, to, bit});
+		attacks.add(att);
+	}
+
+	/**
+	 * returns the number of arguments (fixed and uncertain)
+	 */
+	public int getNbArguments() {
+		return this.arguments.length;
+	}
+
+	public int getNbFixedArguments() {
+		return this.nbFixed;
+	}
+
+	public int getNbUncertainArguments() {
+		return this.arguments.length - this.nbFixed;
+	}
+
+	public int getNbUncertainAttacks() {
+		return this.uncertainAttacks.length;
+	}
+
+	public int getNbUndirectedAttacks() {
+		return this.undirectedAttacks.length;
+	}
+
+	/**
+	 * total number of bits of a completion
+	 */
+	public int getNbBits() {
+		return this.nbBits;
+	}
+
+	/**
+	 * returns the id of an argument, -1 if not in the skeleton (control argument)
+	 */
+	public int getId(Argument a) {
+		Integer id = this.ids.get(a);
+		if(id == null) {
+			return -1;
+		}
+		return id.intValue();
+	}
+
+	public CArgument getArgument(int id) {
+		return this.arguments[id];
+	}
+
+	public boolean isFixed(int id) {
+		return id < this.nbFixed;
+	}
+
+	/**
+	 * bit of the i-th uncertain argument
+	 * the i-th uncertain argument has id getNbFixedArguments() + i
+	 */
+	public int getUncertainArgumentBit(int i) {
+		return i;
+	}
+
+	public CArgument getUncertainArgument(int i) {
+		return this.arguments[this.nbFixed + i];
+	}
+
+	/**
+	 * bit of the i-th uncertain attack
+	 */
+	public int getUncertainAttackBit(int i) {
+		return this.uncertainAttackBase + i;
+	}
+
+	public CAttack getUncertainAttack(int i) {
+		return this.uncertainAttacks[i];
+	}
+
+	/**
+	 * id of the origin of the i-th uncertain attack (-1 if not in the skeleton)
+	 */
+	public int getUncertainAttackFrom(int i) {
+		return this.uncertainAttackEnds[2*i];
+	}
+
+	/**
+	 * id of the destination of the i-th uncertain attack (-1 if not in the skeleton)
+	 */
+	public int getUncertainAttackTo(int i) {
+		return this.uncertainAttackEnds[2*i+1];
+	}
+
+	/**
+	 * bit of the direction from -> to of the i-th undirected attack
+	 * the direction to -> from is the following bit
+	 */
+	public int getUndirectedAttackBit(int i) {
+		return this.undirectedBase + 2*i;
+	}
+
+	public CAttack getUndirectedAttack(int i) {
+		return this.undirectedAttacks[i];
+	}
+
+	/**
+	 * id of the origin of the i-th undirected attack (-1 if not in the skeleton)
+	 */
+	public int getUndirectedAttackFrom(int i) {
+		return this.undirectedAttackEnds[2*i];
+	}
+
+	/**
+	 * id of the destination of the i-th undirected attack (-1 if not in the skeleton)
+	 */
+	public int getUndirectedAttackTo(int i) {
+		return this.undirectedAttackEnds[2*i+1];
+	}
+
+	/**
+	 * returns the number of edges (all attacks that may appear in a completion)
+	 */
+	public int getNbEdges() {
+		return this.edgeFrom.length;
+	}
+
+	public int getEdgeFrom(int e) {
+		return this.edgeFrom[e];
+	}
+
+	public int getEdgeTo(int e) {
+		return this.edgeTo[e];
+	}
+
+	/**
+	 * bit conditioning the edge, NO_BIT for fixed attacks
+	 */
+	public int getEdgeBit(int e) {
+		return this.edgeBit[e];
+	}
+
+	public Attack getEdgeAttack(int e) {
+		return this.edgeAttack[e];
+	}
+
+	/**
+	 * first position of the incoming edges of argument id (see getAttackerEdge)
+	 */
+	public int getAttackerEdgesStart(int id) {
+		return this.attackerOffsets[id];
+	}
+
+	/**
+	 * position following the last incoming edge of argument id
+	 */
+	public int getAttackerEdgesEnd(int id) {
+		return this.attackerOffsets[id+1];
+	}
+
+	/**
+	 * returns the edge stored at position k
+	 */
+	public int getAttackerEdge(int k) {
+		return this.attackerEdges[k];
+	}
+}
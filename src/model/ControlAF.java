@@ -18,6 +18,24 @@ public class ControlAF {
 	protected Map<CArgument.Type,Set<CArgument>> arguments;
 	protected Map<CAttack.Type,Set<CAttack>> attacks;
 	
+	// index of the arguments by name (all types)
+	// maintained by addArgument to get O(1) lookups
+	protected Map<String, CArgument> argumentsByName;
+	
+	// dense ids of the arguments (by name) and hashed index of the attacks
+	// key is (fromId,toId), value is a bit mask of the attack types (see typeMask)
+	// UNDIRECTED attacks are stored in both directions
+	protected Map<String, Integer> argumentIds;
+	protected Map<Long, Integer> attackIndex;
+	
+	// for each argument, the arguments attacking it through a CONTROL attack
+	// built once on demand (see getControlAdjacency) and dropped if the CAF changes
+	protected Map<Argument, List<Argument>> controlAttackers;
+	
+	// skeleton shared by all bitset completions of the CAF
+	// built once on demand (see getCompletionSkeleton) and dropped if the CAF changes
+	protected CompletionSkeleton skeleton;
+	
 	// structure to store the set of arguments to protect
 	protected Set<CArgument> target;
 	
@@ -34,6 +52,10 @@ public class ControlAF {
 		arguments.put(CArgument.Type.UNCERTAIN, uncertain);
 		arguments.put(CArgument.Type.CONTROL, control);
 		
+		argumentsByName = new HashMap<String, CArgument>();
+		argumentIds = new HashMap<String, Integer>();
+		attackIndex = new HashMap<Long, Integer>();
+		
 		attacks = new HashMap<CAttack.Type,Set<CAttack>>();
 		Set<CAttack> fixedA = new HashSet<CAttack>();
 		Set<CAttack> uncertainA = new HashSet<CAttack>();
@@ -56,6 +78,10 @@ public class ControlAF {
 		CArgument.Type t = arg.getType();
 		Set<CArgument> args = arguments.get(t);
 		args.add(arg);
+		argumentsByName.put(arg.getName(), arg);
+		this.getOrCreateArgumentId(arg.getName());
+		this.controlAttackers = null;
+		this.skeleton = null;
 	}
 	
 	/**
@@ -66,6 +92,81 @@ public class ControlAF {
 		CAttack.Type t = att.getType();
 		Set<CAttack> atts = attacks.get(t);
 		atts.add(att);
+		int from = this.getOrCreateArgumentId(att.getFrom().getName());
+		int to = this.getOrCreateArgumentId(att.getTo().getName());
+		this.indexAttack(from, to, t);
+		if(t == CAttack.Type.UNDIRECTED) {
+			this.indexAttack(to, from, t);
+		}
+		this.controlAttackers = null;
+		this.skeleton = null;
+	}
+	
+	/**
+	 * returns the id of an argument name, creating it if needed
+	 * ids are given in the order arguments are added: 0, 1, 2...
+	 */
+	protected int getOrCreateArgumentId(String name) {
+		Integer id = this.argumentIds.get(name);
+		if(id == null) {
+			id = Integer.valueOf(this.argumentIds.size());
+			this.argumentIds.put(name, id);
+		}
+		return id.intValue();
+	}
+	
+	/**
+	 * returns the dense id of an argument of the CAF (by name)
+	 * -1 if the argument is unknown
+	 * @param arg
+	 * @return
+	 */
+	public int getArgumentId(Argument arg) {
+		Integer id = this.argumentIds.get(arg.getName());
+		if(id == null) {
+			return -1;
+		}
+		return id.intValue();
+	}
+	
+	/**
+	 * key of the attack (from,to) in the attack index
+	 */
+	protected static Long attackKey(int from, int to) {
+		return Long.valueOf(((long)from << 32) | (to & 0xffffffffL));
+	}
+	
+	/**
+	 * bit of an attack type in the attack index
+	 */
+	protected static int typeMask(CAttack.Type type) {
+		return 1 << type.ordinal();
+	}
+	
+	private void indexAttack(int from, int to, CAttack.Type type) {
+		Long key = attackKey(from, to);
+		Integer mask = this.attackIndex.get(key);
+		int value = typeMask(type);
+		if(mask != null) {
+			value = value | mask.intValue();
+		}
+		this.attackIndex.put(key, Integer.valueOf(value));
+	}
+	
+	/**
+	 * returns the types mask of the attack (from,to) (0 if no attack)
+	 */
+	private int getAttackMask(Attack att) {
+		Integer from = this.argumentIds.get(att.getFrom().getName());
+		Integer to = this.argumentIds.get(att.getTo().getName());
+		if(from == null || to == null) {
+			return 0;
+		}
+		Integer mask = this.attackIndex.get(attackKey(from.intValue(), to.intValue()));
+		if(mask == null) {
+			return 0;
+		}
+		return mask.intValue();
 	}
 	
 	/**
@@ -75,18 +176,10 @@ public class ControlAF {
 	 * @param arg
 	 */
 	public void addTarget(CArgument arg) {
-		Set<CArgument> fixedA = arguments.get(CArgument.Type.FIXED);
-		Iterator<CArgument> it = fixedA.iterator();
-		boolean present = false;
-		while(it.hasNext()) {
-			CArgument current = it.next();
-			if(current.getName().equals(arg.getName())) {
-				target.add(current);
-				present = true;
-				break;
-			}
-		}
-		if(!present) {
+		CArgument current = this.getArgumentByNameAndType(CArgument.Type.FIXED, arg.getName());
+		if(current != null) {
+			target.add(current);
+		} else {
 			throw new UnknownArgumentError("the argument " + arg.getName() + " is not present in the fixed part of the CAF");
 		}
 	}
@@ -116,13 +209,28 @@ public class ControlAF {
 		return this.target.size();
 	}
 
+	/**
+	 * returns the type of arg if arg is an argument of the CAF
+	 * null else
+	 * O(1) thanks to the name index (the argument itself must be the one stored in the CAF)
+	 * @param arg
+	 * @return
+	 */
+	public CArgument.Type getArgumentType(Argument arg) {
+		CArgument current = this.argumentsByName.get(arg.getName());
+		if(current == null || current != arg) {
+			return null;
+		}
+		return current.getType();
+	}
+
 	/**
 	 * true if arg is a fixed argument
 	 * @param arg
 	 * @return
 	 */
 	public boolean isFixedArgument(Argument arg) {
-		return this.getArgumentsByType(CArgument.Type.FIXED).contains(arg);
+		return this.getArgumentType(arg) == CArgument.Type.FIXED;
 	}
 
 	/**
@@ -131,7 +239,7 @@ public class ControlAF {
 	 * @return
 	 */
 	public boolean isUncertainArgument(Argument arg) {
-		return this.getArgumentsByType(CArgument.Type.UNCERTAIN).contains(arg);
+		return this.getArgumentType(arg) == CArgument.Type.UNCERTAIN;
 	}
 
 	/**
@@ -140,7 +248,7 @@ public class ControlAF {
 	 * @return
 	 */
 	public boolean isControlArgument(Argument arg) {
-		return this.getArgumentsByType(CArgument.Type.CONTROL).contains(arg);
+		return this.getArgumentType(arg) == CArgument.Type.CONTROL;
 	}
 
 	/**
@@ -150,7 +258,7 @@ public class ControlAF {
 	 * @return
 	 */
 	public boolean containsArgument(Argument arg) {
-		return isFixedArgument(arg) || isUncertainArgument(arg) || isControlArgument(arg);
+		return this.getArgumentType(arg) != null;
 	}
 	
 	/**
@@ -184,13 +292,9 @@ public class ControlAF {
 	 * @return
 	 */
 	public CArgument getArgumentByNameAndType(CArgument.Type type, String name) { 
-		Set<CArgument> args = this.getArgumentsByType(type);
-		Iterator<CArgument> iter = args.iterator();
-		while(iter.hasNext()) {
-			CArgument current = iter.next();
-			if(current.getName().equals(name)) {
-				return current;
-			}
+		CArgument current = this.argumentsByName.get(name);
+		if(current != null && current.getType() == type) {
+			return current;
 		}
 		return null;
 	}
@@ -201,23 +305,7 @@ public class ControlAF {
 	 * @return
 	 */
 	public CArgument getArgumentByName(String name) {
-		CArgument result = null;
-		// search in the fixed arguments
-		result = this.getArgumentByNameAndType(CArgument.Type.FIXED, name);
-		if(result != null) {
-			return result;
-		}
-		// search in the uncertain arguments
-		result = this.getArgumentByNameAndType(CArgument.Type.UNCERTAIN, name);
-		if(result != null) {
-			return result;
-		}
-		// search in the control arguments
-		result = this.getArgumentByNameAndType(CArgument.Type.CONTROL, name);
-		if(result != null) {
-			return result;
-		}
-		return null;
+		return this.argumentsByName.get(name);
 	}
 	
 	/**
@@ -236,35 +324,8 @@ public class ControlAF {
 	 * @return
 	 */
 	public boolean isAttack(Attack att, CAttack.Type type) {
-		Set<CAttack> attacks = this.getAttacksByType(type);
-		Argument from_att = att.getFrom();
-		Argument to_att = att.getTo();
-		Argument from_other = null;
-		Argument to_other = null;
-		
-		if(type != CAttack.Type.UNDIRECTED) {
-			for(Attack other : attacks) {
-				from_other = other.getFrom();
-				to_other = other.getTo();
-				if(from_att.getName().equals(from_other.getName()) && to_att.getName().equals(to_other.getName())) {
-					return true;
-				}
-			}
-		} else {
-			for(Attack other : attacks) {
-				from_other = other.getFrom();
-				to_other = other.getTo();
-				if(from_att.getName().equals(from_other.getName()) && to_att.getName().equals(to_other.getName())) {
-					return true;
-				}
-				// for undirected attack can be saved in the reverse side. Still it is a present attack 
-				if(from_att.getName().equals(to_other.getName()) && to_att.getName().equals(from_other.getName())) {
-					return true;
-				}
-			}
-		}
-		
-		return false;
+		// undirected attacks are indexed in both directions
+		return (this.getAttackMask(att) & typeMask(type)) != 0;
 	}
 	
 	/**
@@ -311,7 +372,7 @@ public class ControlAF {
 	 * @return
 	 */
 	public boolean containsAttack(Attack att) {
-		return isFixedAttack(att) || isUncertainAttack(att) || isUndirectedAttack(att) || isControlAttack(att);
+		return this.getAttackMask(att) != 0;
 	}
 
 	
@@ -334,6 +395,40 @@ public class ControlAF {
 	}
 	
 		
+	/**
+	 * returns the skeleton shared by all the bitset completions of the CAF
+	 * built once and kept as long as the CAF is not modified
+	 * @return
+	 */
+	public CompletionSkeleton getCompletionSkeleton() {
+		if(this.skeleton == null) {
+			this.skeleton = new CompletionSkeleton(this);
+		}
+		return this.skeleton;
+	}
+	
+	/**
+	 * returns for each argument the list of arguments attacking it via a control attack
+	 * (regardless of any completion)
+	 * built once and kept as long as the CAF is not modified
+	 * @return
+	 */
+	protected Map<Argument, List<Argument>> getControlAdjacency() {
+		if(this.controlAttackers == null) {
+			Map<Argument, List<Argument>> adjacency = new HashMap<Argument, List<Argument>>();
+			for(CAttack current : this.getAttacksByType(CAttack.Type.CONTROL)) {
+				List<Argument> attackers = adjacency.get(current.getTo());
+				if(attackers == null) {
+					attackers = new ArrayList<Argument>();
+					adjacency.put(current.getTo(), attackers);
+				}
+				attackers.add(current.getFrom());
+			}
+			this.controlAttackers = adjacency;
+		}
+		return this.controlAttackers;
+	}
+	
 	/**
 	 * According to a given completion
 	 * for a given argument (any type), returns the set of arguments attacking this argument via a control attack
@@ -345,23 +440,32 @@ public class ControlAF {
 	 */
 	public Set<Argument> getControlAttackers(Argument a, ArgumentFramework completion) {
 		Set<Argument> result = new HashSet<Argument>();
-		Set<CAttack> attacks = this.getAttacksByType(CAttack.Type.CONTROL);
-		
-		for(CAttack current : attacks) {
-			CArgument from = this.getArgumentByName(current.getFrom().getName());
-			if(current.getTo().equals(a)) {
-				if(completion.containsArgument(from)|| from.getType() == CArgument.Type.CONTROL) {
-					result.add(current.getFrom());
-				}
+		this.addControlAttackers(a, completion, result);
+		return result;
+	}
+	
+	/**
+	 * adds to result the control attackers of a according to the completion
+	 * (see getControlAttackers)
+	 */
+	private void addControlAttackers(Argument a, ArgumentFramework completion, Collection<Argument> result) {
+		List<Argument> attackers = this.getControlAdjacency().get(a);
+		if(attackers == null) {
+			return;
+		}
+		for(Argument from : attackers) {
+			CArgument cfrom = this.getArgumentByName(from.getName());
+			if(completion.containsArgument(cfrom) || cfrom.getType() == CArgument.Type.CONTROL) {
+				result.add(from);
 			}
 		}
-		return result;
 	}
 	
 	/**
 	 * For a given root completion of the CAF and an argument belonging to the completion
 	 * (therefore not a control argument)
 	 * returns all the attackers of that argument (including the control arguments)
+	 * The completion is not modified: the result is a new set
 	 * @param completion
 	 * @param a
 	 * @return
@@ -373,13 +477,36 @@ public class ControlAF {
 			throw new UnknownArgumentError("the argument " + a.getName() + " does not belong to the completion"); 
 		}
 		// attackers from the root completion
+		Set<Argument> result = new HashSet<Argument>(completion.getAttackingArguments(a));
+		// attackers from AC (since a does not belong to AC)
+		this.addControlAttackers(a, completion, result);
+		return result;
+	}
+	
+	/**
+	 * Same as getArgumentAttackers but returns a read only list
+	 * cheaper to build when the attackers only need to be scoped
+	 * Neither the completion nor the CAF are modified, so a completion can be shared
+	 * between several solvers
+	 * @param completion
+	 * @param a
+	 * @return
+	 */
+	public List<Argument> getArgumentAttackersView(ArgumentFramework completion, Argument a) {
 		Set<Argument> internal = completion.getAttackingArguments(a);
+		if(internal == null) {
+			throw new UnknownArgumentError("the argument " + a.getName() + " does not belong to the completion"); 
+		}
+		List<Argument> control = this.getControlAdjacency().get(a);
+		int size = internal.size();
+		if(control != null) {
+			size = size + control.size();
+		}
+		List<Argument> result = new ArrayList<Argument>(size);
+		result.addAll(internal);
 		// attackers from AC (since a does not belong to AC)
-		Set<Argument> control = this.getControlAttackers(a, completion);
-		
-		internal.addAll(control);
-		
-		return internal;
+		this.addControlAttackers(a, completion, result);
+		return Collections.unmodifiableList(result);
 	}
 	
 	/**
@@ -428,6 +555,191 @@ public class ControlAF {
 		return result;
 	}
 	
+	/**
+	 * returns the arguments that may change the answer of the control problem:
+	 * the arguments with a path to the target or to an odd cycle, in the graph of all the
+	 * attacks that may exist (certain, uncertain, control and undirected in both directions)
+	 * The other arguments never attack the relevant ones and contain no odd cycle:
+	 * whatever the completion and the control configuration, they have at least one stable
+	 * extension for each stable extension of the relevant part (Dung).
+	 * Removing them changes neither the credulous nor the skeptical controllability
+	 * (the removed control arguments are off).
+	 * @return
+	 */
+	public Set<CArgument> getRelevantArguments() {
+		// graph of all the possible attacks
+		ArgumentFramework possible = new ArgumentFramework();
+		for(CArgument a : this.getAllArguments()) {
+			possible.addArgument(a);
+		}
+		for(Set<CAttack> atts : this.attacks.values()) {
+			for(CAttack att : atts) {
+				CArgument from = this.getArgumentByName(att.getFrom().getName());
+				CArgument to = this.getArgumentByName(att.getTo().getName());
+				possible.addAttack(new Attack(from, to));
+				if(att.getType() == CAttack.Type.UNDIRECTED) {
+					possible.addAttack(new Attack(to, from));
+				}
+			}
+		}
+		CompactArgumentFramework graph = possible.getCompact();
+		int n = graph.getNbArguments();
+		// arguments with a path to the target
+		boolean[] relevant = new boolean[n];
+		int[] queue = new int[n];
+		int tail = 0;
+		for(CArgument t : this.getTarget()) {
+			tail = this.reach(graph.getId(this.getArgumentByName(t.getName())), relevant, queue, tail);
+		}
+		this.closeUpstream(graph, relevant, queue, 0, tail);
+		// odd cycles of the other arguments
+		int[] others = new int[n];
+		int size = 0;
+		for(int x = 0; x<n; x++) {
+			if(!relevant[x]) {
+				others[size++] = x;
+			}
+		}
+		int head = tail;
+		CompactArgumentFramework rest = graph.getRestriction(others, size);
+		StronglyConnectedComponents components = new StronglyConnectedComponents(rest);
+		for(int c = 0; c<components.getNbComponents(); c++) {
+			if(hasOddCycle(components, c)) {
+				for(int k = components.getMembersStart(c); k<components.getMembersEnd(c); k++) {
+					tail = this.reach(others[components.getMember(k)], relevant, queue, tail);
+				}
+			}
+		}
+		this.closeUpstream(graph, relevant, queue, head, tail);
+		Set<CArgument> result = new HashSet<CArgument>();
+		for(int x = 0; x<n; x++) {
+			if(relevant[x]) {
+				result.add((CArgument)graph.getArgument(x));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * returns a smaller CAF with the same answers to the control problem:
+	 * only the relevant arguments (see getRelevantArguments), the attacks between them and the target
+	 * The stable extensions of its completions do not contain the removed arguments.
+	 * @return
+	 */
+	public ControlAF getRelevantPart() {
+		ControlAF result = this.newEmpty();
+		this.copyRelevantPart(result);
+		return result;
+	}
+
+	/**
+	 * returns a copy of the CAF: same arguments, attacks and target
+	 * (a PCAF keeps its probabilities)
+	 * @return
+	 */
+	public ControlAF copy() {
+		ControlAF result = this.newEmpty();
+		for(CArgument a : this.getAllArguments()) {
+			this.copyArgument(result, a);
+		}
+		for(Set<CAttack> atts : this.attacks.values()) {
+			for(CAttack att : atts) {
+				this.copyAttack(result, att);
+			}
+		}
+		result.setTarget(new HashSet<CArgument>(this.getTarget()));
+		return result;
+	}
+
+	/**
+	 * empty CAF of the same kind (used by getRelevantPart and copy)
+	 */
+	protected ControlAF newEmpty() {
+		return new ControlAF();
+	}
+
+	protected void copyArgument(ControlAF result, CArgument arg) {
+		result.addArgument(arg);
+	}
+
+	protected void copyAttack(ControlAF result, CAttack att) {
+		result.addAttack(att);
+	}
+
+	protected void copyRelevantPart(ControlAF result) {
+		Set<CArgument> relevant = this.getRelevantArguments();
+		for(CArgument a : relevant) {
+			this.copyArgument(result, a);
+		}
+		for(Set<CAttack> atts : this.attacks.values()) {
+			for(CAttack att : atts) {
+				CArgument from = this.getArgumentByName(att.getFrom().getName());
+				CArgument to = this.getArgumentByName(att.getTo().getName());
+				if(relevant.contains(from) && relevant.contains(to)) {
+					this.copyAttack(result, att);
+				}
+			}
+		}
+		result.setTarget(this.getTarget());
+	}
+
+	private int reach(int x, boolean[] relevant, int[] queue, int tail) {
+		if(x >= 0 && !relevant[x]) {
+			relevant[x] = true;
+			queue[tail++] = x;
+		}
+		return tail;
+	}
+
+	/**
+	 * adds to relevant the attackers (direct or not) of the arguments in queue[head..tail)
+	 */
+	private void closeUpstream(CompactArgumentFramework graph, boolean[] relevant, int[] queue, int head, int tail) {
+		while(head < tail) {
+			int x = queue[head++];
+			for(int k = graph.getAttackersStart(x); k<graph.getAttackersEnd(x); k++) {
+				tail = this.reach(graph.getAttacker(k), relevant, queue, tail);
+			}
+		}
+	}
+
+	/**
+	 * a strongly connected component contains an odd cycle iff it has a self attack
+	 * or its undirected graph is not bipartite
+	 */
+	private static boolean hasOddCycle(StronglyConnectedComponents components, int c) {
+		CompactArgumentFramework graph = components.getGraph();
+		int start = components.getMembersStart(c);
+		int root = components.getMember(start);
+		// colors: 0 not reached, 1 and 2
+		int[] color = new int[graph.getNbArguments()];
+		int[] queue = new int[components.getSize(c)];
+		int head = 0;
+		int tail = 0;
+		color[root] = 1;
+		queue[tail++] = root;
+		while(head < tail) {
+			int x = queue[head++];
+			for(int side = 0; side<2; side++) {
+				int begin = side == 0 ? graph.getAttackersStart(x) : graph.getAttackedStart(x);
+				int end = side == 0 ? graph.getAttackersEnd(x) : graph.getAttackedEnd(x);
+				for(int k = begin; k<end; k++) {
+					int y = side == 0 ? graph.getAttacker(k) : graph.getAttacked(k);
+					if(components.getComponent(y) != c) {
+						continue;
+					}
+					if(color[y] == 0) {
+						color[y] = 3 - color[x];
+						queue[tail++] = y;
+					} else if(color[y] == color[x]) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * print some indications about the CAF:
 	 * number of fixed arguments
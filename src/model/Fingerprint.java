@@ -0,0 +1,107 @@
+package model;
+
+/**
+ * Canonical 128 bits fingerprint of an Argument Framework
+ * Two AFs with the same arguments (by name) and the same attacks have the same fingerprint
+ * whatever the order in which they were built.
+ * Each argument and each attack is hashed on two independent 64 bits values:
+ * the names are hashed by two different functions (FNV-1a and a seeded multiplicative hash)
+ * and each half only uses its own hashes, so that a collision of one function does not
+ * give a collision of the other. The values are summed (order independent).
+ * Used to recognise completions already seen without storing nor comparing the graphs
+ */
+public class Fingerprint {
+
+	protected long high;
+	protected long low;
+
+	public Fingerprint(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * computes the fingerprint of an AF
+	 * linear in the number of arguments + attacks
+	 * @param af
+	 * @return
+	 */
+	public static Fingerprint of(ArgumentFramework af) {
+		long high = 0;
+		long low = 0;
+		for(Argument arg : af.getAllArguments()) {
+			long h = hash(arg.getName());
+			long g = hash2(arg.getName());
+			high += mix(h ^ 0x9E3779B97F4A7C15L);
+			low += mix(g + 0xC2B2AE3D27D4EB4FL);
+			for(Argument to : af.getAttackedArguments(arg)) {
+				high += mix(mix(h ^ 0x165667B19E3779F9L) + hash(to.getName()));
+				low += mix(mix(g + 0x27D4EB2F165667C5L) ^ hash2(to.getName()));
+			}
+		}
+		return new Fingerprint(high, low);
+	}
+
+	/**
+	 * 64 bits FNV-1a hash of a name
+	 */
+	private static long hash(String name) {
+		long h = 0xCBF29CE484222325L;
+		for(int i = 0; i<name.length(); i++) {
+			h ^= name.charAt(i);
+			h *= 0x100000001B3L;
+		}
+		return h;
+	}
+
+	/**
+	 * second 64 bits hash of a name, independent of hash:
+	 * multiplicative hash of the characters from another seed, with the splitmix64 finalizer
+	 */
+	private static long hash2(String name) {
+		long h = 0x2545F4914F6CDD1DL;
+		for(int i = 0; i<name.length(); i++) {
+			h = (h + name.charAt(i)) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		return mix(h ^ name.length());
+	}
+
+	/**
+	 * splitmix64 finalizer
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	public long getHigh() {
+		return this.high;
+	}
+
+	public long getLow() {
+		return this.low;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(this == other) {
+			return true;
+		}
+		if(!(other instanceof Fingerprint)) {
+			return false;
+		}
+		Fingerprint o = (Fingerprint)other;
+		return this.high == o.high && this.low == o.low;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int)(this.low ^ (this.low >>> 32));
+	}
+
+	public String toString() {
+		return String.format("%016x%016x", this.high, this.low);
+	}
+}
@@ -0,0 +1,206 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grounded labelling of a root completion together with the control arguments of the CAF
+ * An argument is IN (resp. OUT) if it is accepted (resp. rejected) in every stable extension
+ * of the completion, whatever the control configuration:
+ * - an argument of the completion is IN when all its attackers (completion and control attacks) are OUT
+ * - an argument (completion or control) is OUT when one of its attackers is IN
+ * Control arguments are never IN (they can always be off).
+ * The other arguments are UNDEC: only them need to be encoded by the solvers, the attackers
+ * that are OUT can be dropped from their constraints.
+ * Computed in linear time (counters of attackers not yet OUT, as for the grounded extension).
+ */
+public class GroundedLabelling {
+
+	public static final int UNDEC = 0;
+	public static final int IN = 1;
+	public static final int OUT = 2;
+
+	protected CompactArgumentFramework graph;
+	protected int n;
+	protected Map<Argument, Integer> controlIds;
+	// labels: ids of the completion (0..n-1) then control arguments (n..)
+	protected int[] labels;
+	protected int nbDecided;
+	protected boolean targetRejected;
+
+	// control attacks (ids) grouped by attacker
+	protected int[] controlOffsets;
+	protected int[] controlAttacked;
+	// attackers not OUT yet of the arguments of the completion
+	protected int[] remaining;
+
+	public GroundedLabelling(ControlAF CAF, ArgumentFramework completion) {
+		this.graph = completion.getCompact();
+		this.n = this.graph.getNbArguments();
+		Set<CArgument> controls = CAF.getArgumentsByType(CArgument.Type.CONTROL);
+		this.controlIds = new HashMap<Argument, Integer>(2*controls.size());
+		int id = this.n;
+		for(CArgument c : controls) {
+			this.controlIds.put(c, Integer.valueOf(id));
+			id++;
+		}
+		this.labels = new int[id];
+		this.loadControlAttacks(CAF, id);
+		this.propagate();
+		for(CArgument t : CAF.getTarget()) {
+			if(this.getLabel(t) == OUT) {
+				this.targetRejected = true;
+			}
+		}
+	}
+
+	/**
+	 * label of an argument of the completion or of a control argument
+	 * (UNDEC for the other arguments)
+	 */
+	public int getLabel(Argument a) {
+		int id = this.getId(a);
+		if(id < 0) {
+			return UNDEC;
+		}
+		return this.labels[id];
+	}
+
+	/**
+	 * label of the argument with compact id in the completion
+	 */
+	public int getLabel(int id) {
+		return this.labels[id];
+	}
+
+	public boolean isDecided(Argument a) {
+		return this.getLabel(a) != UNDEC;
+	}
+
+	/**
+	 * number of arguments IN or OUT (completion and control)
+	 */
+	public int getNbDecided() {
+		return this.nbDecided;
+	}
+
+	/**
+	 * true if an argument of the target is OUT: no control configuration controls the completion
+	 */
+	public boolean isTargetRejected() {
+		return this.targetRejected;
+	}
+
+	/**
+	 * id of an argument of the completion (compact id) or of a control argument, -1 otherwise
+	 */
+	protected int getId(Argument a) {
+		int id = this.graph.getId(a);
+		if(id >= 0) {
+			return id;
+		}
+		Integer control = this.controlIds.get(a);
+		if(control == null) {
+			return -1;
+		}
+		return control.intValue();
+	}
+
+	/**
+	 * control attacks whose attacker is in the completion or is a control argument
+	 */
+	protected void loadControlAttacks(ControlAF CAF, int size) {
+		Set<CAttack> control = CAF.getAttacksByType(CAttack.Type.CONTROL);
+		int[] from = new int[control.size()];
+		int[] to = new int[control.size()];
+		int m = 0;
+		for(CAttack att : control) {
+			from[m] = this.getId(att.getFrom());
+			to[m] = this.getId(att.getTo());
+			if(from[m] >= 0 && to[m] >= 0) {
+				m++;
+			}
+		}
+		this.controlOffsets = new int[size + 1];
+		for(int i = 0; i<m; i++) {
+			this.controlOffsets[from[i] + 1]++;
+		}
+		for(int v = 0; v<size; v++) {
+			this.controlOffsets[v+1] += this.controlOffsets[v];
+		}
+		this.controlAttacked = new int[m];
+		int[] next = Arrays.copyOf(this.controlOffsets, size);
+		// control attackers of the arguments of the completion (attackers of the completion added by propagate)
+		this.remaining = new int[this.n];
+		for(int i = 0; i<m; i++) {
+			this.controlAttacked[next[from[i]]] = to[i];
+			next[from[i]]++;
+			if(to[i] < this.n) {
+				this.remaining[to[i]]++;
+			}
+		}
+	}
+
+	protected void propagate() {
+		int[] queue = new int[this.labels.length];
+		int head = 0;
+		int tail = 0;
+		for(int id = 0; id<this.n; id++) {
+			this.remaining[id] += this.graph.getNbAttackers(id);
+			if(this.remaining[id] == 0) {
+				this.labels[id] = IN;
+				queue[tail++] = id;
+			}
+		}
+		while(head < tail) {
+			int id = queue[head++];
+			this.nbDecided++;
+			if(this.labels[id] == IN) {
+				// all the arguments it attacks are OUT
+				if(id < this.n) {
+					for(int k = this.graph.getAttackedStart(id); k<this.graph.getAttackedEnd(id); k++) {
+						tail = this.setOut(this.graph.getAttacked(k), queue, tail);
+					}
+				}
+				for(int k = this.controlOffsets[id]; k<this.controlOffsets[id+1]; k++) {
+					tail = this.setOut(this.controlAttacked[k], queue, tail);
+				}
+			} else {
+				// one attacker less for the arguments it attacks
+				if(id < this.n) {
+					for(int k = this.graph.getAttackedStart(id); k<this.graph.getAttackedEnd(id); k++) {
+						tail = this.release(this.graph.getAttacked(k), queue, tail);
+					}
+				}
+				for(int k = this.controlOffsets[id]; k<this.controlOffsets[id+1]; k++) {
+					tail = this.release(this.controlAttacked[k], queue, tail);
+				}
+			}
+		}
+	}
+
+	private int setOut(int id, int[] queue, int tail) {
+		if(this.labels[id] == UNDEC) {
+			this.labels[id] = OUT;
+			queue[tail++] = id;
+		}
+		return tail;
+	}
+
+	/**
+	 * an attacker of id is OUT: id is IN once all its attackers are OUT (control arguments never are)
+	 */
+	private int release(int id, int[] queue, int tail) {
+		if(id >= this.n) {
+			return tail;
+		}
+		this.remaining[id]--;
+		if(this.remaining[id] == 0 && this.labels[id] == UNDEC) {
+			this.labels[id] = IN;
+			queue[tail++] = id;
+		}
+		return tail;
+	}
+}
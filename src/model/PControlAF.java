@@ -116,6 +116,36 @@ public class PControlAF extends ControlAF {
 		return this.getUDattProba(att).getValue().doubleValue();
 	}
 	
+	/**
+	 * changes the probability of an uncertain argument of the PCAF
+	 */
+	public void setUargProba(CArgument a, double proba) {
+		if(!this.uargProba.containsKey(a)) {
+			throw new UnsupportedOperationException("not an uncertain argument of the PCAF");
+		}
+		this.uargProba.put(a, Double.valueOf(proba));
+	}
+
+	/**
+	 * changes the probability of an uncertain attack of the PCAF
+	 */
+	public void setUattProba(CAttack att, double proba) {
+		if(!this.uattProba.containsKey(att)) {
+			throw new UnsupportedOperationException("not an uncertain attack of the PCAF");
+		}
+		this.uattProba.put(att, Double.valueOf(proba));
+	}
+
+	/**
+	 * changes the probabilities of the directions of an undirected attack of the PCAF
+	 */
+	public void setUDattProba(CAttack att, double dirFromTo, double dirToFrom) {
+		if(!this.udattProba.containsKey(att)) {
+			throw new UnsupportedOperationException("not an undirected attack of the PCAF");
+		}
+		this.udattProba.put(att, new Pair<Double, Double>(Double.valueOf(dirFromTo), Double.valueOf(dirToFrom)));
+	}
+
 	/**
 	 * only for uncertain arguments. Else an error is thrown
 	 * the argument is added to the CAF with its probability 
@@ -167,8 +197,45 @@ public class PControlAF extends ControlAF {
 		Pair<Double, Double> pair = new Pair<Double, Double>(new Double(dirFromTo), new Double(dirToFrom));
 		this.udattProba.put(att, pair);
 	}
-	
-	
+
+	/**
+	 * copy of the PCAF with the same probabilities
+	 */
+	public PControlAF copy() {
+		return (PControlAF)super.copy();
+	}
+
+	/**
+	 * relevant part of the PCAF (see ControlAF.getRelevantPart) with the same probabilities
+	 */
+	public PControlAF getRelevantPart() {
+		return (PControlAF)super.getRelevantPart();
+	}
+
+	protected ControlAF newEmpty() {
+		return new PControlAF();
+	}
+
+	protected void copyArgument(ControlAF result, CArgument arg) {
+		PControlAF presult = (PControlAF)result;
+		if(arg.getType() == CArgument.Type.UNCERTAIN) {
+			presult.addArgument(arg, this.getUargProba(arg));
+		} else {
+			presult.addArgument(arg);
+		}
+	}
+
+	protected void copyAttack(ControlAF result, CAttack att) {
+		PControlAF presult = (PControlAF)result;
+		if(att.getType() == CAttack.Type.UNCERTAIN) {
+			presult.addAttack(att, this.getUattProba(att));
+		} else if(att.getType() == CAttack.Type.UNDIRECTED) {
+			presult.addAttack(att, this.getUDAttFromToProba(att), this.getUDAttToFromProba(att));
+		} else {
+			presult.addAttack(att);
+		}
+	}
+
 	/**
 	 * String representation of CAF according to apx file format
 	 */
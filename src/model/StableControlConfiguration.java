@@ -7,13 +7,19 @@ import java.util.TreeSet;
 /**
  * data structure to store a control configuration
  * consists of a set of control arguments
+ * Two control configurations are equal if they contain the same control arguments (by name)
+ * so they can be used as keys of hash maps
  */
 public class StableControlConfiguration {
 
 	protected SortedSet<CArgument> onControl;
 	
+	// cached hash code (0 when it must be computed again)
+	protected int hash;
+	
 	public StableControlConfiguration() {
 		this.onControl = new TreeSet<CArgument>();
+		this.hash = 0;
 	}
 	
 	/**
@@ -21,6 +27,7 @@ public class StableControlConfiguration {
 	 */
 	public void addOnControl(CArgument c) {
 		onControl.add(c);
+		this.hash = 0;
 	}
 		
 	/**
@@ -53,18 +60,39 @@ public class StableControlConfiguration {
 	 * @param other
 	 * @return
 	 */
-	public boolean equals(StableControlConfiguration other) {
-		if(other.isEmpty() && this.isEmpty()) {
+	@Override
+	public boolean equals(Object other) {
+		if(this == other) {
 			return true;
 		}
-		Set<CArgument> otherControl = other.getOnControl();
-		if(!otherControl.containsAll(this.getOnControl())) {
+		if(!(other instanceof StableControlConfiguration)) {
+			return false;
+		}
+		StableControlConfiguration o = (StableControlConfiguration)other;
+		if(this.hashCode() != o.hashCode()) {
 			return false;
 		}
-		if(!this.getOnControl().containsAll(otherControl)) {
+		Set<CArgument> otherControl = o.getOnControl();
+		if(otherControl.size() != this.onControl.size()) {
 			return false;
 		}
-		return true;
+		return this.onControl.containsAll(otherControl);
+	}
+	
+	/**
+	 * consistent with equals: computed on the (sorted) names of the control arguments
+	 * and cached until a new control argument is added
+	 */
+	@Override
+	public int hashCode() {
+		if(this.hash == 0) {
+			int h = 1;
+			for(CArgument arg : this.onControl) {
+				h = 31*h + arg.getName().hashCode();
+			}
+			this.hash = h;
+		}
+		return this.hash;
 	}
 	
 	/**
@@ -8,12 +8,17 @@ import java.util.TreeSet;
 /**
  * data structure to store a stable extension
  * consists of a set of accepted arguments
+ * Two stable extensions are equal if they accept the same arguments (by name)
  */
 public class StableExtension {
 	protected SortedSet<Argument> accepted;
 	
+	// cached hash code (0 when it must be computed again)
+	protected int hash;
+	
 	public StableExtension() {
 		this.accepted = new TreeSet<Argument>();
+		this.hash = 0;
 	}
 	
 	/**
@@ -21,6 +26,7 @@ public class StableExtension {
 	 */
 	public void addAccepted(Argument a) {
 		accepted.add(a);
+		this.hash = 0;
 	}
 		
 	/**
@@ -34,15 +40,39 @@ public class StableExtension {
 	 * return true if both are equal
 	 * it is enough to check that the accepted sets are the same
 	 */
-	public boolean equals(StableExtension other) {
-		Set<Argument> otherAccepted = other.getAccepted();
-		if(!otherAccepted.containsAll(this.accepted)) {
+	@Override
+	public boolean equals(Object other) {
+		if(this == other) {
+			return true;
+		}
+		if(!(other instanceof StableExtension)) {
 			return false;
 		}
-		if(!this.accepted.containsAll(otherAccepted)) {
+		StableExtension o = (StableExtension)other;
+		if(this.hashCode() != o.hashCode()) {
 			return false;
 		}
-		return true;
+		Set<Argument> otherAccepted = o.getAccepted();
+		if(otherAccepted.size() != this.accepted.size()) {
+			return false;
+		}
+		return this.accepted.containsAll(otherAccepted);
+	}
+	
+	/**
+	 * consistent with equals: computed on the (sorted) names of the accepted arguments
+	 * and cached until a new argument is accepted
+	 */
+	@Override
+	public int hashCode() {
+		if(this.hash == 0) {
+			int h = 1;
+			for(Argument arg : this.accepted) {
+				h = 31*h + arg.getName().hashCode();
+			}
+			this.hash = h;
+		}
+		return this.hash;
 	}
 	
 	/**
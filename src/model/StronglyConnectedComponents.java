@@ -0,0 +1,142 @@
+package model;
+
+/**
+ * Strongly connected components of the attack graph of a compact Argument Framework
+ * (iterative Tarjan algorithm, linear time)
+ * Components are numbered in topological order: the attackers of an argument
+ * are in its component or in a component with a lower number.
+ * The arguments of component c are getMember(k) for getMembersStart(c) <= k < getMembersEnd(c)
+ */
+public class StronglyConnectedComponents {
+
+	protected CompactArgumentFramework graph;
+	protected int nbComponents;
+	// component of each argument
+	protected int[] component;
+	// arguments grouped by component (CSR)
+	protected int[] membersOffsets;
+	protected int[] members;
+
+	public StronglyConnectedComponents(CompactArgumentFramework graph) {
+		this.graph = graph;
+		int n = graph.getNbArguments();
+		this.component = new int[n];
+		this.compute();
+		this.membersOffsets = new int[this.nbComponents + 1];
+		for(int x = 0; x<n; x++) {
+			this.membersOffsets[this.component[x] + 1]++;
+		}
+		for(int c = 0; c<this.nbComponents; c++) {
+			this.membersOffsets[c+1] += this.membersOffsets[c];
+		}
+		this.members = new int[n];
+		int[] next = new int[this.nbComponents];
+		for(int x = 0; x<n; x++) {
+			int c = this.component[x];
+			this.members[this.membersOffsets[c] + next[c]] = x;
+			next[c]++;
+		}
+	}
+
+	public CompactArgumentFramework getGraph() {
+		return this.graph;
+	}
+
+	public int getNbComponents() {
+		return this.nbComponents;
+	}
+
+	/**
+	 * component of the argument with id x
+	 */
+	public int getComponent(int x) {
+		return this.component[x];
+	}
+
+	public int getMembersStart(int c) {
+		return this.membersOffsets[c];
+	}
+
+	public int getMembersEnd(int c) {
+		return this.membersOffsets[c+1];
+	}
+
+	public int getMember(int k) {
+		return this.members[k];
+	}
+
+	public int getSize(int c) {
+		return this.membersOffsets[c+1] - this.membersOffsets[c];
+	}
+
+	/**
+	 * Tarjan on the attacks (from -> to)
+	 * a component is closed after all the components it attacks: they are numbered backward
+	 */
+	protected void compute() {
+		int n = this.graph.getNbArguments();
+		int[] index = new int[n];
+		int[] low = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int stackSize = 0;
+		// depth first search: argument and position in its attacked arguments
+		int[] callArg = new int[n];
+		int[] callPos = new int[n];
+		int counter = 0;
+		int closed = 0;
+		for(int root = 0; root<n; root++) {
+			if(index[root] != 0) {
+				continue;
+			}
+			int depth = 0;
+			callArg[0] = root;
+			callPos[0] = this.graph.getAttackedStart(root);
+			counter++;
+			index[root] = counter;
+			low[root] = counter;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			while(depth >= 0) {
+				int x = callArg[depth];
+				if(callPos[depth] < this.graph.getAttackedEnd(x)) {
+					int y = this.graph.getAttacked(callPos[depth]);
+					callPos[depth]++;
+					if(index[y] == 0) {
+						depth++;
+						callArg[depth] = y;
+						callPos[depth] = this.graph.getAttackedStart(y);
+						counter++;
+						index[y] = counter;
+						low[y] = counter;
+						stack[stackSize++] = y;
+						onStack[y] = true;
+					} else if(onStack[y] && index[y] < low[x]) {
+						low[x] = index[y];
+					}
+					continue;
+				}
+				if(low[x] == index[x]) {
+					// x is the root of a component
+					int y;
+					do {
+						stackSize--;
+						y = stack[stackSize];
+						onStack[y] = false;
+						this.component[y] = closed;
+					} while(y != x);
+					closed++;
+				}
+				depth--;
+				if(depth >= 0 && low[x] < low[callArg[depth]]) {
+					low[callArg[depth]] = low[x];
+				}
+			}
+		}
+		this.nbComponents = closed;
+		// the first closed components are the last ones in topological order
+		for(int x = 0; x<n; x++) {
+			this.component[x] = closed - 1 - this.component[x];
+		}
+	}
+}
@@ -1,27 +1,103 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
+/**
+ * Records, for one control configuration, how often each argument is accepted
+ * in order to compute its supporting power
+ * Counters are indexed by the dense ids of the CAF (ControlAF.getArgumentId)
+ * and stored in a long[] (no boxing when counting)
+ * Recorders filled by different workers can be combined with merge()
+ */
 public class SupportingPowerRecorder {
+	protected ControlAF CAF;
 	protected int nb_extensions;
-	protected Map<Argument, Integer> occurences;
+	// counters by CAF id (arguments[id] is set once the argument is counted)
+	protected Argument[] arguments;
+	protected long[] occurences;
+	// for credulous acceptance: last round (AFr) in which each argument was counted
+	protected int[] lastRound;
+	protected int round;
 	//protected List<StableExtension> extensions;
+	// completions already treated are recognised by their fingerprint
+	protected Set<Fingerprint> fingerprints;
+	// the completions themselves are only kept on demand
+	protected boolean keepCompletions;
 	protected List<ArgumentFramework> completions;
 
-	public SupportingPowerRecorder() {
+	public SupportingPowerRecorder(ControlAF CAF) {
+		this(CAF, true);
+	}
+
+	/**
+	 * @param CAF gives the ids of the arguments
+	 * @param keepCompletions if false, only the fingerprints of the completions are stored
+	 * (getCompletions() then returns an empty list)
+	 */
+	public SupportingPowerRecorder(ControlAF CAF, boolean keepCompletions) {
+		this.CAF = CAF;
 		this.nb_extensions = 0;
-		this.occurences = new HashMap<Argument, Integer>();
+		int size = Math.max(16, CAF.getAllArguments().size());
+		this.arguments = new Argument[size];
+		this.occurences = new long[size];
+		this.lastRound = new int[size];
+		this.round = 0;
 		//this.extensions = new ArrayList<StableExtension>();
+		this.fingerprints = new HashSet<Fingerprint>();
+		this.keepCompletions = keepCompletions;
 		this.completions = new ArrayList<ArgumentFramework>();
 	}
 
+	/**
+	 * returns the completions treated so far (empty if they are not kept)
+	 */
+	public List<ArgumentFramework> getCompletions() {
+		return this.completions;
+	}
+
+	/**
+	 * returns the number of distinct completions treated so far
+	 */
+	public int getNbCompletions() {
+		return this.fingerprints.size();
+	}
+
+	/**
+	 * returns the CAF id of an argument (the counters grow if needed)
+	 */
+	protected int getId(Argument arg) {
+		int id = this.CAF.getArgumentId(arg);
+		if(id < 0) {
+			throw new UnknownArgumentError("the argument " + arg.getName() + " does not belong to the CAF");
+		}
+		if(id >= this.occurences.length) {
+			this.grow(id + 1);
+		}
+		this.arguments[id] = arg;
+		return id;
+	}
+
+	private void grow(int min) {
+		int size = Math.max(min, 2*this.occurences.length);
+		this.arguments = Arrays.copyOf(this.arguments, size);
+		this.occurences = Arrays.copyOf(this.occurences, size);
+		this.lastRound = Arrays.copyOf(this.lastRound, size);
+	}
+
 	public int getOccurences(Argument arg) {
-		return occurences.get(arg).intValue();
+		int id = this.CAF.getArgumentId(arg);
+		if(id < 0 || id >= this.occurences.length) {
+			return 0;
+		}
+		return (int)this.occurences[id];
+	}
+
+	public int getNbExtensions() {
+		return this.nb_extensions;
 	}
 
 	public void increaseNbExtensions() {
@@ -35,7 +111,7 @@ public class SupportingPowerRecorder {
 	 */
 	public double getSupportingPower(Argument arg) {
 		double supporting_power=0;
-		supporting_power = (double)occurences.get(arg).intValue();
+		supporting_power = (double)this.getOccurences(arg);
 		supporting_power = supporting_power/this.nb_extensions;
 		return supporting_power;
 	}
@@ -45,12 +121,31 @@ public class SupportingPowerRecorder {
 	 * @param arg
 	 */
 	public void increaseOccurence(Argument arg) {
-		Integer current = this.occurences.get(arg);
-		if(current == null) {
-			current = new Integer(0);
+		this.occurences[this.getId(arg)]++;
+	}
+
+	/**
+	 * adds the counts of another recorder (for instance filled by another worker)
+	 * built on the same CAF
+	 * occurrences and number of extensions are summed: the two recorders must have treated
+	 * different completions (Parallel_Monte_Carlo_Engine records each completion once over all the workers)
+	 * @param other
+	 */
+	public void merge(SupportingPowerRecorder other) {
+		if(other.occurences.length > this.occurences.length) {
+			this.grow(other.occurences.length);
+		}
+		for(int id = 0; id<other.occurences.length; id++) {
+			if(other.arguments[id] != null) {
+				this.arguments[id] = other.arguments[id];
+				this.occurences[id] += other.occurences[id];
+			}
+		}
+		this.nb_extensions += other.nb_extensions;
+		this.fingerprints.addAll(other.fingerprints);
+		if(this.keepCompletions) {
+			this.completions.addAll(other.completions);
 		}
-		Integer updated = new Integer(current.intValue()+1);
-		this.occurences.put(arg, updated);
 	}
 
 	/*
@@ -63,13 +158,28 @@ public class SupportingPowerRecorder {
 		return false;
 	} */
 
+	/**
+	 * true if the completion af has already been treated
+	 * O(1): the fingerprint is computed once per AF
+	 */
 	public boolean present(ArgumentFramework af) {
-		for(ArgumentFramework other: this.completions) {
-			if(af.equals(other)) {
-				return true;
+		return this.fingerprints.contains(af.getFingerprint());
+	}
+
+	/**
+	 * counts the extensions of a completion not treated yet and remembers its fingerprint
+	 */
+	protected void addCompletion(Set<StableExtension> stable_list, ArgumentFramework af) {
+		for(StableExtension stable : stable_list) {
+			for(Argument arg : stable.getAccepted()) {
+				this.occurences[this.getId(arg)]++;
 			}
 		}
-		return false;
+		this.nb_extensions += stable_list.size();
+		this.fingerprints.add(af.getFingerprint());
+		if(this.keepCompletions) {
+			this.completions.add(af);
+		}
 	}
 
 	/**
@@ -105,10 +215,7 @@ public class SupportingPowerRecorder {
 	 */
 	public void updateOccurencesList(Set<StableExtension> stable_list, ArgumentFramework af) {
 		if(!present(af)) {
-			for(StableExtension stable : stable_list) {
-				updateOccurrencesSke(stable);
-			}
-			this.completions.add(af);
+			this.addCompletion(stable_list, af);
 		} 
 	}
 
@@ -121,10 +228,7 @@ public class SupportingPowerRecorder {
 	public void updateOccurencesListSke(Set<StableExtension> stable_list, ArgumentFramework af) {
 		if(!present(af)) {
 			System.out.println("af NOT present");
-			for(StableExtension stable : stable_list) {
-				updateOccurrencesSke(stable);
-			}
-			this.completions.add(af);
+			this.addCompletion(stable_list, af);
 		} else {
 			System.out.println("af present");
 		}
@@ -158,9 +262,17 @@ public class SupportingPowerRecorder {
 	 * @param stable_list
 	 */
 	public void updateOccurencesListCred(Set<StableExtension> stable_list) {
-		Set<Argument> present = new HashSet<Argument>();
+		// a new round: an argument is counted at most once per round
+		// (replaces a set of the arguments already counted)
+		this.round++;
 		for(StableExtension stable : stable_list) {
-			updateOccurrencesCred(stable, present);
+			for(Argument arg : stable.getAccepted()) {
+				int id = this.getId(arg);
+				if(this.lastRound[id] != this.round) {
+					this.occurences[id]++;
+					this.lastRound[id] = this.round;
+				}
+			}
 		}
 		// we increase only by the number of root AF treated and not the total number
 		// of extensions scoped
@@ -169,7 +281,11 @@ public class SupportingPowerRecorder {
 
 	public String toString() {
 		StringBuffer result = new StringBuffer();
-		for(Argument arg : occurences.keySet()) {
+		for(int id = 0; id<this.arguments.length; id++) {
+			Argument arg = this.arguments[id];
+			if(arg == null) {
+				continue;
+			}
 			result.append(arg.getName());
 			result.append(" has supporting power: ");
 			result.append(this.getSupportingPower(arg));
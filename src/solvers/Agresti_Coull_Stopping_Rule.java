@@ -0,0 +1,18 @@
+package solvers;
+
+import util.Util;
+
+/**
+ * Agresti-Coull interval of half width error (Util.getNewSimulationNumber)
+ * default rule of the Monte Carlo solvers
+ */
+public class Agresti_Coull_Stopping_Rule implements I_Stopping_Rule {
+
+	public double getNewSimulationNumber(double success, double nbSimu, double error) {
+		return Util.getNewSimulationNumber(success, nbSimu, error);
+	}
+
+	public double getMaxSimulationNumber(double error) {
+		return Util.getMaxSimulationNumber(error);
+	}
+}
@@ -1,8 +1,8 @@
 package solvers;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 import org.chocosolver.solver.Model;
@@ -11,21 +11,36 @@ import org.chocosolver.solver.variables.IntVar;
 
 import model.Argument;
 import model.ArgumentFramework;
+import model.CompactArgumentFramework;
 import model.StableExtension;
-import model.UnknownArgumentError;
 
 /**
  * This class enables the determination of stables extensions
  * of the Argument Framework passed at construction.
+ * A Choco model is built at each call: for repeated calls use Labelling_AF_Solver
+ * (same results, no model construction)
+ * With splitting (setSplitting), one smaller model is built for each strongly
+ * connected component of the AF (see SCC_AF_Solver).
  * @author Fabrice
  *
  */
 public class CSP_AF_Solver {
 	
 	protected ArgumentFramework af;
+	protected boolean splitting;
 	
 	public CSP_AF_Solver(ArgumentFramework af) {
 		this.af = af;
+		this.splitting = false;
+	}
+
+	/**
+	 * if true, the AF is split into its strongly connected components
+	 * solved one by one in topological order (false by default)
+	 * @param splitting
+	 */
+	public void setSplitting(boolean splitting) {
+		this.splitting = splitting;
 	}
 
 	public ArgumentFramework getAF() {
@@ -47,10 +62,38 @@ public class CSP_AF_Solver {
 	 *  at least on attacker of x has accepted = 1 and accepted(x) = 0
 	 */
 	public Set<StableExtension> getStableSets() {
+		if(this.splitting) {
+			// one CSP model per component
+			SCC_AF_Solver solver = new SCC_AF_Solver(this.af) {
+				protected List<int[]> getComponentExtensions(CompactArgumentFramework component) {
+					List<int[]> result = new ArrayList<int[]>();
+					for(StableExtension ext : CSP_AF_Solver.this.getStableSets(component)) {
+						int[] ids = new int[ext.getAccepted().size()];
+						int i = 0;
+						for(Argument arg : ext.getAccepted()) {
+							ids[i] = component.getId(arg);
+							i++;
+						}
+						result.add(ids);
+					}
+					return result;
+				}
+			};
+			return solver.getStableSets();
+		}
+		return this.getStableSets(this.af.getCompact());
+	}
+
+	/**
+	 * stable sets of a compact AF (see getStableSets)
+	 * @param graph
+	 * @return
+	 */
+	protected Set<StableExtension> getStableSets(CompactArgumentFramework graph) {
 
-		// variables must be stored in a structure for later access
-		// acc variables
-		Map<String, IntVar> accVar = new HashMap<String, IntVar>();
+		// variables are stored by argument id (compact representation of the AF)
+		int n = graph.getNbArguments();
+		IntVar[] accVar = new IntVar[n];
 		
 		// 1. Create the CSP Model
 		Model model = new Model("Stable Extension Claculator");
@@ -58,11 +101,9 @@ public class CSP_AF_Solver {
         // 2. Create variables
 		// one for each argument in the completion (root completion)
 		// accepted or not
-		Set<Argument> args = this.af.getAllArguments();
-		for(Argument arg : args) {
-			String argName = arg.getName();
-			IntVar acc = model.intVar("acc_" + argName, new int[]{0,1});
-			accVar.put(argName,  acc);
+		for(int id = 0; id<n; id++) {
+			String argName = graph.getArgument(id).getName();
+			accVar[id] = model.intVar("acc_" + argName, new int[]{0,1});
 			//System.out.println("adding variable " + acc);
 		}
 				
@@ -73,21 +114,18 @@ public class CSP_AF_Solver {
 		// no two arguments attacking each other in the solution
 		// if an argument is accepted, all its attackers are rejected
 		// else at least one attacker is accepted
-		for(Argument current : args) {
+		for(int id = 0; id<n; id++) {
 			// corresponding variable
-			IntVar accCurrent = accVar.get(current.getName());
+			IntVar accCurrent = accVar[id];
 			// all its attackers
-			Set<Argument> attackers = af.getAttackingArguments(current);
-			IntVar accAtt = null;
-			IntVar[] sum = new IntVar[attackers.size()];
-			int i = 0;
-			for(Argument attacker : attackers) {
-				accAtt = accVar.get(attacker.getName());
-				sum[i] = accAtt;
-				i++;
+			int start = graph.getAttackersStart(id);
+			int nbAttackers = graph.getNbAttackers(id);
+			IntVar[] sum = new IntVar[nbAttackers];
+			for(int i = 0; i<nbAttackers; i++) {
+				sum[i] = accVar[graph.getAttacker(start + i)];
 			}
 			// if there are no attackers, accCurrent=1
-			if(attackers.size()==0) {
+			if(nbAttackers==0) {
 				//System.out.println("for argument " + accCurrent + " size of attackers = " + attackers.size());
 				Constraint constraint = model.arithm(accCurrent, "=", 1);
 				constraint.post();
@@ -116,7 +154,7 @@ public class CSP_AF_Solver {
 		// 4. Solve the problem and return the set of solutions
 		Set<StableExtension> result = new HashSet<StableExtension>();
 		while(model.getSolver().solve()) {
-			StableExtension solution = this.buildResultStable(accVar);
+			StableExtension solution = this.buildResultStable(graph, accVar);
 			result.add(solution);
 		} 
 
@@ -140,18 +178,12 @@ public class CSP_AF_Solver {
 	 * builds the stable control configuration result of the CSP solution
 	 * for internal use only
 	 */
-	protected StableExtension buildResultStable(Map<String, IntVar> accVar) {
+	protected StableExtension buildResultStable(CompactArgumentFramework graph, IntVar[] accVar) {
 		StableExtension scc = new StableExtension();
-		Set<String> argNames = accVar.keySet();
-		for(String argName : argNames) {
-			IntVar accCurrent = accVar.get(argName);
+		for(int id = 0; id<accVar.length; id++) {
 			// all arguments must be accepted or rejected
-			if(accCurrent.getValue() ==1) {
-				Argument currentArg = af.getArgumentByName(argName);
-				if(currentArg == null) {
-					throw new UnknownArgumentError("weird, argument " + argName + " is accepted but cannot be found in the CAF");
-				} 
-				scc.addAccepted(currentArg);
+			if(accVar[id].getValue() ==1) {
+				scc.addAccepted(graph.getArgument(id));
 			}
 		}
 		return scc;
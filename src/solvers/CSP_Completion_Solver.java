@@ -6,8 +6,12 @@ import model.StableExtension;
 import model.ArgumentFramework;
 import model.CArgument;
 import model.Argument;
+import model.GroundedLabelling;
 import model.UnknownArgumentError;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Map;
@@ -28,10 +32,21 @@ public class CSP_Completion_Solver implements I_Completion_Solver {
 
 	protected ControlAF CAF;
 	protected ArgumentFramework completion;
+	protected boolean grounded;
 
 	public CSP_Completion_Solver(ControlAF CAF, ArgumentFramework completion) {
 		this.CAF = CAF;
 		this.completion = completion;
+		this.grounded = true;
+	}
+
+	/**
+	 * grounded preprocessing of the completion before building the model (true by default)
+	 * the arguments IN or OUT whatever the control configuration (GroundedLabelling)
+	 * are constants of the model and the attackers OUT are dropped from the constraints
+	 */
+	public void setGroundedPreprocessing(boolean grounded) {
+		this.grounded = grounded;
 	}
 
 	public ControlAF getCAF() {
@@ -58,14 +73,15 @@ public class CSP_Completion_Solver implements I_Completion_Solver {
 	 * with all the extensions that correspond to each control configuration
 	 * First the credulous control confs are calculated. 
 	 * If a control conf does not control skeptically, it is removed.
+	 * (checked with a SAT_Completion_Verifier: one counter example search per control conf)
 	 * @return
 	 */
 	public Map<StableControlConfiguration, Set<StableExtension>> getSkepticalControlConfigurations() {
 		Map<StableControlConfiguration, Set<StableExtension>> solutions = this.getCredulousControlConfigurations();
 		Map<StableControlConfiguration, Set<StableExtension>> result = new HashMap<StableControlConfiguration, Set<StableExtension>>();
+		// one SAT query per configuration (counter example), learned clauses shared by all configurations
+		SAT_Completion_Verifier verifier = new SAT_Completion_Verifier(this.CAF, this.completion);
 		for(StableControlConfiguration scc : solutions.keySet()) {
-			
-			CSP_Completion_Verifier verifier = new CSP_Completion_Verifier(this.CAF, this.completion);
 			if(verifier.isSkepticalControlConfigurations(scc)) {
 				//System.out.println("scc: " + scc.toString() + " is skeptically VERIFIED");
 				result.put(scc, solutions.get(scc));
@@ -85,16 +101,76 @@ public class CSP_Completion_Solver implements I_Completion_Solver {
 		Map<String, IntVar> accVar = new HashMap<String, IntVar>();
 		Map<String, IntVar> onVar = new HashMap<String, IntVar>();
 
+		Model model = this.buildCredulousModel(accVar, onVar);
+
+		// 4. Solve the problem and return the set of solutions
+		Map<StableControlConfiguration, Set<StableExtension>> result = new HashMap<StableControlConfiguration, Set<StableExtension>>();
+		Set<StableExtension> extensions = null;
+		
+		/*
+		StringBuffer temp = new StringBuffer();
+		temp.append("##########################################");
+		temp.append(System.getProperty("line.separator"));
+		temp.append("TARGET:");
+		for(CArgument t : T) {
+			temp.append(t.getName());
+		}
+		temp.append(System.getProperty("line.separator"));
+		temp.append("for completion: "+ completion.toString());
+		temp.append(System.getProperty("line.separator"));
+		*/
+		
+		while(model.getSolver().solve()) {
+			Pair<StableControlConfiguration, StableExtension> solution = this.buildStableExtension(accVar);
+			StableControlConfiguration scc = util.Util.find(result.keySet(), solution.getKey());
+			/*
+			temp.append("solution found");
+			temp.append(System.getProperty("line.separator"));
+			temp.append(solution.getKey().toString());
+			temp.append(System.getProperty("line.separator"));
+			*/
+			if( scc == null) {
+				extensions = new HashSet<StableExtension>();
+				extensions.add(solution.getValue());
+				result.put(solution.getKey(), extensions);
+			} else {
+				extensions = result.get(scc);
+				extensions.add(solution.getValue());
+			}
+
+		} 
+//		System.out.println(temp.toString());
+		return result;
+	}
+
+	/**
+	 * builds the CSP model of the credulous control configurations of the completion
+	 * the acc and on variables are stored in accVar and onVar (by argument name)
+	 * @param accVar
+	 * @param onVar
+	 * @return
+	 */
+	protected Model buildCredulousModel(Map<String, IntVar> accVar, Map<String, IntVar> onVar) {
 		// 1. Create the CSP Model
 		Model model = new Model("Credulous CAF Solver");
 
 		// 2. Create variables
 		// one for each argument in the completion (root completion)
 		// accepted or not
+		// arguments decided by the grounded labelling are constants
+		GroundedLabelling labelling = null;
+		if(this.grounded) {
+			labelling = new GroundedLabelling(this.CAF, this.completion);
+		}
 		Set<Argument> args = this.completion.getAllArguments();
 		for(Argument arg : args) {
 			String argName = arg.getName();
-			IntVar acc = model.intVar("acc_" + argName, new int[]{0,1});
+			IntVar acc = null;
+			if(labelling != null && labelling.isDecided(arg)) {
+				acc = model.intVar("acc_" + argName, labelling.getLabel(arg) == GroundedLabelling.IN ? 1 : 0);
+			} else {
+				acc = model.intVar("acc_" + argName, new int[]{0,1});
+			}
 			accVar.put(argName,  acc);
 			//System.out.println("adding variable " + acc);
 		}
@@ -106,7 +182,13 @@ public class CSP_Completion_Solver implements I_Completion_Solver {
 		for(Argument carg : controlArgs) {
 			String cargName = carg.getName();
 			String onCarg = cargName;
-			IntVar acc = model.intVar("acc_" + cargName,new int[]{0,1});
+			IntVar acc = null;
+			if(labelling != null && labelling.isDecided(carg)) {
+				// OUT: never accepted, so never on
+				acc = model.intVar("acc_" + cargName, 0);
+			} else {
+				acc = model.intVar("acc_" + cargName,new int[]{0,1});
+			}
 			IntVar on = model.intVar("on_" + onCarg, new int[]{0,1});
 			accVar.put(cargName, acc);
 			onVar.put(cargName, on);
@@ -143,9 +225,13 @@ public class CSP_Completion_Solver implements I_Completion_Solver {
 		// else at least one attacker is accepted
 		// first we iterate through the root Completion arguments
 		for(Argument arg : args) {
+			if(labelling != null && labelling.isDecided(arg)) {
+				continue;
+			}
 			IntVar accCurrent = accVar.get(arg.getName());
 			// all its attackers (including AC) : AF, AU, AC
-			Set<Argument> attackers = CAF.getArgumentAttackers(this.completion, arg);
+			// the completion is not modified
+			Collection<Argument> attackers = this.getUndecided(CAF.getArgumentAttackersView(this.completion, arg), labelling);
 			IntVar accAtt = null;
 			IntVar[] sum = new IntVar[attackers.size()];
 			int i = 0;
@@ -182,10 +268,13 @@ public class CSP_Completion_Solver implements I_Completion_Solver {
 		// same thing but on the control arguments
 		for(CArgument arg : controlArgs) {
 			// corresponding variables (need acc and on)
+			if(labelling != null && labelling.isDecided(arg)) {
+				continue;
+			}
 			IntVar accCurrent = accVar.get(arg.getName());
 			// all its attackers (including AC)
 			// ARGUMENTS IN AU, AF, AC
-			Set<Argument> attackers = CAF.getControlAttackers(arg, this.completion);
+			Collection<Argument> attackers = this.getUndecided(CAF.getControlAttackers(arg, this.completion), labelling);
 			IntVar accAtt = null;
 			IntVar[] sum = new IntVar[attackers.size()];
 			int i = 0;
@@ -210,43 +299,68 @@ public class CSP_Completion_Solver implements I_Completion_Solver {
 			}
 		}
 
-		// 4. Solve the problem and return the set of solutions
-		Map<StableControlConfiguration, Set<StableExtension>> result = new HashMap<StableControlConfiguration, Set<StableExtension>>();
-		Set<StableExtension> extensions = null;
-		
-		/*
-		StringBuffer temp = new StringBuffer();
-		temp.append("##########################################");
-		temp.append(System.getProperty("line.separator"));
-		temp.append("TARGET:");
-		for(CArgument t : T) {
-			temp.append(t.getName());
+		return model;
+	}
+
+	/**
+	 * attackers that are not OUT in the labelling (all of them if the labelling is null)
+	 */
+	protected Collection<Argument> getUndecided(Collection<Argument> attackers, GroundedLabelling labelling) {
+		if(labelling == null) {
+			return attackers;
 		}
-		temp.append(System.getProperty("line.separator"));
-		temp.append("for completion: "+ completion.toString());
-		temp.append(System.getProperty("line.separator"));
-		*/
-		
+		List<Argument> result = new ArrayList<Argument>(attackers.size());
+		for(Argument attacker : attackers) {
+			if(labelling.getLabel(attacker) != GroundedLabelling.OUT) {
+				result.add(attacker);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * returns the control configurations that credulously control the CAF, without the extensions
+	 * projected enumeration: after each solution, a nogood on the on variables only is recorded
+	 * so each control configuration is found once, whatever its number of extensions
+	 */
+	public Set<StableControlConfiguration> getCredulousControlConfigurationsOnly() {
+		Map<String, IntVar> accVar = new HashMap<String, IntVar>();
+		Map<String, IntVar> onVar = new HashMap<String, IntVar>();
+		Model model = this.buildCredulousModel(accVar, onVar);
+
+		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
+		if(onVar.isEmpty()) {
+			// no control argument: the empty configuration if there is one solution
+			if(model.getSolver().solve()) {
+				result.add(new StableControlConfiguration());
+			}
+			return result;
+		}
+		model.getSolver().setNoGoodRecordingFromSolutions(onVar.values().toArray(new IntVar[0]));
 		while(model.getSolver().solve()) {
-			Pair<StableControlConfiguration, StableExtension> solution = this.buildStableExtension(accVar);
-			StableControlConfiguration scc = util.Util.find(result.keySet(), solution.getKey());
-			/*
-			temp.append("solution found");
-			temp.append(System.getProperty("line.separator"));
-			temp.append(solution.getKey().toString());
-			temp.append(System.getProperty("line.separator"));
-			*/
-			if( scc == null) {
-				extensions = new HashSet<StableExtension>();
-				extensions.add(solution.getValue());
-				result.put(solution.getKey(), extensions);
-			} else {
-				extensions = result.get(scc);
-				extensions.add(solution.getValue());
+			StableControlConfiguration scc = new StableControlConfiguration();
+			for(String argName : onVar.keySet()) {
+				if(onVar.get(argName).getValue() == 1) {
+					scc.addOnControl(CAF.getArgumentByName(argName));
+				}
 			}
+			result.add(scc);
+		}
+		return result;
+	}
 
-		} 
-//		System.out.println(temp.toString());
+	/**
+	 * returns the control configurations that skeptically control the CAF, without the extensions
+	 * the credulous ones (projected enumeration) are checked one by one
+	 */
+	public Set<StableControlConfiguration> getSkepticalControlConfigurationsOnly() {
+		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
+		SAT_Completion_Verifier verifier = new SAT_Completion_Verifier(this.CAF, this.completion);
+		for(StableControlConfiguration scc : this.getCredulousControlConfigurationsOnly()) {
+			if(verifier.isSkepticalControlConfigurations(scc)) {
+				result.add(scc);
+			}
+		}
 		return result;
 	}
 
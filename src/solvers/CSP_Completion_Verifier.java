@@ -19,11 +19,32 @@ public class CSP_Completion_Verifier {
 
 	protected ControlAF CAF;
 	protected ArgumentFramework completion;
+	protected boolean splitting;
 
 
 	public CSP_Completion_Verifier(ControlAF CAF, ArgumentFramework completion) {
 		this.CAF = CAF;
 		this.completion = completion;
+		this.splitting = false;
+	}
+
+	/**
+	 * if true, the stable extensions are enumerated component by component
+	 * (SCC_AF_Solver) instead of on the whole AF (false by default)
+	 * @param splitting
+	 */
+	public void setSplitting(boolean splitting) {
+		this.splitting = splitting;
+	}
+
+	/**
+	 * stable extensions of the AF of a control configuration
+	 */
+	protected Iterable<StableExtension> getStableExtensions(ArgumentFramework af) {
+		if(this.splitting) {
+			return new SCC_AF_Solver(af);
+		}
+		return new Labelling_AF_Solver(af);
 	}
 
 	public ControlAF getCAF() {
@@ -73,10 +94,10 @@ public class CSP_Completion_Verifier {
 	 */
 	public boolean isCredulousControlConfigurations(StableControlConfiguration cc) {
 		ArgumentFramework af = this.CAF.buildAF(this.completion, cc);
-		CSP_AF_Solver solver = new CSP_AF_Solver(af);
-		Set<StableExtension> extensions = solver.getStableSets();
+		Iterable<StableExtension> solver = this.getStableExtensions(af);
 		Set<CArgument> T = this.CAF.getTarget();
-		for(StableExtension ext : extensions) {
+		// extensions are streamed: stops at the first one accepting T
+		for(StableExtension ext : solver) {
 			// we check that we find at least one extension that contains T and cc
 			if(ext.contains(T) && ext.contains(cc.getOnControl())) {
 				return true;
@@ -89,21 +110,24 @@ public class CSP_Completion_Verifier {
 	 * checks if cc is a control configuration for credulous acceptance
 	 * just needs to build the corresponding AF, finding all the stable extensions
 	 * if the Target belongs to ALL stable extension returns true. Else false
+	 * (false if there is no stable extension)
 	 * @param cc
 	 * @return
 	 */
 	public boolean isSkepticalControlConfigurations(StableControlConfiguration cc) {
 		ArgumentFramework af = this.CAF.buildAF(this.completion, cc);
-		CSP_AF_Solver solver = new CSP_AF_Solver(af);
-		Set<StableExtension> extensions = solver.getStableSets();
+		Iterable<StableExtension> solver = this.getStableExtensions(af);
 		Set<CArgument> T = this.CAF.getTarget();
-		for(StableExtension ext : extensions) {
+		boolean found = false;
+		// extensions are streamed: stops at the first counter example
+		for(StableExtension ext : solver) {
 			// we check that all extensions contain T and cc
 			if(!( ext.contains(T) && ext.contains(cc.getOnControl()) )) {
 				return false;
 			}
+			found = true;
 		}
-		return true;
+		return found;
 	}
 	
 }
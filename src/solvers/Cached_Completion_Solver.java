@@ -0,0 +1,78 @@
+package solvers;
+
+import java.util.Map;
+import java.util.Set;
+
+import generators.ControllabilityEncoder;
+import model.ArgumentFramework;
+import model.ControlAF;
+import model.StableControlConfiguration;
+import model.StableExtension;
+
+/**
+ * Completion solver looking first in a Completion_Solution_Cache
+ * the solver passed at construction is only called for completions not cached yet
+ * (and its results are then added to the cache)
+ */
+public class Cached_Completion_Solver implements I_Completion_Solver {
+
+	protected I_Completion_Solver solver;
+	protected Completion_Solution_Cache cache;
+
+	public Cached_Completion_Solver(I_Completion_Solver solver, Completion_Solution_Cache cache) {
+		this.solver = solver;
+		this.cache = cache;
+	}
+
+	public ControlAF getCAF() {
+		return this.solver.getCAF();
+	}
+
+	public void setCAF(ControlAF CAF) {
+		this.solver.setCAF(CAF);
+	}
+
+	public ArgumentFramework getCompletion() {
+		return this.solver.getCompletion();
+	}
+
+	public void setCompletion(ArgumentFramework completion) {
+		this.solver.setCompletion(completion);
+	}
+
+	public Map<StableControlConfiguration, Set<StableExtension>> getSkepticalControlConfigurations() {
+		Map<StableControlConfiguration, Set<StableExtension>> result = this.cache.getControlConfigurations(this.getCompletion(), ControllabilityEncoder.SKEPTICAL);
+		if(result == null) {
+			result = this.solver.getSkepticalControlConfigurations();
+			this.cache.putControlConfigurations(this.getCompletion(), ControllabilityEncoder.SKEPTICAL, result);
+		}
+		return result;
+	}
+
+	public Map<StableControlConfiguration, Set<StableExtension>> getCredulousControlConfigurations() {
+		Map<StableControlConfiguration, Set<StableExtension>> result = this.cache.getControlConfigurations(this.getCompletion(), ControllabilityEncoder.CREDULOUS);
+		if(result == null) {
+			result = this.solver.getCredulousControlConfigurations();
+			this.cache.putControlConfigurations(this.getCompletion(), ControllabilityEncoder.CREDULOUS, result);
+		}
+		return result;
+	}
+
+	public Set<StableControlConfiguration> getSkepticalControlConfigurationsOnly() {
+		Set<StableControlConfiguration> result = this.cache.getControlConfigurationsOnly(this.getCompletion(), ControllabilityEncoder.SKEPTICAL);
+		if(result == null) {
+			result = this.solver.getSkepticalControlConfigurationsOnly();
+			this.cache.putControlConfigurationsOnly(this.getCompletion(), ControllabilityEncoder.SKEPTICAL, result);
+		}
+		return result;
+	}
+
+	public Set<StableControlConfiguration> getCredulousControlConfigurationsOnly() {
+		Set<StableControlConfiguration> result = this.cache.getControlConfigurationsOnly(this.getCompletion(), ControllabilityEncoder.CREDULOUS);
+		if(result == null) {
+			result = this.solver.getCredulousControlConfigurationsOnly();
+			this.cache.putControlConfigurationsOnly(this.getCompletion(), ControllabilityEncoder.CREDULOUS, result);
+		}
+		return result;
+	}
+}
@@ -3,8 +3,10 @@ package solvers;
 import java.util.Set;
 
 import model.ArgumentFramework;
+import model.BitsetCompletion;
 import model.CArgument;
 import model.CAttack;
+import model.CompletionSkeleton;
 import model.PControlAF;
 
 /**
@@ -60,4 +62,46 @@ public class Completion_Proba_Calculator {
 		}
 		return p;
 	}
+
+	/**
+	 * same as getProbability(ArgumentFramework) on a completion given by its bits
+	 * (the skeleton of the completion must be built on this PCAF)
+	 * bits of the attacks with a missing argument are ignored
+	 */
+	public double getProbability(BitsetCompletion completion) {
+		double p = 1;
+		CompletionSkeleton skeleton = completion.getSkeleton();
+		for(int i = 0; i<skeleton.getNbUncertainArguments(); i++) {
+			if(completion.get(skeleton.getUncertainArgumentBit(i))) {
+				p = p*PCAF.getUargProba(skeleton.getUncertainArgument(i));
+			} else {
+				p = p*(1 - PCAF.getUargProba(skeleton.getUncertainArgument(i)));
+			}
+		}
+		for(int i = 0; i<skeleton.getNbUncertainAttacks(); i++) {
+			if(completion.isPresent(skeleton.getUncertainAttackFrom(i)) && completion.isPresent(skeleton.getUncertainAttackTo(i))) {
+				if(completion.get(skeleton.getUncertainAttackBit(i))) {
+					p = p*PCAF.getUattProba(skeleton.getUncertainAttack(i));
+				} else {
+					p = p*(1-PCAF.getUattProba(skeleton.getUncertainAttack(i)));
+				}
+			}
+		}
+		for(int i = 0; i<skeleton.getNbUndirectedAttacks(); i++) {
+			if(completion.isPresent(skeleton.getUndirectedAttackFrom(i)) && completion.isPresent(skeleton.getUndirectedAttackTo(i))) {
+				CAttack udatt = skeleton.getUndirectedAttack(i);
+				int bit = skeleton.getUndirectedAttackBit(i);
+				boolean fromTo = completion.get(bit);
+				boolean toFrom = completion.get(bit + 1);
+				if(fromTo && toFrom) {
+					p = p*(1- PCAF.getUDAttFromToProba(udatt) - PCAF.getUDAttToFromProba(udatt));
+				} else if(fromTo) {
+					p = p*PCAF.getUDAttFromToProba(udatt);
+				} else {
+					p = p*PCAF.getUDAttToFromProba(udatt);
+				}
+			}
+		}
+		return p;
+	}
 }
@@ -0,0 +1,164 @@
+package solvers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import model.ArgumentFramework;
+import model.Fingerprint;
+import model.StableControlConfiguration;
+import model.StableExtension;
+
+/**
+ * Bounded cache of the control configurations of the completions of one CAF
+ * (the completions are recognised by their fingerprint, so a cache must not be shared between CAFs).
+ * For a completion and a type (ControllabilityEncoder.CREDULOUS or SKEPTICAL) it keeps either
+ * the control configurations with their stable extensions
+ * or the control configurations only (projected enumeration).
+ * The least recently used entry is removed when the cache is full.
+ * Methods are synchronized: one cache can be used by all the workers of a Parallel_Monte_Carlo_Engine.
+ * The results given back are shared: they must not be modified.
+ */
+public class Completion_Solution_Cache {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	protected int capacity;
+	protected LinkedHashMap<Key, Entry> entries;
+	protected long hits;
+	protected long misses;
+
+	public Completion_Solution_Cache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public Completion_Solution_Cache(int capacity) {
+		this.capacity = capacity;
+		this.hits = 0;
+		this.misses = 0;
+		final int max = capacity;
+		// access order: the first entry is the least recently used
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return this.size() > max;
+			}
+		};
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	public synchronized long getNbHits() {
+		return this.hits;
+	}
+
+	public synchronized long getNbMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * hits / (hits + misses), 0 if the cache was never used
+	 */
+	public synchronized double getHitRate() {
+		long total = this.hits + this.misses;
+		if(total == 0) {
+			return 0;
+		}
+		return (double)this.hits/total;
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+		this.hits = 0;
+		this.misses = 0;
+	}
+
+	/**
+	 * control configurations (with their stable extensions) of the completion, null if not cached
+	 */
+	public synchronized Map<StableControlConfiguration, Set<StableExtension>> getControlConfigurations(ArgumentFramework completion, int type) {
+		Entry entry = this.entries.get(new Key(completion.getFingerprint(), type));
+		if(entry == null || entry.solutions == null) {
+			this.misses++;
+			return null;
+		}
+		this.hits++;
+		return entry.solutions;
+	}
+
+	/**
+	 * control configurations of the completion, null if not cached
+	 * (also found if the extensions were cached)
+	 */
+	public synchronized Set<StableControlConfiguration> getControlConfigurationsOnly(ArgumentFramework completion, int type) {
+		Entry entry = this.entries.get(new Key(completion.getFingerprint(), type));
+		if(entry == null) {
+			this.misses++;
+			return null;
+		}
+		this.hits++;
+		return entry.configurations;
+	}
+
+	public synchronized void putControlConfigurations(ArgumentFramework completion, int type, Map<StableControlConfiguration, Set<StableExtension>> solutions) {
+		if(this.capacity <= 0) {
+			return;
+		}
+		Entry entry = new Entry();
+		entry.solutions = solutions;
+		entry.configurations = solutions.keySet();
+		this.entries.put(new Key(completion.getFingerprint(), type), entry);
+	}
+
+	public synchronized void putControlConfigurationsOnly(ArgumentFramework completion, int type, Set<StableControlConfiguration> configurations) {
+		if(this.capacity <= 0) {
+			return;
+		}
+		Key key = new Key(completion.getFingerprint(), type);
+		if(this.entries.containsKey(key)) {
+			// keeps the extensions if they are there
+			return;
+		}
+		Entry entry = new Entry();
+		entry.solutions = null;
+		entry.configurations = configurations;
+		this.entries.put(key, entry);
+	}
+
+	protected static class Key {
+		protected Fingerprint fingerprint;
+		protected int type;
+
+		protected Key(Fingerprint fingerprint, int type) {
+			this.fingerprint = fingerprint;
+			this.type = type;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Key)) {
+				return false;
+			}
+			Key o = (Key)other;
+			return this.type == o.type && this.fingerprint.equals(o.fingerprint);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31*this.fingerprint.hashCode() + this.type;
+		}
+	}
+
+	protected static class Entry {
+		// null if only the configurations were computed
+		protected Map<StableControlConfiguration, Set<StableExtension>> solutions;
+		protected Set<StableControlConfiguration> configurations;
+	}
+}
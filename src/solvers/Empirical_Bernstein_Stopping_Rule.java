@@ -0,0 +1,37 @@
+package solvers;
+
+import util.Util;
+
+/**
+ * Empirical Bernstein bound (Audibert, Munos, Szepesvari) of half width error:
+ * sqrt(2.V.L/n) + 3.L/n with V the empirical variance p(1-p), L = ln(3/risk)
+ * and risk the risk level of Util.CONFIDENCE_INT.
+ * The bound holds for any number of simulations (no normal approximation)
+ * so it asks for more simulations than the intervals when p is close to 1/2.
+ */
+public class Empirical_Bernstein_Stopping_Rule implements I_Stopping_Rule {
+
+	public double getNewSimulationNumber(double success, double nbSimu, double error) {
+		double p = 0.5;
+		if(nbSimu > 0) {
+			p = success/nbSimu;
+		}
+		return this.getSimulationNumber(p*(1-p), error);
+	}
+
+	public double getMaxSimulationNumber(double error) {
+		return this.getSimulationNumber(0.25, error);
+	}
+
+	/**
+	 * smallest n such that the bound is at most error
+	 * (second degree equation in 1/sqrt(n))
+	 * @param variance p(1-p)
+	 */
+	protected double getSimulationNumber(double variance, double error) {
+		double L = Math.log(3/Util.getRiskLevel(Util.CONFIDENCE_INT));
+		double b = Math.sqrt(2*variance*L);
+		double x = (-b + Math.sqrt(b*b + 12*L*error))/(6*L);
+		return 1/(x*x);
+	}
+}
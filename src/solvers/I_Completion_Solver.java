@@ -21,4 +21,12 @@ public interface I_Completion_Solver {
 	public Map<StableControlConfiguration, Set<StableExtension>> getSkepticalControlConfigurations();
 	
 	public Map<StableControlConfiguration, Set<StableExtension>> getCredulousControlConfigurations();
+	
+	/**
+	 * control configurations only: projected enumeration on the on variables
+	 * (each configuration is found once, extensions are not collected)
+	 */
+	public Set<StableControlConfiguration> getSkepticalControlConfigurationsOnly();
+	
+	public Set<StableControlConfiguration> getCredulousControlConfigurationsOnly();
 }
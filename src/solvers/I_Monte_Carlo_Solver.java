@@ -13,6 +13,8 @@ public interface I_Monte_Carlo_Solver {
 	 */
 	public static int CSP_SOLVER = 0;
 	public static int SAT_SOLVER = 1;
+	// one SAT instance for the whole CAF, completions solved under assumptions
+	public static int INCREMENTAL_SAT_SOLVER = 2;
 	
 	public int getNumberSimu();
 	
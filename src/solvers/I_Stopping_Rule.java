@@ -0,0 +1,28 @@
+package solvers;
+
+/**
+ * Decides how many simulations a Monte Carlo solver run with an error level needs.
+ * After each completion the solvers ask for the number of simulations needed,
+ * given the number of successes (highest count of a control configuration)
+ * and the number of simulations done: they stop once they have run that many
+ * (never less than Util.MINIMUM_SIMULATION).
+ */
+public interface I_Stopping_Rule {
+
+	/**
+	 * number of simulations needed
+	 * @param success number of success
+	 * @param nbSimu number of trials
+	 * @param error error level
+	 * @return
+	 */
+	public double getNewSimulationNumber(double success, double nbSimu, double error);
+
+	/**
+	 * highest number of simulations getNewSimulationNumber can ask for
+	 * (used to choose between sampling and exhaustive enumeration)
+	 * @param error error level
+	 * @return
+	 */
+	public double getMaxSimulationNumber(double error);
+}
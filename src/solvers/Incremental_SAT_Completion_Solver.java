@@ -0,0 +1,511 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import generators.ControllabilityEncoder;
+import model.Argument;
+import model.ArgumentFramework;
+import model.BitsetCompletion;
+import model.CArgument;
+import model.CAttack;
+import model.CompletionSkeleton;
+import model.ControlAF;
+import model.StableControlConfiguration;
+import model.StableExtension;
+
+/**
+ * SAT solver for the control configurations of the completions of a CAF
+ * Same results as SAT_Completion_Solver (credulous) but the whole CAF is encoded once
+ * in a single sat4j instance kept for all the completions:
+ * - one selector variable per uncertain element of the CAF (bits of the CompletionSkeleton)
+ * - a completion is solved under assumptions on the selectors
+ * so the learned clauses are kept from one completion to the next.
+ * Use setCompletion() to move to another completion, or updateBit() when only some bits
+ * of the completion have changed (the assumptions are kept between completions).
+ * Models found for a completion are blocked with clauses guarded by a variable
+ * only assumed for this enumeration. At the end of the enumeration the blocking clauses
+ * are removed and the guard is set to false: the learned clauses that depend on them
+ * contain the negated guard, so they are satisfied for good. The number of constraints
+ * does not grow with the number of completions, only one variable is used per enumeration:
+ * the CAF is encoded again after MAX_GUARDS enumerations.
+ * Variables:
+ * - acc of each fixed/uncertain argument (skeleton id + 1)
+ * - acc of each control argument (on is equivalent to acc, no variable needed)
+ * - selectors (one per bit of the skeleton)
+ * - for each conditioned attack, a variable equivalent to acc(from) and selector(attack)
+ */
+public class Incremental_SAT_Completion_Solver implements I_Completion_Solver {
+
+	// number of enumerations (guard variables) before the CAF is encoded again
+	public static final int MAX_GUARDS = 10000;
+
+	protected ControlAF CAF;
+	protected CompletionSkeleton skeleton;
+	protected ArgumentFramework completion;
+	protected BitsetCompletion bits;
+
+	protected CArgument[] controlArgs;
+	protected Map<Argument, Integer> controlIds;
+	protected int nbAccVar;
+	protected int selectorBase;
+
+	// one literal per bit of the skeleton for the current completion (kept between completions)
+	protected IVecInt assumptions;
+
+	protected ISolver solver;
+	protected int nbGuards;
+	// true if the encoding is contradictory (no control configuration for any completion)
+	protected boolean inconsistent;
+
+	public Incremental_SAT_Completion_Solver(ControlAF CAF) {
+		this.CAF = CAF;
+		this.encode();
+	}
+
+	public Incremental_SAT_Completion_Solver(ControlAF CAF, ArgumentFramework completion) {
+		this(CAF);
+		this.setCompletion(completion);
+	}
+
+	public ControlAF getCAF() {
+		return CAF;
+	}
+
+	/**
+	 * the CAF is encoded again
+	 */
+	public void setCAF(ControlAF CAF) {
+		this.CAF = CAF;
+		this.encode();
+		this.assumptions = null;
+		if(this.completion != null) {
+			this.setCompletion(this.completion);
+		}
+	}
+
+	public ArgumentFramework getCompletion() {
+		if(this.completion == null && this.bits != null) {
+			this.completion = this.bits.toArgumentFramework();
+		}
+		return this.completion;
+	}
+
+	public void setCompletion(ArgumentFramework completion) {
+		this.completion = completion;
+		this.bits = BitsetCompletion.of(this.skeleton, completion);
+		this.assumptions = null;
+	}
+
+	/**
+	 * same as setCompletion(ArgumentFramework) without building the AF
+	 * the completion must be built on the skeleton of the CAF
+	 * it is not copied: if it is then modified, updateBit() must be called for each changed bit
+	 */
+	public void setCompletion(BitsetCompletion completion) {
+		this.completion = null;
+		this.bits = completion;
+		this.assumptions = null;
+	}
+
+	/**
+	 * bit of the current completion (set with setCompletion(BitsetCompletion)) has changed
+	 * only the assumption of this bit is updated (for instance between two completions
+	 * given by a RootCompletionEnumerator)
+	 * @param bit
+	 */
+	public void updateBit(int bit) {
+		this.completion = null;
+		if(this.assumptions != null) {
+			int selector = this.selectorBase + bit;
+			this.assumptions.set(bit, this.bits.get(bit) ? selector : -selector);
+		}
+	}
+
+	public Map<StableControlConfiguration, Set<StableExtension>> getCredulousControlConfigurations()  {
+		try {
+			return this.getControlConfigurations(ControllabilityEncoder.CREDULOUS);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public Map<StableControlConfiguration, Set<StableExtension>> getSkepticalControlConfigurations()  {
+		try {
+			return this.getControlConfigurations(ControllabilityEncoder.SKEPTICAL);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public Set<StableControlConfiguration> getCredulousControlConfigurationsOnly()  {
+		try {
+			return this.getControlConfigurationsOnly(ControllabilityEncoder.CREDULOUS);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public Set<StableControlConfiguration> getSkepticalControlConfigurationsOnly()  {
+		try {
+			return this.getControlConfigurationsOnly(ControllabilityEncoder.SKEPTICAL);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * number of constraints of the sat4j instance (learned clauses excluded)
+	 * same for every completion
+	 */
+	public int getNbConstraints() {
+		return this.solver.nConstraints();
+	}
+
+	/**
+	 * checks if cc credulously controls the current completion with a single query
+	 * (the control arguments of cc are accepted, the other ones are not)
+	 * @param cc
+	 * @return
+	 */
+	public boolean isCredulousControlConfiguration(StableControlConfiguration cc) {
+		if(this.bits == null) {
+			throw new UnsupportedOperationException("need to set a completion first");
+		}
+		if(this.inconsistent) {
+			return false;
+		}
+		IVecInt assumptions = this.getAssumptions();
+		for(int i = 0; i<this.controlArgs.length; i++) {
+			int var = this.getAccVar(this.controlArgs[i]);
+			assumptions.push(cc.getOnControl().contains(this.controlArgs[i]) ? var : -var);
+		}
+		try {
+			return this.solver.isSatisfiable(assumptions);
+		} catch (TimeoutException e) {
+			throw new RuntimeException(e);
+		} finally {
+			for(int i = 0; i<this.controlArgs.length; i++) {
+				assumptions.pop();
+			}
+		}
+	}
+
+	/**
+	 * returns the control configurations that credulously/skeptically control the current completion
+	 * without the extensions (projected enumeration on the acc variables of the control arguments)
+	 */
+	public Set<StableControlConfiguration> getControlConfigurationsOnly(int type) throws ContradictionException, TimeoutException {
+		Set<StableControlConfiguration> result = this.enumerateConfigurations();
+		if(type == ControllabilityEncoder.CREDULOUS) {
+			return result;
+		}
+		Set<StableControlConfiguration> skeptical = new HashSet<StableControlConfiguration>();
+		SAT_Completion_Verifier verifier = new SAT_Completion_Verifier(this.CAF, this.getCompletion());
+		for(StableControlConfiguration scc : result) {
+			if(verifier.isSkepticalControlConfigurations(scc)) {
+				skeptical.add(scc);
+			}
+		}
+		return skeptical;
+	}
+
+	/**
+	 * returns a Map of control configurations that credulously/skeptically controls the current completion
+	 * together with all the extensions that correspond to each control configuration
+	 * skeptical: the credulous control configurations are checked with a SAT_Completion_Verifier
+	 * type should be ControllabilityEncoder.CREDULOUS or ControllabilityEncoder.SKEPTICAL
+	 */
+	public Map<StableControlConfiguration, Set<StableExtension>> getControlConfigurations(int type) throws ContradictionException, TimeoutException {
+		Map<StableControlConfiguration, Set<StableExtension>> result = this.enumerate();
+		if(type == ControllabilityEncoder.CREDULOUS) {
+			return result;
+		}
+		Map<StableControlConfiguration, Set<StableExtension>> skeptical = new HashMap<StableControlConfiguration, Set<StableExtension>>();
+		SAT_Completion_Verifier verifier = new SAT_Completion_Verifier(this.CAF, this.getCompletion());
+		for(StableControlConfiguration scc : result.keySet()) {
+			if(verifier.isSkepticalControlConfigurations(scc)) {
+				skeptical.put(scc, result.get(scc));
+			}
+		}
+		return skeptical;
+	}
+
+	/**
+	 * all (control configuration, stable extension) models of the current completion
+	 */
+	protected Map<StableControlConfiguration, Set<StableExtension>> enumerate() throws ContradictionException, TimeoutException {
+		Map<StableControlConfiguration, Set<StableExtension>> result = new HashMap<StableControlConfiguration, Set<StableExtension>>();
+		if(this.bits == null) {
+			throw new UnsupportedOperationException("need to set a completion first");
+		}
+		if(this.inconsistent) {
+			return result;
+		}
+		// guard of the blocking clauses of this enumeration
+		int round = this.newGuard();
+		List<IConstr> blockings = new ArrayList<IConstr>();
+		IVecInt assumptions = this.getAssumptions();
+		assumptions.push(round);
+		try {
+			while(this.solver.isSatisfiable(assumptions)) {
+				StableControlConfiguration scc = new StableControlConfiguration();
+				StableExtension se = new StableExtension();
+				IVecInt blocking = new VecInt(this.nbAccVar + 1);
+				blocking.push(-round);
+				for(int var = 1; var <= this.nbAccVar; var++) {
+					if(this.solver.model(var)) {
+						blocking.push(-var);
+						CArgument arg = this.getArgument(var);
+						se.addAccepted(arg);
+						if(var > this.skeleton.getNbArguments()) {
+							scc.addOnControl(arg);
+						}
+					} else {
+						blocking.push(var);
+					}
+				}
+				Set<StableExtension> extensions = result.get(scc);
+				if(extensions == null) {
+					extensions = new HashSet<StableExtension>();
+					result.put(scc, extensions);
+				}
+				extensions.add(se);
+				this.addBlocking(blocking, blockings);
+			}
+		} finally {
+			assumptions.pop();
+			this.endEnumeration(round, blockings);
+		}
+		return result;
+	}
+
+	/**
+	 * credulous control configurations of the current completion
+	 * models are blocked on the control arguments only
+	 */
+	protected Set<StableControlConfiguration> enumerateConfigurations() throws ContradictionException, TimeoutException {
+		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
+		if(this.bits == null) {
+			throw new UnsupportedOperationException("need to set a completion first");
+		}
+		if(this.inconsistent) {
+			return result;
+		}
+		int n = this.skeleton.getNbArguments();
+		int round = this.newGuard();
+		List<IConstr> blockings = new ArrayList<IConstr>();
+		IVecInt assumptions = this.getAssumptions();
+		assumptions.push(round);
+		try {
+			while(this.solver.isSatisfiable(assumptions)) {
+				StableControlConfiguration scc = new StableControlConfiguration();
+				IVecInt blocking = new VecInt(this.controlArgs.length + 1);
+				blocking.push(-round);
+				for(int var = n + 1; var <= this.nbAccVar; var++) {
+					if(this.solver.model(var)) {
+						blocking.push(-var);
+						scc.addOnControl(this.getArgument(var));
+					} else {
+						blocking.push(var);
+					}
+				}
+				result.add(scc);
+				if(blocking.size() == 1) {
+					// no control argument: the empty configuration is the only one
+					break;
+				}
+				this.addBlocking(blocking, blockings);
+			}
+		} finally {
+			assumptions.pop();
+			this.endEnumeration(round, blockings);
+		}
+		return result;
+	}
+
+	/**
+	 * new guard variable (the CAF is encoded again after MAX_GUARDS guards)
+	 */
+	protected int newGuard() {
+		if(this.nbGuards >= MAX_GUARDS) {
+			this.encode();
+		}
+		this.nbGuards++;
+		return this.solver.nextFreeVarId(true);
+	}
+
+	private void addBlocking(IVecInt blocking, List<IConstr> blockings) throws ContradictionException {
+		IConstr constr = this.solver.addClause(blocking);
+		if(constr != null) {
+			blockings.add(constr);
+		}
+	}
+
+	/**
+	 * removes the blocking clauses of an enumeration and sets its guard to false
+	 * the clauses are removed from the last one: removeSubsumedConstr only removes
+	 * the last constraint added but keeps the learned clauses (removeConstr clears them all)
+	 * the unit clause on the guard is removed as well once the guard is false at level 0
+	 */
+	protected void endEnumeration(int round, List<IConstr> blockings) throws ContradictionException {
+		for(int i = blockings.size() - 1; i >= 0; i--) {
+			this.solver.removeSubsumedConstr(blockings.get(i));
+		}
+		IConstr disabled = this.solver.addClause(new VecInt(new int[] {-round}));
+		if(disabled != null) {
+			this.solver.removeSubsumedConstr(disabled);
+		}
+	}
+
+	/**
+	 * one literal per bit of the skeleton (selector true iff the element is in the completion)
+	 * built once per completion, then kept up to date by updateBit()
+	 * the literals of a query (guard of an enumeration, control arguments) are pushed after them and removed afterwards
+	 */
+	protected IVecInt getAssumptions() {
+		if(this.assumptions == null) {
+			this.assumptions = new VecInt(this.skeleton.getNbBits() + 1);
+			for(int bit = 0; bit<this.skeleton.getNbBits(); bit++) {
+				int selector = this.selectorBase + bit;
+				this.assumptions.push(this.bits.get(bit) ? selector : -selector);
+			}
+		}
+		return this.assumptions;
+	}
+
+	/**
+	 * argument corresponding to an acc variable
+	 */
+	protected CArgument getArgument(int var) {
+		int n = this.skeleton.getNbArguments();
+		if(var <= n) {
+			return this.skeleton.getArgument(var - 1);
+		}
+		return this.controlArgs[var - n - 1];
+	}
+
+	/**
+	 * acc variable of an argument, 0 if the argument is unknown
+	 */
+	protected int getAccVar(Argument a) {
+		int id = this.skeleton.getId(a);
+		if(id >= 0) {
+			return id + 1;
+		}
+		Integer control = this.controlIds.get(a);
+		if(control == null) {
+			return 0;
+		}
+		return this.skeleton.getNbArguments() + control.intValue() + 1;
+	}
+
+	/**
+	 * builds the sat4j instance for the CAF (independent from any completion)
+	 */
+	protected void encode() {
+		this.skeleton = this.CAF.getCompletionSkeleton();
+		Set<CArgument> controls = this.CAF.getArgumentsByType(CArgument.Type.CONTROL);
+		this.controlArgs = controls.toArray(new CArgument[0]);
+		this.controlIds = new HashMap<Argument, Integer>();
+		for(int i = 0; i<this.controlArgs.length; i++) {
+			this.controlIds.put(this.controlArgs[i], Integer.valueOf(i));
+		}
+		int n = this.skeleton.getNbArguments();
+		this.nbAccVar = n + this.controlArgs.length;
+		this.selectorBase = this.nbAccVar + 1;
+		int nbVar = this.nbAccVar + this.skeleton.getNbBits();
+
+		// attackers of each argument as literals ("from is accepted and the attack is present")
+		List<List<Integer>> attackers = new ArrayList<List<Integer>>(this.nbAccVar + 1);
+		for(int var = 0; var <= this.nbAccVar; var++) {
+			attackers.add(new ArrayList<Integer>());
+		}
+		List<int[]> clauses = new ArrayList<int[]>();
+		for(int e = 0; e<this.skeleton.getNbEdges(); e++) {
+			int from = this.skeleton.getEdgeFrom(e) + 1;
+			int bit = this.skeleton.getEdgeBit(e);
+			int literal = from;
+			if(bit != CompletionSkeleton.NO_BIT) {
+				// literal <=> acc(from) and selector
+				nbVar++;
+				literal = nbVar;
+				int selector = this.selectorBase + bit;
+				clauses.add(new int[] {-literal, from});
+				clauses.add(new int[] {-literal, selector});
+				clauses.add(new int[] {literal, -from, -selector});
+			}
+			attackers.get(this.skeleton.getEdgeTo(e) + 1).add(Integer.valueOf(literal));
+		}
+		// control attacks (no selector: present as soon as both arguments are, acc is false otherwise)
+		for(CAttack att : this.CAF.getAttacksByType(CAttack.Type.CONTROL)) {
+			int from = this.getAccVar(att.getFrom());
+			int to = this.getAccVar(att.getTo());
+			if(from != 0 && to != 0) {
+				attackers.get(to).add(Integer.valueOf(from));
+			}
+		}
+
+		// fixed and uncertain arguments: present => (accepted <=> no attacker accepted)
+		for(int var = 1; var <= n; var++) {
+			List<Integer> current = attackers.get(var);
+			int[] attacked = new int[current.size() + 2];
+			int size = 0;
+			if(!this.skeleton.isFixed(var - 1)) {
+				int selector = this.selectorBase + this.skeleton.getUncertainArgumentBit(var - 1 - this.skeleton.getNbFixedArguments());
+				// not present => not accepted
+				clauses.add(new int[] {selector, -var});
+				attacked[size] = -selector;
+				size++;
+			}
+			attacked[size] = var;
+			size++;
+			for(Integer literal : current) {
+				clauses.add(new int[] {-var, -literal.intValue()});
+				attacked[size] = literal.intValue();
+				size++;
+			}
+			clauses.add(Arrays.copyOf(attacked, size));
+		}
+		// control arguments: accepted => no attacker accepted
+		for(int var = n + 1; var <= this.nbAccVar; var++) {
+			for(Integer literal : attackers.get(var)) {
+				clauses.add(new int[] {-var, -literal.intValue()});
+			}
+		}
+		// target
+		for(CArgument t : this.CAF.getTarget()) {
+			clauses.add(new int[] {this.getAccVar(t)});
+		}
+
+		this.solver = SolverFactory.newDefault();
+		this.solver.newVar(nbVar);
+		this.nbGuards = 0;
+		this.solver.setExpectedNumberOfClauses(clauses.size());
+		this.inconsistent = false;
+		try {
+			for(int[] clause : clauses) {
+				this.solver.addClause(new VecInt(clause));
+			}
+		} catch (ContradictionException e) {
+			this.inconsistent = true;
+		}
+	}
+}
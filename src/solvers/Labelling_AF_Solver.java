@@ -0,0 +1,355 @@
+package solvers;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import model.ArgumentFramework;
+import model.CompactArgumentFramework;
+import model.StableExtension;
+
+/**
+ * This class enables the determination of stables extensions
+ * of the Argument Framework passed at construction, without any CSP model.
+ * It works directly on the compact representation of the AF (int ids)
+ * with a labelling (IN/OUT/UNDEC) search:
+ * - an argument IN puts all its attackers and all the arguments it attacks OUT
+ * - an argument with all its attackers OUT must be IN
+ * - an argument OUT with no attacker IN and only one attacker not OUT forces this attacker IN
+ * - an argument OUT with all its attackers OUT is a conflict
+ * When propagation stops, an UNDEC argument is chosen and labelled IN, then OUT on backtrack.
+ * Every complete labelling found is a stable extension (IN arguments).
+ * Same results as CSP_AF_Solver, plus a streaming iterator.
+ */
+public class Labelling_AF_Solver implements Iterable<StableExtension> {
+
+	protected static final byte UNDEC = 0;
+	protected static final byte IN = 1;
+	protected static final byte OUT = 2;
+
+	protected ArgumentFramework af;
+
+	public Labelling_AF_Solver(ArgumentFramework af) {
+		this.af = af;
+	}
+
+	public ArgumentFramework getAF() {
+		return af;
+	}
+
+	public void setAF(ArgumentFramework af) {
+		this.af = af;
+	}
+
+	/**
+	 * returns the set of solutions (stable sets) for the AF
+	 */
+	public Set<StableExtension> getStableSets() {
+		Set<StableExtension> result = new HashSet<StableExtension>();
+		for(StableExtension ext : this) {
+			result.add(ext);
+		}
+		return result;
+	}
+
+	/**
+	 * returns true if the AF has at least one stable extension
+	 * (stops at the first one)
+	 */
+	public boolean hasStableExtension() {
+		return this.iterator().hasNext();
+	}
+
+	/**
+	 * returns the stable extensions one by one
+	 * each extension is searched only when requested
+	 */
+	public Iterator<StableExtension> iterator() {
+		return new Search(this.af.getCompact());
+	}
+
+	/**
+	 * labelling search over the compact AF
+	 * state is kept between two solutions
+	 */
+	protected static class Search implements Iterator<StableExtension> {
+
+		protected CompactArgumentFramework graph;
+		protected int n;
+		protected byte[] label;
+		// IN and OUT labels as bitsets (UNDEC = neither)
+		protected long[] in;
+		protected long[] out;
+		// number of attackers labelled IN
+		protected int[] inAttackers;
+		// number of attackers not labelled OUT
+		protected int[] notOutAttackers;
+
+		// assigned arguments in assignment order
+		protected int[] trail;
+		protected int trailSize;
+
+		// decisions: argument, trail size before the decision, already tried OUT
+		protected int[] decisionArg;
+		protected int[] decisionMark;
+		protected boolean[] decisionFlipped;
+		protected int nbDecisions;
+
+		// propagation queue of literals: id+1 for IN, -(id+1) for OUT
+		protected int[] queue;
+		protected int queueSize;
+
+		protected boolean started;
+		protected boolean exhausted;
+		protected boolean ready;
+
+		protected Search(CompactArgumentFramework graph) {
+			this.graph = graph;
+			this.n = graph.getNbArguments();
+			this.label = new byte[n];
+			int words = (n + 63) >>> 6;
+			this.in = new long[words];
+			this.out = new long[words];
+			this.inAttackers = new int[n];
+			this.notOutAttackers = new int[n];
+			for(int x = 0; x<n; x++) {
+				this.notOutAttackers[x] = graph.getNbAttackers(x);
+			}
+			this.trail = new int[n];
+			this.trailSize = 0;
+			this.decisionArg = new int[n];
+			this.decisionMark = new int[n];
+			this.decisionFlipped = new boolean[n];
+			this.nbDecisions = 0;
+			this.queue = new int[Math.max(16, 2*n)];
+			this.queueSize = 0;
+			this.started = false;
+			this.exhausted = false;
+			this.ready = false;
+		}
+
+		public boolean hasNext() {
+			if(!this.ready && !this.exhausted) {
+				this.ready = this.search();
+				if(!this.ready) {
+					this.exhausted = true;
+				}
+			}
+			return this.ready;
+		}
+
+		public StableExtension next() {
+			StableExtension result = new StableExtension();
+			for(int x : this.nextAccepted()) {
+				result.addAccepted(this.graph.getArgument(x));
+			}
+			return result;
+		}
+
+		/**
+		 * same as next() but returns the ids of the accepted arguments
+		 */
+		protected int[] nextAccepted() {
+			if(!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.ready = false;
+			int size = 0;
+			for(int w = 0; w<this.in.length; w++) {
+				size += Long.bitCount(this.in[w]);
+			}
+			int[] result = new int[size];
+			int i = 0;
+			for(int w = 0; w<this.in.length; w++) {
+				long word = this.in[w];
+				while(word != 0) {
+					result[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * moves to the next complete labelling
+		 * returns false if there is none
+		 */
+		protected boolean search() {
+			if(!this.started) {
+				this.started = true;
+				// unattacked arguments are IN
+				for(int x = 0; x<this.n; x++) {
+					if(this.notOutAttackers[x] == 0) {
+						this.enqueue(x + 1);
+					}
+				}
+				if(!this.propagate()) {
+					return false;
+				}
+			} else if(!this.backtrack()) {
+				// the previous solution is complete: look for another branch
+				return false;
+			}
+			while(true) {
+				int x = this.pickUndecided();
+				if(x < 0) {
+					return true;
+				}
+				this.decisionArg[this.nbDecisions] = x;
+				this.decisionMark[this.nbDecisions] = this.trailSize;
+				this.decisionFlipped[this.nbDecisions] = false;
+				this.nbDecisions++;
+				this.enqueue(x + 1);
+				if(!this.propagate() && !this.backtrack()) {
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * undoes decisions until one can be flipped to OUT consistently
+		 * returns false if the search space is exhausted
+		 */
+		protected boolean backtrack() {
+			while(this.nbDecisions > 0) {
+				int d = this.nbDecisions - 1;
+				this.undo(this.decisionMark[d]);
+				if(this.decisionFlipped[d]) {
+					this.nbDecisions--;
+					continue;
+				}
+				this.decisionFlipped[d] = true;
+				this.enqueue(-(this.decisionArg[d] + 1));
+				if(this.propagate()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * first UNDEC argument, -1 if all arguments are labelled
+		 */
+		protected int pickUndecided() {
+			for(int w = 0; w<this.in.length; w++) {
+				long free = ~(this.in[w] | this.out[w]);
+				if(free != 0) {
+					int x = (w << 6) + Long.numberOfTrailingZeros(free);
+					if(x < this.n) {
+						return x;
+					}
+					return -1;
+				}
+			}
+			return -1;
+		}
+
+		protected void enqueue(int literal) {
+			if(this.queueSize == this.queue.length) {
+				this.queue = Arrays.copyOf(this.queue, 2*this.queue.length);
+			}
+			this.queue[this.queueSize] = literal;
+			this.queueSize++;
+		}
+
+		/**
+		 * applies all the literals of the queue and their consequences
+		 * returns false on conflict (the queue is then emptied)
+		 */
+		protected boolean propagate() {
+			int head = 0;
+			while(head < this.queueSize) {
+				int literal = this.queue[head];
+				head++;
+				int x = Math.abs(literal) - 1;
+				byte value = literal > 0 ? IN : OUT;
+				if(this.label[x] == value) {
+					continue;
+				}
+				if(this.label[x] != UNDEC) {
+					this.queueSize = 0;
+					return false;
+				}
+				this.label[x] = value;
+				this.trail[this.trailSize] = x;
+				this.trailSize++;
+				if(value == IN) {
+					this.in[x >>> 6] |= 1L << x;
+					// everything it attacks is OUT
+					for(int k = this.graph.getAttackedStart(x); k < this.graph.getAttackedEnd(x); k++) {
+						int y = this.graph.getAttacked(k);
+						this.inAttackers[y]++;
+						this.enqueue(-(y + 1));
+					}
+					// all its attackers are OUT
+					for(int k = this.graph.getAttackersStart(x); k < this.graph.getAttackersEnd(x); k++) {
+						this.enqueue(-(this.graph.getAttacker(k) + 1));
+					}
+				} else {
+					this.out[x >>> 6] |= 1L << x;
+					for(int k = this.graph.getAttackedStart(x); k < this.graph.getAttackedEnd(x); k++) {
+						int y = this.graph.getAttacked(k);
+						this.notOutAttackers[y]--;
+						if(this.inAttackers[y] == 0) {
+							if(this.notOutAttackers[y] == 0) {
+								// not attacked anymore: must be IN
+								this.enqueue(y + 1);
+							} else if(this.notOutAttackers[y] == 1 && this.label[y] == OUT) {
+								this.enqueue(this.lastAttacker(y) + 1);
+							}
+						}
+					}
+					// x needs an attacker IN
+					if(this.inAttackers[x] == 0) {
+						if(this.notOutAttackers[x] == 0) {
+							this.queueSize = 0;
+							return false;
+						}
+						if(this.notOutAttackers[x] == 1) {
+							this.enqueue(this.lastAttacker(x) + 1);
+						}
+					}
+				}
+			}
+			this.queueSize = 0;
+			return true;
+		}
+
+		/**
+		 * the only attacker of y not labelled OUT
+		 */
+		protected int lastAttacker(int y) {
+			for(int k = this.graph.getAttackersStart(y); k < this.graph.getAttackersEnd(y); k++) {
+				int z = this.graph.getAttacker(k);
+				if(this.label[z] != OUT) {
+					return z;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * removes all labels assigned after position mark of the trail
+		 */
+		protected void undo(int mark) {
+			while(this.trailSize > mark) {
+				this.trailSize--;
+				int x = this.trail[this.trailSize];
+				if(this.label[x] == IN) {
+					this.in[x >>> 6] &= ~(1L << x);
+					for(int k = this.graph.getAttackedStart(x); k < this.graph.getAttackedEnd(x); k++) {
+						this.inAttackers[this.graph.getAttacked(k)]--;
+					}
+				} else {
+					this.out[x >>> 6] &= ~(1L << x);
+					for(int k = this.graph.getAttackedStart(x); k < this.graph.getAttackedEnd(x); k++) {
+						this.notOutAttackers[this.graph.getAttacked(k)]++;
+					}
+				}
+				this.label[x] = UNDEC;
+			}
+		}
+	}
+}
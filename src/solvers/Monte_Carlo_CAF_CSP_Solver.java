@@ -12,6 +12,7 @@ import model.SupportingPowerRecorder;
 import util.Util;
 import model.StableControlConfiguration;
 import model.StableExtension;
+import util.RandomGen;
 
 /**
  * Use of Monte Carlo simulation to calculate 
@@ -26,17 +27,104 @@ public class Monte_Carlo_CAF_CSP_Solver {
 	public static int NO_CC = -2;
 
 	private ControlAF CAF;
+	// CAF given at construction (CAF is its relevant part with relevance pruning)
+	private ControlAF fullCAF;
 	private RandomCAFRootCompletionGenerator generator; 
 	private double controllingPower;
 	private Map<StableControlConfiguration, SupportingPowerRecorder> recorders;
 	private int total_simulations;
+	// number of threads running the simulations (1: sequential loop)
+	private int nbWorkers;
+	// control configurations of the completions already solved (null: no cache)
+	private Completion_Solution_Cache cache;
+	// number of simulations needed for an error level
+	private I_Stopping_Rule stoppingRule;
+	// stream of the draws (the streams of the workers are split from it)
+	private RandomGen random;
 
 	public Monte_Carlo_CAF_CSP_Solver(ControlAF CAF) {
 		this.CAF = CAF;
+		this.fullCAF = CAF;
 		this.generator = new RandomCAFRootCompletionGenerator(this.CAF);
 		this.controllingPower = INIT_CP;
 		this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 		this.total_simulations = 0;
+		this.nbWorkers = 1;
+		this.cache = new Completion_Solution_Cache();
+		this.stoppingRule = new Agresti_Coull_Stopping_Rule();
+		this.random = new RandomGen();
+	}
+
+	/**
+	 * number of threads running the simulations (see Parallel_Monte_Carlo_Engine)
+	 * each thread has its own generator and CSP_Completion_Solver
+	 * 1 by default (sequential loop)
+	 * @param nbWorkers
+	 */
+	public void setNbWorkers(int nbWorkers) {
+		this.nbWorkers = Math.max(1, nbWorkers);
+	}
+
+	/**
+	 * size of the cache of the control configurations of the completions already solved
+	 * (least recently used completions are removed first)
+	 * 0 disables the cache
+	 * @param size
+	 */
+	public void setCacheSize(int size) {
+		if(size <= 0) {
+			this.cache = null;
+		} else {
+			this.cache = new Completion_Solution_Cache(size);
+		}
+	}
+
+	/**
+	 * cache of the completions already solved (hit rate...), null if disabled
+	 */
+	public Completion_Solution_Cache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * rule giving the number of simulations needed for an error level
+	 * (Agresti_Coull_Stopping_Rule by default)
+	 * @param stoppingRule
+	 */
+	public void setStoppingRule(I_Stopping_Rule stoppingRule) {
+		this.stoppingRule = stoppingRule;
+	}
+
+	/**
+	 * random stream of the draws (by default the static methods of RandomGen)
+	 * the streams of the workers are split from it:
+	 * a seeded stream (new RandomGen(seed)) gives reproducible runs for a given number of workers
+	 * @param random
+	 */
+	public void setRandom(RandomGen random) {
+		this.random = random;
+		this.generator.setRandom(random);
+	}
+
+	/**
+	 * if true, the simulations run on the relevant part of the CAF (ControlAF.getRelevantPart)
+	 * instead of the whole CAF: the controlling power is the same, the control configurations
+	 * found have the removed control arguments off and the supporting power only counts the kept arguments
+	 * false by default
+	 * @param relevancePruning
+	 */
+	public void setRelevancePruning(boolean relevancePruning) {
+		this.CAF = relevancePruning ? this.fullCAF.getRelevantPart() : this.fullCAF;
+		this.generator = new RandomCAFRootCompletionGenerator(this.CAF);
+		this.generator.setRandom(this.random);
+		// the cache is keyed by completion only: its solutions belong to the previous CAF
+		if(this.cache != null) {
+			this.cache = new Completion_Solution_Cache(this.cache.getCapacity());
+		}
+		// results of the previous CAF (the CSP solvers are built for each completion)
+		this.controllingPower = INIT_CP;
+		this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
+		this.total_simulations = 0;
 	}
 
 	public int getNumberSimu() {
@@ -103,11 +191,19 @@ public class Monte_Carlo_CAF_CSP_Solver {
 		Map<StableControlConfiguration, Integer> result = new HashMap<StableControlConfiguration, Integer>();
 		Map<StableControlConfiguration, SupportingPowerRecorder> temp_recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 
+		if(this.nbWorkers > 1) {
+			Parallel_Monte_Carlo_Engine engine = this.getEngine(type);
+			engine.run(N);
+			return this.getControlConfigurations(engine);
+		}
 		this.controllingPower = INIT_CP;
 		for(int i = 0; i<N; i++) {
 			ArgumentFramework af = this.generator.getRandomRootCompletion();
 
-			CSP_Completion_Solver solver = new CSP_Completion_Solver(this.CAF, af);
+			I_Completion_Solver solver = new CSP_Completion_Solver(this.CAF, af);
+			if(this.cache != null) {
+				solver = new Cached_Completion_Solver(solver, this.cache);
+			}
 			Map<StableControlConfiguration, Set<StableExtension>> solutions = null;
 			Set<StableControlConfiguration> cc_list = null;
 			Set<StableExtension> stables = null;
@@ -135,7 +231,7 @@ public class Monte_Carlo_CAF_CSP_Solver {
 					recorder = temp_recorders.get(present);
 				} else {
 					result.put(scc, new Integer(1));
-					recorder = new SupportingPowerRecorder();
+					recorder = new SupportingPowerRecorder(this.CAF, false);
 					temp_recorders.put(scc,  recorder);
 				}
 				recorder.updateOccurencesList(stables, af);
@@ -177,6 +273,37 @@ public class Monte_Carlo_CAF_CSP_Solver {
 	}
 
 
+	/**
+	 * parallel engine (see Parallel_Monte_Carlo_Engine.CompletionSampler)
+	 * stops as soon as no control entity can have a controlling power of 1
+	 */
+	private Parallel_Monte_Carlo_Engine getEngine(int type) {
+		Parallel_Monte_Carlo_Engine engine = new Parallel_Monte_Carlo_Engine(this.CAF, I_Monte_Carlo_Solver.CSP_SOLVER, this.nbWorkers, type);
+		engine.setRandom(this.random);
+		engine.setCache(this.cache);
+		engine.setStoppingRule(this.stoppingRule);
+		engine.setStopWhenNotControlled(true);
+		return engine;
+	}
+
+	/**
+	 * same result as the sequential loops from the counts of the engine
+	 */
+	private Set<StableControlConfiguration> getControlConfigurations(Parallel_Monte_Carlo_Engine engine) {
+		this.total_simulations = engine.getNbSimulations();
+		if(engine.isStopped() || this.total_simulations == 0) {
+			this.controllingPower = NO_CC;
+			return null;
+		}
+		this.controllingPower = (double)engine.getMaxCount()/this.total_simulations;
+		if(controllingPower < 1) {
+			this.recorders = null;
+			return null;
+		}
+		this.recorders = engine.getMaxRecorders();
+		return engine.getMaxConfigurations();
+	}
+
 	/**
 	 * isolate the most probable controlling entities from
 	 * all found control entities
@@ -235,6 +362,11 @@ public class Monte_Carlo_CAF_CSP_Solver {
 		Map<StableControlConfiguration, Integer> result = new HashMap<StableControlConfiguration, Integer>();
 		Map<StableControlConfiguration, SupportingPowerRecorder> temp_recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 
+		if(this.nbWorkers > 1) {
+			Parallel_Monte_Carlo_Engine engine = this.getEngine(type);
+			engine.run(error);
+			return this.getControlConfigurations(engine);
+		}
 		this.controllingPower = INIT_CP;
 		double current_max = 0;
 		int N = Util.MINIMUM_SIMULATION;
@@ -243,7 +375,10 @@ public class Monte_Carlo_CAF_CSP_Solver {
 		while(current_simu < N || current_simu < util.Util.MINIMUM_SIMULATION) {
 			ArgumentFramework af = this.generator.getRandomRootCompletion();
 
-			CSP_Completion_Solver solver = new CSP_Completion_Solver(this.CAF, af);
+			I_Completion_Solver solver = new CSP_Completion_Solver(this.CAF, af);
+			if(this.cache != null) {
+				solver = new Cached_Completion_Solver(solver, this.cache);
+			}
 			Map<StableControlConfiguration, Set<StableExtension>> solutions = null;
 			Set<StableControlConfiguration> cc_list = null;
 			Set<StableExtension> stables = null;
@@ -274,7 +409,7 @@ public class Monte_Carlo_CAF_CSP_Solver {
 					}
 				} else {
 					result.put(scc, new Integer(1));
-					recorder = new SupportingPowerRecorder();
+					recorder = new SupportingPowerRecorder(this.CAF, false);
 					temp_recorders.put(scc,  recorder);
 					if(current_max <1) {
 						current_max = 1;
@@ -299,7 +434,7 @@ public class Monte_Carlo_CAF_CSP_Solver {
 				break;
 			}
 		
-			N = (int)util.Util.getNewSimulationNumber(current_max, current_simu, error);
+			N = (int)this.stoppingRule.getNewSimulationNumber(current_max, current_simu, error);
 		}
 
 		if(this.controllingPower > NO_CC) {
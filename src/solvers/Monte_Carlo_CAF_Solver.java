@@ -1,17 +1,21 @@
 package solvers;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import generators.ControllabilityEncoder;
 import generators.RandomCAFRootCompletionGenerator;
+import generators.RootCompletionEnumerator;
 import model.ArgumentFramework;
+import model.BitsetCompletion;
 import model.ControlAF;
 import model.SupportingPowerRecorder;
 import util.Util;
 import model.StableControlConfiguration;
 import model.StableExtension;
+import util.RandomGen;
 
 /**
  * Use of Monte Carlo simulation to calculate 
@@ -27,19 +31,160 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 	private static int NO_CC = -2;
 	
 	private ControlAF CAF;
+	// CAF given at construction (CAF is its relevant part with relevance pruning)
+	private ControlAF fullCAF;
 	private RandomCAFRootCompletionGenerator generator; 
 	private double controllingPower;
 	private Map<StableControlConfiguration, SupportingPowerRecorder> recorders;
 	private int total_simulations;
 	private int solver_type;
+	private Incremental_SAT_Completion_Solver session;
+	// SAT solver moved from one completion to the next (its encoder is reused)
+	private SAT_Completion_Solver satSolver;
+	// if false, only the control configurations are enumerated (no supporting power)
+	private boolean recordSupportingPower;
+	// number of threads running the simulations (1: sequential loop)
+	private int nbWorkers;
+	// control configurations of the completions already solved (null: no cache)
+	private Completion_Solution_Cache cache;
+	// all completions are enumerated if there are less than simulations to run
+	private boolean exactEnumeration;
+	private boolean exact;
+	// after the first simulation, only the remaining candidates are checked
+	private boolean candidateVerification;
+	// number of simulations needed for an error level
+	private I_Stopping_Rule stoppingRule;
+	// stream of the draws (the streams of the workers are split from it)
+	private RandomGen random;
 
 	public Monte_Carlo_CAF_Solver(ControlAF CAF, int solver_type) {
 		this.CAF = CAF;
+		this.fullCAF = CAF;
 		this.generator = new RandomCAFRootCompletionGenerator(this.CAF);
 		this.controllingPower = INIT_CP;
 		this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 		this.total_simulations = 0;
 		this.solver_type = solver_type;
+		this.recordSupportingPower = true;
+		this.nbWorkers = 1;
+		this.cache = new Completion_Solution_Cache();
+		this.exactEnumeration = true;
+		this.exact = false;
+		this.candidateVerification = true;
+		this.stoppingRule = new Agresti_Coull_Stopping_Rule();
+		this.random = new RandomGen();
+	}
+
+	/**
+	 * if true (default), all the root completions are enumerated once (RootCompletionEnumerator)
+	 * instead of sampled when there are less completions than simulations to run
+	 * (fixed number of simulations, or number projected for the error level)
+	 * @param exactEnumeration
+	 */
+	public void setExactEnumeration(boolean exactEnumeration) {
+		this.exactEnumeration = exactEnumeration;
+	}
+
+	/**
+	 * true if the last result comes from the enumeration of all the completions
+	 * (no sampling error)
+	 */
+	public boolean isExact() {
+		return this.exact;
+	}
+
+	/**
+	 * if true (default), the control configurations of the first completion are the candidates
+	 * and each following completion only checks the remaining candidates
+	 * (CSP_Completion_Verifier, SAT_Completion_Verifier or a query on the incremental SAT solver)
+	 * instead of enumerating all its control configurations
+	 * only used when the supporting power is not recorded (the recorders need all the extensions)
+	 * @param candidateVerification
+	 */
+	public void setCandidateVerification(boolean candidateVerification) {
+		this.candidateVerification = candidateVerification;
+	}
+
+	/**
+	 * if false, the extensions are not collected: each control configuration
+	 * is found once per completion (projected enumeration) and
+	 * getSupportingPowerRecorders() gives no recorder (null values)
+	 * true by default
+	 * @param recordSupportingPower
+	 */
+	public void setRecordSupportingPower(boolean recordSupportingPower) {
+		this.recordSupportingPower = recordSupportingPower;
+	}
+
+	/**
+	 * number of threads running the simulations (see Parallel_Monte_Carlo_Engine)
+	 * each thread has its own generator and completion solver
+	 * 1 by default (sequential loop)
+	 * @param nbWorkers
+	 */
+	public void setNbWorkers(int nbWorkers) {
+		this.nbWorkers = Math.max(1, nbWorkers);
+	}
+
+	/**
+	 * size of the cache of the control configurations of the completions already solved
+	 * (least recently used completions are removed first)
+	 * 0 disables the cache
+	 * @param size
+	 */
+	public void setCacheSize(int size) {
+		if(size <= 0) {
+			this.cache = null;
+		} else {
+			this.cache = new Completion_Solution_Cache(size);
+		}
+	}
+
+	/**
+	 * cache of the completions already solved (hit rate...), null if disabled
+	 */
+	public Completion_Solution_Cache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * rule giving the number of simulations needed for an error level
+	 * (Agresti_Coull_Stopping_Rule by default)
+	 * @param stoppingRule
+	 */
+	public void setStoppingRule(I_Stopping_Rule stoppingRule) {
+		this.stoppingRule = stoppingRule;
+	}
+
+	/**
+	 * random stream of the draws (by default the static methods of RandomGen)
+	 * the streams of the workers are split from it:
+	 * a seeded stream (new RandomGen(seed)) gives reproducible runs for a given number of workers
+	 * @param random
+	 */
+	public void setRandom(RandomGen random) {
+		this.random = random;
+		this.generator.setRandom(random);
+	}
+
+	/**
+	 * if true, the simulations run on the relevant part of the CAF (ControlAF.getRelevantPart)
+	 * instead of the whole CAF: the controlling power is the same, the control configurations
+	 * found have the removed control arguments off and the supporting power only counts the kept arguments
+	 * false by default
+	 * @param relevancePruning
+	 */
+	public void setRelevancePruning(boolean relevancePruning) {
+		this.CAF = relevancePruning ? this.fullCAF.getRelevantPart() : this.fullCAF;
+		this.generator = new RandomCAFRootCompletionGenerator(this.CAF);
+		this.generator.setRandom(this.random);
+		// completion solvers built on the previous CAF
+		this.session = null;
+		this.satSolver = null;
+		// the cache is keyed by completion only: its solutions belong to the previous CAF
+		if(this.cache != null) {
+			this.cache = new Completion_Solution_Cache(this.cache.getCapacity());
+		}
 	}
 
 	public int getNumberSimu() {
@@ -103,28 +248,123 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 	 * @return
 	 */
 	private Set<StableControlConfiguration> getControlConfigurations(int N, int type) {
+		if(this.isExactEnumeration(N)) {
+			return this.getExactControlConfigurations(type);
+		}
+		this.exact = false;
+		return this.getControlConfigurations(N, type, null);
+	}
+
+	/**
+	 * true if there are less root completions than projected simulations
+	 */
+	private boolean isExactEnumeration(double projected) {
+		return this.exactEnumeration && RootCompletionEnumerator.getSpaceSize(this.CAF.getCompletionSkeleton()) <= projected;
+	}
+
+	/**
+	 * control configurations found in all the root completions
+	 * each completion is solved once (same early exits as the simulations)
+	 */
+	private Set<StableControlConfiguration> getExactControlConfigurations(int type) {
+		this.exact = true;
+		RootCompletionEnumerator enumerator = new RootCompletionEnumerator(this.CAF.getCompletionSkeleton());
+		return this.getControlConfigurations(Integer.MAX_VALUE, type, enumerator);
+	}
+
+	/**
+	 * moves the incremental session to the current completion of the enumerator
+	 * only the bits changed by the last step are updated (all of them for the first completion)
+	 */
+	private void updateSession(RootCompletionEnumerator enumerator, BitsetCompletion completion) {
+		if(this.session == null) {
+			this.session = new Incremental_SAT_Completion_Solver(this.CAF);
+		}
+		if(enumerator.getNbChangedBits() < 0) {
+			this.session.setCompletion(completion);
+		} else {
+			for(int i = 0; i<enumerator.getNbChangedBits(); i++) {
+				this.session.updateBit(enumerator.getChangedBit(i));
+			}
+		}
+	}
+
+	/**
+	 * N simulations, or all the completions given by enumerator if not null
+	 */
+	private Set<StableControlConfiguration> getControlConfigurations(int N, int type, RootCompletionEnumerator enumerator) {
 		Map<StableControlConfiguration, Integer> result = new HashMap<StableControlConfiguration, Integer>();
 		Map<StableControlConfiguration, SupportingPowerRecorder> temp_recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 
+		if(this.nbWorkers > 1 && enumerator == null) {
+			Parallel_Monte_Carlo_Engine engine = this.getEngine(type);
+			engine.run(N);
+			return this.getControlConfigurations(engine);
+		}
+		// control configurations that can still have a controlling power of 1 (null: not known yet)
+		Set<StableControlConfiguration> candidates = null;
 		this.controllingPower = INIT_CP;
 		for(int i = 0; i<N; i++) {
-			ArgumentFramework af = this.generator.getRandomRootCompletion();
-
+			ArgumentFramework af = null;
 			I_Completion_Solver solver = null;
-			if(this.solver_type == I_Monte_Carlo_Solver.CSP_SOLVER) {
-				solver = new CSP_Completion_Solver(this.CAF, af);
+			if(enumerator == null) {
+				af = this.generator.getRandomRootCompletion();
+			} else if(enumerator.hasNext()) {
+				BitsetCompletion completion = enumerator.next();
+				if(this.solver_type == I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER) {
+					// only the bits changed since the previous completion are given to the session
+					this.updateSession(enumerator, completion);
+					solver = this.session;
+				} else {
+					af = completion.toArgumentFramework();
+				}
 			} else {
-				solver = new SAT_Completion_Solver(this.CAF, af);
+				// all the completions have been treated
+				N = i;
+				break;
+			}
+
+			if(solver == null) {
+				if(this.solver_type == I_Monte_Carlo_Solver.CSP_SOLVER) {
+					solver = new CSP_Completion_Solver(this.CAF, af);
+				} else if(this.solver_type == I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER) {
+					// the CAF is encoded once, only the completion changes
+					if(this.session == null) {
+						this.session = new Incremental_SAT_Completion_Solver(this.CAF);
+					}
+					this.session.setCompletion(af);
+					solver = this.session;
+				} else {
+					if(this.satSolver == null) {
+						this.satSolver = new SAT_Completion_Solver(this.CAF, af);
+					}
+					this.satSolver.setCompletion(af);
+					solver = this.satSolver;
+				}
+			}
+			// no completion is enumerated twice
+			if(this.cache != null && enumerator == null) {
+				solver = new Cached_Completion_Solver(solver, this.cache);
 			}
 			Map<StableControlConfiguration, Set<StableExtension>> solutions = null;
 			Set<StableControlConfiguration> cc_list = null;
-			Set<StableExtension> stables = null;
-			if(type == ControllabilityEncoder.CREDULOUS) {
-				solutions = solver.getCredulousControlConfigurations();
+			if(candidates != null) {
+				cc_list = this.verifyCandidates(candidates, solver, type, this.solver_type);
+			} else if(!this.recordSupportingPower) {
+				// control configurations only (projected enumeration), no extension collected
+				if(type == ControllabilityEncoder.CREDULOUS) {
+					cc_list = solver.getCredulousControlConfigurationsOnly();
+				} else {
+					cc_list = solver.getSkepticalControlConfigurationsOnly();
+				}
 			} else {
-				solutions = solver.getSkepticalControlConfigurations();
+				if(type == ControllabilityEncoder.CREDULOUS) {
+					solutions = solver.getCredulousControlConfigurations();
+				} else {
+					solutions = solver.getSkepticalControlConfigurations();
+				}
+				cc_list = solutions.keySet();
 			}
-			cc_list = solutions.keySet();
 			SupportingPowerRecorder recorder = null;
 			// if there ever is a root AF with no control configuration
 			// we can stop the search here
@@ -134,7 +374,6 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 				break;
 			}
 			for(StableControlConfiguration scc : cc_list) {
-				stables = solutions.get(scc);
 				StableControlConfiguration present = util.Util.find(result.keySet(), scc);
 				if(present != null) {
 					Integer count = result.get(present);
@@ -143,10 +382,14 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 					recorder = temp_recorders.get(present);
 				} else {
 					result.put(scc, new Integer(1));
-					recorder = new SupportingPowerRecorder();
-					temp_recorders.put(scc,  recorder);
+					if(solutions != null) {
+						recorder = new SupportingPowerRecorder(this.CAF, false);
+						temp_recorders.put(scc,  recorder);
+					}
+				}
+				if(solutions != null) {
+					recorder.updateOccurencesList(solutions.get(scc), solver.getCompletion());
 				}
-				recorder.updateOccurencesList(stables, af);
 			}
 			// here must check if we still have a control entity with controlling power of 1
 			// if not we can stop the simulation at this point
@@ -157,6 +400,10 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 				this.total_simulations = i;
 				break;
 			}
+			if(this.candidateVerification && !this.recordSupportingPower) {
+				// found in all the completions so far
+				candidates = cc_list;
+			}
 
 		}
 
@@ -179,6 +426,80 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 	}
 
 
+	/**
+	 * candidates that control the completion of solver
+	 * one check per candidate instead of the enumeration of all the control configurations
+	 * (skeptical control configurations are also credulous ones, as for the solvers)
+	 * @param verifier_type: solver type of the check (I_Monte_Carlo_Solver.CSP_SOLVER...)
+	 */
+	private Set<StableControlConfiguration> verifyCandidates(Set<StableControlConfiguration> candidates, I_Completion_Solver solver, int type, int verifier_type) {
+		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
+		if(verifier_type == I_Monte_Carlo_Solver.CSP_SOLVER) {
+			CSP_Completion_Verifier verifier = new CSP_Completion_Verifier(this.CAF, solver.getCompletion());
+			for(StableControlConfiguration scc : candidates) {
+				if(verifier.isCredulousControlConfigurations(scc) && (type == ControllabilityEncoder.CREDULOUS || verifier.isSkepticalControlConfigurations(scc))) {
+					result.add(scc);
+				}
+			}
+			return result;
+		}
+		SAT_Completion_Verifier verifier = null;
+		for(StableControlConfiguration scc : candidates) {
+			boolean controlled = false;
+			if(verifier_type == I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER) {
+				// the session is already on the completion
+				controlled = this.session.isCredulousControlConfiguration(scc);
+			} else {
+				if(verifier == null) {
+					verifier = new SAT_Completion_Verifier(this.CAF, solver.getCompletion());
+				}
+				controlled = verifier.isCredulousControlConfigurations(scc);
+			}
+			if(controlled && type == ControllabilityEncoder.SKEPTICAL) {
+				if(verifier == null) {
+					verifier = new SAT_Completion_Verifier(this.CAF, solver.getCompletion());
+				}
+				controlled = verifier.isSkepticalControlConfigurations(scc);
+			}
+			if(controlled) {
+				result.add(scc);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * parallel engine (see Parallel_Monte_Carlo_Engine.CompletionSampler)
+	 * stops as soon as no control entity can have a controlling power of 1
+	 */
+	private Parallel_Monte_Carlo_Engine getEngine(int type) {
+		Parallel_Monte_Carlo_Engine engine = new Parallel_Monte_Carlo_Engine(this.CAF, this.solver_type, this.nbWorkers, type);
+		engine.setRandom(this.random);
+		engine.setCache(this.cache);
+		engine.setStoppingRule(this.stoppingRule);
+		engine.setRecordSupportingPower(this.recordSupportingPower);
+		engine.setStopWhenNotControlled(true);
+		return engine;
+	}
+
+	/**
+	 * same result as the sequential loops from the counts of the engine
+	 */
+	private Set<StableControlConfiguration> getControlConfigurations(Parallel_Monte_Carlo_Engine engine) {
+		this.total_simulations = engine.getNbSimulations();
+		if(engine.isStopped() || this.total_simulations == 0) {
+			this.controllingPower = NO_CC;
+			return null;
+		}
+		this.controllingPower = (double)engine.getMaxCount()/this.total_simulations;
+		if(controllingPower < 1) {
+			this.recorders = null;
+			return null;
+		}
+		this.recorders = engine.getMaxRecorders();
+		return engine.getMaxConfigurations();
+	}
+
 	/**
 	 * isolate the most probable controlling entities from
 	 * all found control entities
@@ -237,24 +558,50 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 		Map<StableControlConfiguration, Integer> result = new HashMap<StableControlConfiguration, Integer>();
 		Map<StableControlConfiguration, SupportingPowerRecorder> temp_recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 
+		// simulations needed if the first ones all have a control configuration
+		double projected = Math.max(Util.MINIMUM_SIMULATION, this.stoppingRule.getNewSimulationNumber(Util.MINIMUM_SIMULATION, Util.MINIMUM_SIMULATION, error));
+		if(this.isExactEnumeration(projected)) {
+			return this.getExactControlConfigurations(type);
+		}
+		this.exact = false;
+		if(this.nbWorkers > 1) {
+			Parallel_Monte_Carlo_Engine engine = this.getEngine(type);
+			engine.run(error);
+			return this.getControlConfigurations(engine);
+		}
 		this.controllingPower = INIT_CP;
 		double current_max = 0;
 		int N = Util.MINIMUM_SIMULATION;
 		int current_simu = 0;
+		Set<StableControlConfiguration> candidates = null;
 		
 		while(current_simu < N || current_simu < util.Util.MINIMUM_SIMULATION) {
 			ArgumentFramework af = this.generator.getRandomRootCompletion();
 
-			CSP_Completion_Solver solver = new CSP_Completion_Solver(this.CAF, af);
+			I_Completion_Solver solver = new CSP_Completion_Solver(this.CAF, af);
+			if(this.cache != null) {
+				solver = new Cached_Completion_Solver(solver, this.cache);
+			}
 			Map<StableControlConfiguration, Set<StableExtension>> solutions = null;
 			Set<StableControlConfiguration> cc_list = null;
-			Set<StableExtension> stables = null;
-			if(type == ControllabilityEncoder.CREDULOUS) {
-				solutions = solver.getCredulousControlConfigurations();
+			if(candidates != null) {
+				// the solver of this loop is always a CSP_Completion_Solver
+				cc_list = this.verifyCandidates(candidates, solver, type, I_Monte_Carlo_Solver.CSP_SOLVER);
+			} else if(!this.recordSupportingPower) {
+				// control configurations only (projected enumeration), no extension collected
+				if(type == ControllabilityEncoder.CREDULOUS) {
+					cc_list = solver.getCredulousControlConfigurationsOnly();
+				} else {
+					cc_list = solver.getSkepticalControlConfigurationsOnly();
+				}
 			} else {
-				solutions = solver.getSkepticalControlConfigurations();
+				if(type == ControllabilityEncoder.CREDULOUS) {
+					solutions = solver.getCredulousControlConfigurations();
+				} else {
+					solutions = solver.getSkepticalControlConfigurations();
+				}
+				cc_list = solutions.keySet();
 			}
-			cc_list = solutions.keySet();
 			SupportingPowerRecorder recorder = null;
 			// if there ever is a root AF with no control configuration
 			// we can stop the search here
@@ -264,7 +611,6 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 				break;
 			}
 			for(StableControlConfiguration scc : cc_list) {
-				stables = solutions.get(scc);
 				StableControlConfiguration present = util.Util.find(result.keySet(), scc);
 				if(present != null) {
 					Integer count = result.get(present);
@@ -276,13 +622,17 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 					}
 				} else {
 					result.put(scc, new Integer(1));
-					recorder = new SupportingPowerRecorder();
-					temp_recorders.put(scc,  recorder);
+					if(solutions != null) {
+						recorder = new SupportingPowerRecorder(this.CAF, false);
+						temp_recorders.put(scc,  recorder);
+					}
 					if(current_max <1) {
 						current_max = 1;
 					}
 				}
-				recorder.updateOccurencesList(stables, af);
+				if(solutions != null) {
+					recorder.updateOccurencesList(solutions.get(scc), af);
+				}
 				/*
 				if(type == ControllabilityEncoder.CREDULOUS) {
 					recorder.updateOccurencesListCred(stables);
@@ -300,8 +650,11 @@ public class Monte_Carlo_CAF_Solver implements I_Monte_Carlo_Solver {
 				this.total_simulations = current_simu;
 				break;
 			}
+			if(this.candidateVerification && !this.recordSupportingPower) {
+				candidates = cc_list;
+			}
 		
-			N = (int)util.Util.getNewSimulationNumber(current_max, current_simu, error);
+			N = (int)this.stoppingRule.getNewSimulationNumber(current_max, current_simu, error);
 		}
 
 		if(this.controllingPower > NO_CC) {
@@ -35,6 +35,8 @@ public class Monte_Carlo_CAF_Solver_Heuristic {
 	private double controllingPower;
 	//private Map<StableControlConfiguration, SupportingPowerRecorder> recorders;
 	private int total_simulations;
+	// number of simulations needed for an error level
+	private I_Stopping_Rule stoppingRule;
 
 	public Monte_Carlo_CAF_Solver_Heuristic(ControlAF CAF) {
 		this.CAF = CAF;
@@ -42,6 +44,16 @@ public class Monte_Carlo_CAF_Solver_Heuristic {
 		this.controllingPower = INIT_CP;
 		//this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 		this.total_simulations = 0;
+		this.stoppingRule = new Agresti_Coull_Stopping_Rule();
+	}
+
+	/**
+	 * rule giving the number of simulations needed for an error level
+	 * (Agresti_Coull_Stopping_Rule by default)
+	 * @param stoppingRule
+	 */
+	public void setStoppingRule(I_Stopping_Rule stoppingRule) {
+		this.stoppingRule = stoppingRule;
 	}
 
 	public int getNumberSimu() {
@@ -205,7 +217,7 @@ public class Monte_Carlo_CAF_Solver_Heuristic {
 				break;
 			}
 
-			N = (int)util.Util.getNewSimulationNumber(current_max, current_simu, error);
+			N = (int)this.stoppingRule.getNewSimulationNumber(current_max, current_simu, error);
 		}
 
 		if(this.controllingPower > NO_CC) {
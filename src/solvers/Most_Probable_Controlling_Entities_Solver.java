@@ -1,16 +1,22 @@
 package solvers;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import generators.BiasedPCAFRootCompletionGenerator;
 import generators.ControllabilityEncoder;
 import generators.RandomPCAFRootCompletionGenerator;
+import generators.RootCompletionEnumerator;
+import generators.SamplingPlan;
 import model.ArgumentFramework;
+import model.BitsetCompletion;
 import model.PControlAF;
 import model.StableControlConfiguration;
 import model.StableExtension;
 import model.SupportingPowerRecorder;
+import util.RandomGen;
 import util.Util;
 
 /**
@@ -22,7 +28,12 @@ import util.Util;
  *
  */
 public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_Solver {
+	// below this number of draws of either outcome (controlled or not), the intervals of the sampling plans
+	// and of importance sampling are not trusted alone: the Agresti-Coull half width is a floor
+	private static final int MINIMUM_OUTCOMES = 10;
 	private PControlAF PCAF;
+	// PCAF given at construction (PCAF is its relevant part with relevance pruning)
+	private PControlAF fullPCAF;
 	private RandomPCAFRootCompletionGenerator generator; 
 	private double controllingPower;
 	private int total_simulations;
@@ -30,9 +41,30 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 	private double min_interval;
 	private double max_interval;
 	private int solver_type;
+	private Incremental_SAT_Completion_Solver session;
+	// SAT solver moved from one completion to the next (its encoder is reused)
+	private SAT_Completion_Solver satSolver;
+	// if false, only the control configurations are enumerated (no supporting power)
+	private boolean recordSupportingPower;
+	// number of threads running the simulations (1: sequential loop)
+	private int nbWorkers;
+	// control configurations of the completions already solved (null: no cache)
+	private Completion_Solution_Cache cache;
+	// all completions are enumerated if there are less than simulations to run
+	private boolean exactEnumeration;
+	private boolean exact;
+	// number of simulations needed for an error level
+	private I_Stopping_Rule stoppingRule;
+	// share of the probabilities moved toward completions hard for the target (0: no importance sampling)
+	private double importanceBias;
+	// plan of the draws (SamplingPlan.NONE: independent draws)
+	private int samplingPlan;
+	// stream of the draws (the streams of the workers are split from it)
+	private RandomGen random;
 	
 	public Most_Probable_Controlling_Entities_Solver(PControlAF PCAF, int solver_type) {
 		this.PCAF = PCAF;
+		this.fullPCAF = PCAF;
 		this.generator = new RandomPCAFRootCompletionGenerator(this.PCAF);
 		this.controllingPower = -1;
 		this.total_simulations = 0;
@@ -40,8 +72,147 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 		this.min_interval = 0;
 		this.max_interval = 0;
 		this.solver_type = solver_type;
+		this.recordSupportingPower = true;
+		this.nbWorkers = 1;
+		this.cache = new Completion_Solution_Cache();
+		this.exactEnumeration = true;
+		this.exact = false;
+		this.stoppingRule = new Agresti_Coull_Stopping_Rule();
+		this.importanceBias = 0;
+		this.samplingPlan = SamplingPlan.NONE;
+		this.random = new RandomGen();
 	}
 	
+	/**
+	 * if true (default), all the root completions are enumerated once (RootCompletionEnumerator)
+	 * and weighted by their probability (Completion_Proba_Calculator)
+	 * instead of sampled when there are less completions than simulations to run
+	 * (fixed number of simulations, or highest number asked for the error level)
+	 * @param exactEnumeration
+	 */
+	public void setExactEnumeration(boolean exactEnumeration) {
+		this.exactEnumeration = exactEnumeration;
+	}
+	
+	/**
+	 * true if the last result comes from the enumeration of all the completions
+	 * (no sampling error, the interval is reduced to the controlling power)
+	 */
+	public boolean isExact() {
+		return this.exact;
+	}
+	
+	/**
+	 * if false, the extensions are not collected: each control configuration
+	 * is found once per completion (projected enumeration) and
+	 * getSupportingPowerRecorders() gives no recorder (null values)
+	 * true by default
+	 * @param recordSupportingPower
+	 */
+	public void setRecordSupportingPower(boolean recordSupportingPower) {
+		this.recordSupportingPower = recordSupportingPower;
+	}
+
+	/**
+	 * number of threads running the simulations (see Parallel_Monte_Carlo_Engine)
+	 * each thread has its own generator and completion solver
+	 * 1 by default (sequential loop)
+	 * @param nbWorkers
+	 */
+	public void setNbWorkers(int nbWorkers) {
+		this.nbWorkers = Math.max(1, nbWorkers);
+	}
+
+	/**
+	 * size of the cache of the control configurations of the completions already solved
+	 * (least recently used completions are removed first)
+	 * 0 disables the cache
+	 * @param size
+	 */
+	public void setCacheSize(int size) {
+		if(size <= 0) {
+			this.cache = null;
+		} else {
+			this.cache = new Completion_Solution_Cache(size);
+		}
+	}
+
+	/**
+	 * cache of the completions already solved (hit rate...), null if disabled
+	 */
+	public Completion_Solution_Cache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * rule giving the number of simulations needed for an error level
+	 * (Agresti_Coull_Stopping_Rule by default)
+	 * @param stoppingRule
+	 */
+	public void setStoppingRule(I_Stopping_Rule stoppingRule) {
+		this.stoppingRule = stoppingRule;
+	}
+
+	/**
+	 * random stream of the draws (by default the static methods of RandomGen)
+	 * used by the generators of all the modes (sampling plan, importance sampling),
+	 * the streams of the workers are split from it:
+	 * a seeded stream (new RandomGen(seed)) gives reproducible runs for a given number of workers
+	 * @param random
+	 */
+	public void setRandom(RandomGen random) {
+		this.random = random;
+		this.generator.setRandom(random);
+	}
+
+	/**
+	 * if true, the simulations run on the relevant part of the PCAF (ControlAF.getRelevantPart)
+	 * instead of the whole PCAF: the controlling power is the same, the control configurations
+	 * found have the removed control arguments off and the supporting power only counts the kept arguments
+	 * false by default
+	 * @param relevancePruning
+	 */
+	public void setRelevancePruning(boolean relevancePruning) {
+		this.PCAF = relevancePruning ? this.fullPCAF.getRelevantPart() : this.fullPCAF;
+		this.generator = new RandomPCAFRootCompletionGenerator(this.PCAF);
+		this.generator.setRandom(this.random);
+		// completion solvers built on the previous CAF
+		this.session = null;
+		this.satSolver = null;
+		// the cache is keyed by completion only: its solutions belong to the previous PCAF
+		if(this.cache != null) {
+			this.cache = new Completion_Solution_Cache(this.cache.getCapacity());
+		}
+	}
+
+	/**
+	 * importance sampling: the completions are drawn from a BiasedPCAFRootCompletionGenerator
+	 * (bias in [0, 1), 0 by default: the distribution of the PCAF) and reweighted by their likelihood ratio
+	 * makes the rare completions not controlled by the best entities frequent
+	 * (tight intervals for controlling powers close to 1)
+	 * the supporting power is not recorded and the simulations are sequential in this mode
+	 * @param bias
+	 */
+	public void setImportanceSampling(double bias) {
+		if(bias < 0 || bias >= 1) {
+			throw new IllegalArgumentException("bias must be in [0, 1)");
+		}
+		this.importanceBias = bias;
+	}
+
+	/**
+	 * variance reduction: the completions are drawn by batches following a SamplingPlan
+	 * (SamplingPlan.ANTITHETIC, LATIN_HYPERCUBE or STRATIFIED, NONE by default)
+	 * the confidence interval comes from the dispersion of the batches (independent replicates)
+	 * instead of the binomial variance, so it is reached with less simulations
+	 * the supporting power is not recorded and the simulations are sequential in this mode
+	 * (importance sampling, if set, comes first)
+	 * @param type
+	 */
+	public void setSamplingPlan(int type) {
+		this.samplingPlan = type;
+	}
+
 	public int getNumberSimu() {
 		return this.total_simulations;
 	}
@@ -91,29 +262,49 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 		Map<StableControlConfiguration, Integer> result = new HashMap<StableControlConfiguration, Integer>();
 		Map<StableControlConfiguration, SupportingPowerRecorder> temp_recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 		
+		if(this.isExactEnumeration(N)) {
+			return this.getExactMostProbableControllingEntities(type);
+		}
+		this.exact = false;
+		if(this.importanceBias > 0) {
+			return this.getImportanceSamplingControllingEntities(N, type, 0);
+		}
+		if(this.samplingPlan != SamplingPlan.NONE) {
+			return this.getPlannedControllingEntities(N, type, 0);
+		}
+		if(this.nbWorkers > 1) {
+			Parallel_Monte_Carlo_Engine engine = this.getEngine(type);
+			engine.run(N);
+			return this.getMostProbableControllingEntities(engine);
+		}
 		this.controllingPower = -1;
 		
 		for(int i = 0; i<N; i++) {
 			ArgumentFramework af = this.generator.getRandomRootCompletion();
 			
-			I_Completion_Solver solver = null;
-			if(this.solver_type == I_Monte_Carlo_Solver.CSP_SOLVER) {
-				solver = new CSP_Completion_Solver(this.PCAF, af);
-			} else {
-				solver = new SAT_Completion_Solver(this.PCAF, af);
+			I_Completion_Solver solver = this.getSolver(af);
+			if(this.cache != null) {
+				solver = new Cached_Completion_Solver(solver, this.cache);
 			}
 			Map<StableControlConfiguration, Set<StableExtension>> solutions = null;
 			Set<StableControlConfiguration> cc_list = null;
-			Set<StableExtension> stables = null;
-			if(type == ControllabilityEncoder.CREDULOUS) {
-				solutions = solver.getCredulousControlConfigurations();
+			if(!this.recordSupportingPower) {
+				// control configurations only (projected enumeration), no extension collected
+				if(type == ControllabilityEncoder.CREDULOUS) {
+					cc_list = solver.getCredulousControlConfigurationsOnly();
+				} else {
+					cc_list = solver.getSkepticalControlConfigurationsOnly();
+				}
 			} else {
-				solutions = solver.getSkepticalControlConfigurations();
+				if(type == ControllabilityEncoder.CREDULOUS) {
+					solutions = solver.getCredulousControlConfigurations();
+				} else {
+					solutions = solver.getSkepticalControlConfigurations();
+				}
+				cc_list = solutions.keySet();
 			}
-			cc_list = solutions.keySet();
 			SupportingPowerRecorder recorder = null;
 			for(StableControlConfiguration scc : cc_list) {
-				stables = solutions.get(scc);
 				StableControlConfiguration present = util.Util.find(result.keySet(), scc);
 				if(present != null) {
 					Integer count = result.get(present);
@@ -122,10 +313,14 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 					recorder = temp_recorders.get(present);
 				} else {
 					result.put(scc, new Integer(1));
-					recorder = new SupportingPowerRecorder();
-					temp_recorders.put(scc,  recorder);
+					if(solutions != null) {
+						recorder = new SupportingPowerRecorder(this.PCAF, false);
+						temp_recorders.put(scc,  recorder);
+					}
+				}
+				if(solutions != null) {
+					recorder.updateOccurencesList(solutions.get(scc), af);
 				}
-				recorder.updateOccurencesList(stables, af);
 				/*
 				if(type == ControllabilityEncoder.CREDULOUS) {
 					recorder.updateOccurencesListCred(stables);
@@ -143,6 +338,400 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 		return selection;
 	}
 	 
+	 /**
+	  * parallel engine (see Parallel_Monte_Carlo_Engine.CompletionSampler)
+	  * all the simulations are run (no early exit)
+	  */
+	 private Parallel_Monte_Carlo_Engine getEngine(int type) {
+		 Parallel_Monte_Carlo_Engine engine = new Parallel_Monte_Carlo_Engine(this.PCAF, this.solver_type, this.nbWorkers, type);
+		 engine.setRandom(this.random);
+		 engine.setCache(this.cache);
+		 engine.setStoppingRule(this.stoppingRule);
+		 engine.setRecordSupportingPower(this.recordSupportingPower);
+		 return engine;
+	 }
+
+	 /**
+	  * same result as the sequential loops from the counts of the engine
+	  */
+	 private Set<StableControlConfiguration> getMostProbableControllingEntities(Parallel_Monte_Carlo_Engine engine) {
+		 this.controllingPower = -1;
+		 this.setControllingPower(engine.getCounts());
+		 this.total_simulations = engine.getNbSimulations();
+		 this.recorders = engine.getMaxRecorders();
+		 Set<StableControlConfiguration> selection = engine.getMaxConfigurations();
+		 this.controllingPower = this.controllingPower/this.total_simulations;
+		 this.min_interval = this.controllingPower - this.getConfidenceInterval(this.total_simulations);
+		 this.max_interval = this.controllingPower + this.getConfidenceInterval(this.total_simulations);
+		 return selection;
+	 }
+
+	 /**
+	  * completion solver of the chosen type
+	  */
+	 private I_Completion_Solver getSolver(ArgumentFramework af) {
+		 if(this.solver_type == I_Monte_Carlo_Solver.CSP_SOLVER) {
+			 return new CSP_Completion_Solver(this.PCAF, af);
+		 } else if(this.solver_type == I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER) {
+			 // the CAF is encoded once, only the completion changes
+			 if(this.session == null) {
+				 this.session = new Incremental_SAT_Completion_Solver(this.PCAF);
+			 }
+			 this.session.setCompletion(af);
+			 return this.session;
+		 }
+		 if(this.satSolver == null) {
+			 this.satSolver = new SAT_Completion_Solver(this.PCAF, af);
+		 }
+		 this.satSolver.setCompletion(af);
+		 return this.satSolver;
+	 }
+
+	 /**
+	  * moves the incremental session to the current completion of the enumerator
+	  * only the bits changed by the last step are updated (all of them for the first completion)
+	  */
+	 private void updateSession(RootCompletionEnumerator enumerator, BitsetCompletion completion) {
+		 if(this.session == null) {
+			 this.session = new Incremental_SAT_Completion_Solver(this.PCAF);
+		 }
+		 if(enumerator.getNbChangedBits() < 0) {
+			 this.session.setCompletion(completion);
+		 } else {
+			 for(int i = 0; i<enumerator.getNbChangedBits(); i++) {
+				 this.session.updateBit(enumerator.getChangedBit(i));
+			 }
+		 }
+	 }
+
+	 /**
+	  * true if there are less root completions than projected simulations
+	  */
+	 private boolean isExactEnumeration(double projected) {
+		 return this.exactEnumeration && RootCompletionEnumerator.getSpaceSize(this.PCAF.getCompletionSkeleton()) <= projected;
+	 }
+
+	 /**
+	  * returns the most probable controlling entities
+	  * by enumeration of all the root completions, each one weighted by its probability
+	  * the controlling power is exact (no confidence interval)
+	  * @param type: ControllabilityEncoder.CREDULOUS or ControllabilityEncoder.SKEPTICAL
+	  * @return
+	  */
+	 private Set<StableControlConfiguration> getExactMostProbableControllingEntities(int type) {
+		 // probability of the completions controlled by each entity (one slot: no boxing)
+		 Map<StableControlConfiguration, double[]> result = new HashMap<StableControlConfiguration, double[]>();
+		 Map<StableControlConfiguration, SupportingPowerRecorder> temp_recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
+		 Completion_Proba_Calculator calculator = new Completion_Proba_Calculator(this.PCAF);
+		 RootCompletionEnumerator enumerator = new RootCompletionEnumerator(this.PCAF.getCompletionSkeleton());
+
+		 this.exact = true;
+		 int nbCompletions = 0;
+		 while(enumerator.hasNext()) {
+			 BitsetCompletion completion = enumerator.next();
+			 nbCompletions++;
+			 I_Completion_Solver solver = null;
+			 if(this.solver_type == I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER) {
+				 // the session follows every step (even skipped completions) of the enumerator
+				 this.updateSession(enumerator, completion);
+				 solver = this.session;
+			 }
+			 double proba = calculator.getProbability(completion);
+			 // never drawn by the simulations
+			 if(proba <= 0) {
+				 continue;
+			 }
+			 if(solver == null) {
+				 solver = this.getSolver(completion.toArgumentFramework());
+			 }
+			 Map<StableControlConfiguration, Set<StableExtension>> solutions = null;
+			 Set<StableControlConfiguration> cc_list = null;
+			 if(!this.recordSupportingPower) {
+				 if(type == ControllabilityEncoder.CREDULOUS) {
+					 cc_list = solver.getCredulousControlConfigurationsOnly();
+				 } else {
+					 cc_list = solver.getSkepticalControlConfigurationsOnly();
+				 }
+			 } else {
+				 if(type == ControllabilityEncoder.CREDULOUS) {
+					 solutions = solver.getCredulousControlConfigurations();
+				 } else {
+					 solutions = solver.getSkepticalControlConfigurations();
+				 }
+				 cc_list = solutions.keySet();
+			 }
+			 for(StableControlConfiguration scc : cc_list) {
+				 double[] weight = result.get(scc);
+				 if(weight == null) {
+					 weight = new double[1];
+					 result.put(scc, weight);
+				 }
+				 weight[0] += proba;
+				 if(solutions != null) {
+					 SupportingPowerRecorder recorder = temp_recorders.get(scc);
+					 if(recorder == null) {
+						 recorder = new SupportingPowerRecorder(this.PCAF, false);
+						 temp_recorders.put(scc, recorder);
+					 }
+					 recorder.updateOccurencesList(solutions.get(scc), solver.getCompletion());
+				 }
+			 }
+		 }
+
+		 this.controllingPower = 0;
+		 for(double[] weight : result.values()) {
+			 if(weight[0] > this.controllingPower) {
+				 this.controllingPower = weight[0];
+			 }
+		 }
+		 // sums of the same probabilities in a different order may differ on the last bits
+		 double tolerance = 1e-12;
+		 Set<StableControlConfiguration> selection = new HashSet<StableControlConfiguration>();
+		 this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
+		 for(StableControlConfiguration scc : result.keySet()) {
+			 if(result.get(scc)[0] >= this.controllingPower - tolerance) {
+				 selection.add(scc);
+				 this.recorders.put(scc, temp_recorders.get(scc));
+			 }
+		 }
+		 this.controllingPower = Math.min(1, this.controllingPower);
+		 this.total_simulations = nbCompletions;
+		 this.min_interval = this.controllingPower;
+		 this.max_interval = this.controllingPower;
+		 return selection;
+	 }
+
+	 /**
+	  * returns the most probable controlling entities by importance sampling
+	  * each completion drawn from the biased distribution q is weighted by p/q
+	  * (Completion_Proba_Calculator on the PCAF and on the proposal of the generator)
+	  * the controlling power of a control entity is the weight of the completions it controls
+	  * divided by the weight of all the completions (self normalised: 1 if it controls them all)
+	  * if error > 0, stops (after Util.MINIMUM_SIMULATION simulations at least) once the half width
+	  * of the confidence interval of the best entity is at most error
+	  * @param N maximal number of simulations
+	  * @param type: ControllabilityEncoder.CREDULOUS or ControllabilityEncoder.SKEPTICAL
+	  * @param error 0 to run exactly N simulations
+	  * @return
+	  */
+	 private Set<StableControlConfiguration> getImportanceSamplingControllingEntities(int N, int type, double error) {
+		 // sum of the weights and of the squared weights and number of the completions controlled by each entity
+		 Map<StableControlConfiguration, double[]> result = new HashMap<StableControlConfiguration, double[]>();
+		 // same sums for all the completions
+		 double[] total = new double[3];
+		 BiasedPCAFRootCompletionGenerator biased = new BiasedPCAFRootCompletionGenerator(this.PCAF, this.importanceBias);
+		 biased.setRandom(this.random);
+		 Completion_Proba_Calculator nominal = new Completion_Proba_Calculator(this.PCAF);
+		 Completion_Proba_Calculator proposal = new Completion_Proba_Calculator(biased.getProposal());
+		 BitsetCompletion completion = new BitsetCompletion(this.PCAF.getCompletionSkeleton());
+
+		 double[] best = null;
+		 int current_simu = 0;
+		 while(current_simu < N) {
+			 biased.fillRandomCompletion(completion);
+			 double weight = nominal.getProbability(completion)/proposal.getProbability(completion);
+			 total[0] += weight;
+			 total[1] += weight*weight;
+			 total[2]++;
+			 Set<StableControlConfiguration> cc_list = this.getControlConfigurationsOnly(completion, type);
+			 for(StableControlConfiguration scc : cc_list) {
+				 double[] sums = result.get(scc);
+				 if(sums == null) {
+					 sums = new double[3];
+					 result.put(scc, sums);
+				 }
+				 sums[0] += weight;
+				 sums[1] += weight*weight;
+				 sums[2]++;
+				 if(best == null || sums[0] > best[0]) {
+					 best = sums;
+				 }
+			 }
+			 current_simu++;
+			 if(error > 0 && current_simu >= Util.MINIMUM_SIMULATION && this.getWeightedInterval(best, total) <= error) {
+				 break;
+			 }
+		 }
+
+		 this.total_simulations = current_simu;
+		 this.controllingPower = 0;
+		 Set<StableControlConfiguration> selection = new HashSet<StableControlConfiguration>();
+		 this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
+		 if(best != null) {
+			 for(StableControlConfiguration scc : result.keySet()) {
+				 if(result.get(scc)[0] == best[0]) {
+					 selection.add(scc);
+					 this.recorders.put(scc, null);
+				 }
+			 }
+			 this.controllingPower = Math.min(1, best[0]/total[0]);
+		 }
+		 double interval = this.getWeightedInterval(best, total);
+		 this.min_interval = this.controllingPower - interval;
+		 this.max_interval = this.controllingPower + interval;
+		 return selection;
+	 }
+
+	 /**
+	  * control configurations of a completion (no extension collected)
+	  * through the incremental session or a solver on the completion, with the cache
+	  */
+	 private Set<StableControlConfiguration> getControlConfigurationsOnly(BitsetCompletion completion, int type) {
+		 I_Completion_Solver solver = null;
+		 if(this.solver_type == I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER) {
+			 if(this.session == null) {
+				 this.session = new Incremental_SAT_Completion_Solver(this.PCAF);
+			 }
+			 this.session.setCompletion(completion);
+			 solver = this.session;
+		 } else {
+			 solver = this.getSolver(completion.toArgumentFramework());
+		 }
+		 if(this.cache != null) {
+			 solver = new Cached_Completion_Solver(solver, this.cache);
+		 }
+		 if(type == ControllabilityEncoder.CREDULOUS) {
+			 return solver.getCredulousControlConfigurationsOnly();
+		 }
+		 return solver.getSkepticalControlConfigurationsOnly();
+	 }
+
+	 /**
+	  * returns the most probable controlling entities with the completions drawn following the sampling plan
+	  * the controlling power is the proportion of completions controlled (as with independent draws)
+	  * its confidence interval is z.s/sqrt(nb) where s is the standard deviation of the proportions
+	  * of the nb complete batches (at least 2, binomial interval otherwise)
+	  * if error > 0, stops at the end of a batch (after Util.MINIMUM_SIMULATION simulations at least)
+	  * once the half width of the interval of the best entity is at most error
+	  * @param N maximal number of simulations
+	  * @param type: ControllabilityEncoder.CREDULOUS or ControllabilityEncoder.SKEPTICAL
+	  * @param error 0 to run exactly N simulations
+	  * @return
+	  */
+	 private Set<StableControlConfiguration> getPlannedControllingEntities(int N, int type, double error) {
+		 // for each entity: controlled completions, in the current batch,
+		 // in the complete batches and sum of the squares of the counts of the complete batches
+		 Map<StableControlConfiguration, long[]> result = new HashMap<StableControlConfiguration, long[]>();
+		 RandomPCAFRootCompletionGenerator planned = new RandomPCAFRootCompletionGenerator(this.PCAF);
+		 planned.setRandom(this.random);
+		 planned.setSamplingPlan(this.samplingPlan, SamplingPlan.DEFAULT_BATCH_SIZE);
+		 BitsetCompletion completion = new BitsetCompletion(this.PCAF.getCompletionSkeleton());
+
+		 long[] best = null;
+		 int nbBatches = 0;
+		 int current_simu = 0;
+		 while(current_simu < N) {
+			 planned.fillRandomCompletion(completion);
+			 for(StableControlConfiguration scc : this.getControlConfigurationsOnly(completion, type)) {
+				 long[] counts = result.get(scc);
+				 if(counts == null) {
+					 counts = new long[4];
+					 result.put(scc, counts);
+				 }
+				 counts[0]++;
+				 counts[1]++;
+				 if(best == null || counts[0] > best[0]) {
+					 best = counts;
+				 }
+			 }
+			 current_simu++;
+			 SamplingPlan plan = planned.getSamplingPlan();
+			 if(plan.isEndOfBatch()) {
+				 for(long[] counts : result.values()) {
+					 counts[2] += counts[1];
+					 counts[3] += counts[1]*counts[1];
+					 counts[1] = 0;
+				 }
+				 nbBatches++;
+				 if(error > 0 && current_simu >= Util.MINIMUM_SIMULATION && nbBatches >= 2
+						 && this.getBatchInterval(best, nbBatches, plan.getBatchSize()) <= error) {
+					 break;
+				 }
+			 }
+		 }
+
+		 this.total_simulations = current_simu;
+		 this.controllingPower = 0;
+		 Set<StableControlConfiguration> selection = new HashSet<StableControlConfiguration>();
+		 this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
+		 if(best != null) {
+			 for(StableControlConfiguration scc : result.keySet()) {
+				 if(result.get(scc)[0] == best[0]) {
+					 selection.add(scc);
+					 this.recorders.put(scc, null);
+				 }
+			 }
+			 this.controllingPower = (double)best[0]/current_simu;
+		 }
+		 double interval;
+		 if(nbBatches >= 2) {
+			 interval = this.getBatchInterval(best, nbBatches, planned.getSamplingPlan().getBatchSize());
+		 } else {
+			 interval = this.getConfidenceInterval(current_simu);
+		 }
+		 this.min_interval = this.controllingPower - interval;
+		 this.max_interval = this.controllingPower + interval;
+		 return selection;
+	 }
+
+	 /**
+	  * half width of the confidence interval of a proportion estimated on nb batches (independent replicates)
+	  * z.s/sqrt(nb), s2 being the sample variance of the proportions of the batches
+	  * at least the Agresti-Coull half width of the same draws while less than MINIMUM_OUTCOMES completions
+	  * are controlled or not controlled: when all the batches agree (every completion controlled for instance)
+	  * s is 0 but the proportion is not known exactly
+	  * @param counts counts of the entity (null: none, no completion controlled), see getPlannedControllingEntities
+	  */
+	 private double getBatchInterval(long[] counts, int nbBatches, int batchSize) {
+		 if(nbBatches < 2) {
+			 return 0;
+		 }
+		 long nbSimu = (long)nbBatches*batchSize;
+		 long controlled = counts == null ? 0 : counts[2];
+		 double interval = 0;
+		 if(counts != null) {
+			 double mean = (double)controlled/nbSimu;
+			 double squares = (double)counts[3]/((double)batchSize*batchSize);
+			 double variance = (squares - nbBatches*mean*mean)/(nbBatches - 1);
+			 interval = Util.CONFIDENCE_INT*Math.sqrt(Math.max(0, variance)/nbBatches);
+		 }
+		 if(Math.min(controlled, nbSimu - controlled) < MINIMUM_OUTCOMES) {
+			 interval = Math.max(interval, Util.getAgrestiCoullInterval(controlled, nbSimu));
+		 }
+		 return interval;
+	 }
+
+	 /**
+	  * half width of the confidence interval of a self normalised weighted proportion
+	  * z.sqrt(sum of w2.(1 - cp)2 over the controlled completions + sum of w2.cp2 over the other ones)/sum of w
+	  * at least the Agresti-Coull half width on the effective sample size n_eff = (sum of w)2/sum of w2
+	  * while less than MINIMUM_OUTCOMES drawn completions are controlled or not controlled
+	  * (the variance is 0 when all the drawn completions are controlled)
+	  * @param sums sums of the weights and squared weights and number of the controlled completions (null: none)
+	  * @param total same sums for all the completions
+	  */
+	 private double getWeightedInterval(double[] sums, double[] total) {
+		 if(total[0] == 0) {
+			 return 0;
+		 }
+		 double controlled = 0;
+		 double controlled2 = 0;
+		 double nbControlled = 0;
+		 if(sums != null) {
+			 controlled = sums[0];
+			 controlled2 = sums[1];
+			 nbControlled = sums[2];
+		 }
+		 double cp = controlled/total[0];
+		 double variance = controlled2*(1 - cp)*(1 - cp) + (total[1] - controlled2)*cp*cp;
+		 double interval = Util.CONFIDENCE_INT*Math.sqrt(Math.max(0, variance))/total[0];
+		 if(Math.min(nbControlled, total[2] - nbControlled) < MINIMUM_OUTCOMES) {
+			 double nEff = total[0]*total[0]/total[1];
+			 interval = Math.max(interval, Util.getAgrestiCoullInterval(cp*nEff, nEff));
+		 }
+		 return interval;
+	 }
+
 	 private double getConfidenceInterval(int nbSimu) {
 		 double value = Util.CONFIDENCE_INT;
 		 double temp = this.controllingPower*(1-this.controllingPower)/nbSimu;
@@ -164,6 +753,21 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 			Map<StableControlConfiguration, Integer> result = new HashMap<StableControlConfiguration, Integer>();
 			Map<StableControlConfiguration, SupportingPowerRecorder> temp_recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
 			
+			if(this.isExactEnumeration(this.stoppingRule.getMaxSimulationNumber(error))) {
+				return this.getExactMostProbableControllingEntities(type);
+			}
+			this.exact = false;
+			if(this.importanceBias > 0) {
+				return this.getImportanceSamplingControllingEntities(Integer.MAX_VALUE, type, error);
+			}
+			if(this.samplingPlan != SamplingPlan.NONE) {
+				return this.getPlannedControllingEntities(Integer.MAX_VALUE, type, error);
+			}
+			if(this.nbWorkers > 1) {
+				Parallel_Monte_Carlo_Engine engine = this.getEngine(type);
+				engine.run(error);
+				return this.getMostProbableControllingEntities(engine);
+			}
 			this.controllingPower = -1;
 			double current_max = 0;
 			int N = Util.MINIMUM_SIMULATION;
@@ -171,20 +775,30 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 			while(current_simu < N || current_simu < util.Util.MINIMUM_SIMULATION) {
 				ArgumentFramework af = this.generator.getRandomRootCompletion();
 				
-				CSP_Completion_Solver solver = new CSP_Completion_Solver(this.PCAF, af);
+				I_Completion_Solver solver = new CSP_Completion_Solver(this.PCAF, af);
+				if(this.cache != null) {
+					solver = new Cached_Completion_Solver(solver, this.cache);
+				}
 				Map<StableControlConfiguration, Set<StableExtension>> solutions = null;
 				Set<StableControlConfiguration> cc_list = null;
-				Set<StableExtension> stables = null;
 				//System.out.println("nbr of simulations: " + current_simu);
-				if(type == ControllabilityEncoder.CREDULOUS) {
-					solutions = solver.getCredulousControlConfigurations();
+				if(!this.recordSupportingPower) {
+					// control configurations only (projected enumeration), no extension collected
+					if(type == ControllabilityEncoder.CREDULOUS) {
+						cc_list = solver.getCredulousControlConfigurationsOnly();
+					} else {
+						cc_list = solver.getSkepticalControlConfigurationsOnly();
+					}
 				} else {
-					solutions = solver.getSkepticalControlConfigurations();
+					if(type == ControllabilityEncoder.CREDULOUS) {
+						solutions = solver.getCredulousControlConfigurations();
+					} else {
+						solutions = solver.getSkepticalControlConfigurations();
+					}
+					cc_list = solutions.keySet();
 				}
-				cc_list = solutions.keySet();
 				SupportingPowerRecorder recorder = null;
 				for(StableControlConfiguration scc : cc_list) {
-					stables = solutions.get(scc);
 					StableControlConfiguration present = util.Util.find(result.keySet(), scc);
 					if(present != null) {
 						Integer count = result.get(present);
@@ -196,14 +810,18 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 						}
 					} else {
 						result.put(scc, new Integer(1));
-						recorder = new SupportingPowerRecorder();
-						temp_recorders.put(scc,  recorder);
+						if(solutions != null) {
+							recorder = new SupportingPowerRecorder(this.PCAF, false);
+							temp_recorders.put(scc,  recorder);
+						}
 						if(current_max <1) {
 							current_max = 1;
 						}
 					}
 					//System.out.println("stable extensions found for:" + scc.toString() + " = " + stables.size());
-					recorder.updateOccurencesList(stables, af);
+					if(solutions != null) {
+						recorder.updateOccurencesList(solutions.get(scc), af);
+					}
 					/*
 					if(type == ControllabilityEncoder.CREDULOUS) {
 						recorder.updateOccurencesListCred(stables);
@@ -213,7 +831,7 @@ public class Most_Probable_Controlling_Entities_Solver implements I_Monte_Carlo_
 				}
 				
 				current_simu++;
-				N = (int)util.Util.getNewSimulationNumber(current_max, current_simu, error);
+				N = (int)this.stoppingRule.getNewSimulationNumber(current_max, current_simu, error);
 				//System.out.println("nbr of simulations needed: " + N);
 			}
 
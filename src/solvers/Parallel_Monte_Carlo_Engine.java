@@ -0,0 +1,587 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import generators.ControllabilityEncoder;
+import generators.RandomCAFRootCompletionGenerator;
+import generators.RandomPCAFRootCompletionGenerator;
+import model.ArgumentFramework;
+import model.ControlAF;
+import model.Fingerprint;
+import model.PControlAF;
+import model.StableControlConfiguration;
+import model.StableExtension;
+import model.SupportingPowerRecorder;
+import util.RandomGen;
+import util.Util;
+
+/**
+ * Runs the Monte Carlo loop of the controllability solvers on several threads.
+ * Each worker owns its random stream, its completion generator and its completion solver (see Sampler).
+ * The completion of the i-th simulation is drawn on the substream i of a seed taken
+ * from the stream of the engine (RandomGen.setSubstream), whatever the worker running it:
+ * with a seeded stream (setRandom), a run with a fixed number of simulations gives the same counts
+ * for any number of workers. With an error level, the number of simulations still depends
+ * on the order in which the completions are aggregated.
+ * Counts of the control configurations are aggregated without lock:
+ * - one AtomicInteger per control configuration (ConcurrentHashMap)
+ * - maximal count and number of simulations done are atomic
+ * - the control configurations found in all completions so far (hasPotentialControlEntity)
+ * are kept as an immutable set replaced by compare and set
+ * Workers can share a Completion_Solution_Cache.
+ * Supporting power recorders are filled by each worker and merged at the end.
+ * A completion drawn by two workers is only recorded once per control configuration
+ * (same as the sequential loop).
+ * The early exits of Monte_Carlo_CAF_Solver are kept if stopWhenNotControlled is set:
+ * a completion with no control configuration, or no control configuration
+ * found in all completions so far, stops all the workers.
+ * With an error level, the number of simulations is updated after each completion
+ * with the stopping rule (never less than Util.MINIMUM_SIMULATION).
+ * Simulation indices are only claimed below that number (compare and set), so that no index is
+ * simulated twice or skipped; a worker finding it reached waits while it can still grow.
+ * The Monte Carlo solvers build their engine from the CAF and the type of completion solver
+ * (see CompletionSampler), the result is read with getMaxConfigurations and getMaxRecorders.
+ */
+public class Parallel_Monte_Carlo_Engine {
+
+	/**
+	 * draws completions and builds their solver
+	 * one sampler per worker: it is used by one thread only
+	 */
+	public interface Sampler {
+		public ArgumentFramework getRandomRootCompletion();
+		public I_Completion_Solver getSolver(ArgumentFramework af);
+	}
+
+	/**
+	 * creates the sampler of a worker given its own random stream
+	 */
+	public interface SamplerFactory {
+		public Sampler newSampler(RandomGen random);
+	}
+
+	/**
+	 * sampler of the Monte Carlo solvers: root completions of the CAF
+	 * (with the probabilities of the PCAF for a PControlAF)
+	 * and a completion solver of solver_type (see I_Monte_Carlo_Solver) moved from one completion to the next
+	 */
+	public static class CompletionSampler implements Sampler {
+		private ControlAF CAF;
+		private int solver_type;
+		private RandomCAFRootCompletionGenerator generator;
+		private RandomPCAFRootCompletionGenerator pgenerator;
+		private Incremental_SAT_Completion_Solver session;
+		private SAT_Completion_Solver satSolver;
+
+		public CompletionSampler(ControlAF CAF, int solver_type, RandomGen random) {
+			this.CAF = CAF;
+			this.solver_type = solver_type;
+			if(CAF instanceof PControlAF) {
+				this.pgenerator = new RandomPCAFRootCompletionGenerator((PControlAF)CAF);
+				this.pgenerator.setRandom(random);
+			} else {
+				this.generator = new RandomCAFRootCompletionGenerator(CAF);
+				this.generator.setRandom(random);
+			}
+		}
+
+		public ArgumentFramework getRandomRootCompletion() {
+			if(this.pgenerator != null) {
+				return this.pgenerator.getRandomRootCompletion();
+			}
+			return this.generator.getRandomRootCompletion();
+		}
+
+		public I_Completion_Solver getSolver(ArgumentFramework af) {
+			if(this.solver_type == I_Monte_Carlo_Solver.CSP_SOLVER) {
+				return new CSP_Completion_Solver(this.CAF, af);
+			} else if(this.solver_type == I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER) {
+				if(this.session == null) {
+					this.session = new Incremental_SAT_Completion_Solver(this.CAF);
+				}
+				this.session.setCompletion(af);
+				return this.session;
+			}
+			if(this.satSolver == null) {
+				this.satSolver = new SAT_Completion_Solver(this.CAF, af);
+			}
+			this.satSolver.setCompletion(af);
+			return this.satSolver;
+		}
+	}
+
+	private SamplerFactory factory;
+	private int nbWorkers;
+	private RandomGen random;
+	private int type;
+	private boolean recordSupportingPower;
+	private boolean stopWhenNotControlled;
+	private Completion_Solution_Cache cache;
+	private I_Stopping_Rule stoppingRule;
+
+	// shared state of a run
+	private ConcurrentHashMap<StableControlConfiguration, AtomicInteger> counts;
+	private ConcurrentHashMap<StableControlConfiguration, Set<Fingerprint>> recorded;
+	private AtomicReference<Set<StableControlConfiguration>> candidates;
+	private AtomicInteger claimed;
+	// simulations claimed and over (aggregated, or given up when the run stops): claimed - finished are running
+	private AtomicInteger finished;
+	// monitor of the workers waiting for the budget to grow or to be final
+	private final Object budgetLock = new Object();
+	private long seed;
+	private AtomicInteger done;
+	private AtomicInteger max;
+	// number of simulations needed (low bits) and number of simulations it was computed at (high bits)
+	private AtomicLong budget;
+	private AtomicBoolean stopped;
+	private boolean adaptive;
+	private double error;
+
+	private Map<StableControlConfiguration, SupportingPowerRecorder> recorders;
+
+	/**
+	 * @param factory, creates the generator and the solver of each worker
+	 * @param nbWorkers, number of threads
+	 * @param type, ControllabilityEncoder.CREDULOUS or ControllabilityEncoder.SKEPTICAL
+	 */
+	public Parallel_Monte_Carlo_Engine(SamplerFactory factory, int nbWorkers, int type) {
+		this.factory = factory;
+		this.nbWorkers = Math.max(1, nbWorkers);
+		this.random = new RandomGen();
+		this.type = type;
+		this.recordSupportingPower = true;
+		this.stopWhenNotControlled = false;
+		this.cache = null;
+		this.stoppingRule = new Agresti_Coull_Stopping_Rule();
+	}
+
+	/**
+	 * engine of the Monte Carlo solvers: one CompletionSampler per worker
+	 * @param CAF, CAF (or PCAF) to sample
+	 * @param solver_type, see I_Monte_Carlo_Solver
+	 * @param nbWorkers, number of threads
+	 * @param type, ControllabilityEncoder.CREDULOUS or ControllabilityEncoder.SKEPTICAL
+	 */
+	public Parallel_Monte_Carlo_Engine(final ControlAF CAF, final int solver_type, int nbWorkers, int type) {
+		this(new SamplerFactory() {
+			public Sampler newSampler(RandomGen random) {
+				return new CompletionSampler(CAF, solver_type, random);
+			}
+		}, nbWorkers, type);
+	}
+
+	/**
+	 * the seed of the substreams of the simulations is drawn from this stream
+	 * (a seeded stream gives reproducible runs)
+	 * @param random
+	 */
+	public void setRandom(RandomGen random) {
+		this.random = random;
+	}
+
+	public void setRecordSupportingPower(boolean recordSupportingPower) {
+		this.recordSupportingPower = recordSupportingPower;
+	}
+
+	/**
+	 * cache shared by all the workers (null: no cache)
+	 * @param cache
+	 */
+	public void setCache(Completion_Solution_Cache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * rule giving the number of simulations needed with an error level
+	 * (Agresti_Coull_Stopping_Rule by default)
+	 * @param stoppingRule
+	 */
+	public void setStoppingRule(I_Stopping_Rule stoppingRule) {
+		this.stoppingRule = stoppingRule;
+	}
+
+	/**
+	 * if true, stops as soon as no control configuration can have a controlling power of 1
+	 * (early exits of Monte_Carlo_CAF_Solver)
+	 * @param stopWhenNotControlled
+	 */
+	public void setStopWhenNotControlled(boolean stopWhenNotControlled) {
+		this.stopWhenNotControlled = stopWhenNotControlled;
+	}
+
+	/**
+	 * runs exactly N simulations (unless stopped)
+	 * @param N
+	 */
+	public void run(int N) {
+		this.adaptive = false;
+		this.error = 0;
+		this.start(N);
+	}
+
+	/**
+	 * runs simulations until the width of the confidence interval is reached
+	 * @param error
+	 */
+	public void run(double error) {
+		this.adaptive = true;
+		this.error = error;
+		this.start(Util.MINIMUM_SIMULATION);
+	}
+
+	/**
+	 * true if the run was stopped because no control configuration
+	 * can have a controlling power of 1
+	 */
+	public boolean isStopped() {
+		return this.stopped.get();
+	}
+
+	/**
+	 * number of simulations aggregated
+	 */
+	public int getNbSimulations() {
+		return this.done.get();
+	}
+
+	/**
+	 * highest number of completions in which a control configuration was found
+	 */
+	public int getMaxCount() {
+		return this.max.get();
+	}
+
+	/**
+	 * number of completions in which each control configuration was found
+	 */
+	public Map<StableControlConfiguration, Integer> getCounts() {
+		Map<StableControlConfiguration, Integer> result = new HashMap<StableControlConfiguration, Integer>();
+		for(Map.Entry<StableControlConfiguration, AtomicInteger> entry : this.counts.entrySet()) {
+			result.put(entry.getKey(), Integer.valueOf(entry.getValue().get()));
+		}
+		return result;
+	}
+
+	/**
+	 * control configurations found in getMaxCount() completions
+	 */
+	public Set<StableControlConfiguration> getMaxConfigurations() {
+		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
+		int max = this.max.get();
+		for(Map.Entry<StableControlConfiguration, AtomicInteger> entry : this.counts.entrySet()) {
+			if(entry.getValue().get() == max) {
+				result.add(entry.getKey());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * recorders of getMaxConfigurations() (null values if supporting power is not recorded)
+	 */
+	public Map<StableControlConfiguration, SupportingPowerRecorder> getMaxRecorders() {
+		Map<StableControlConfiguration, SupportingPowerRecorder> result = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
+		for(StableControlConfiguration scc : this.getMaxConfigurations()) {
+			result.put(scc, this.recorders.get(scc));
+		}
+		return result;
+	}
+
+	/**
+	 * merged recorders of all the workers (empty if supporting power is not recorded)
+	 */
+	public Map<StableControlConfiguration, SupportingPowerRecorder> getRecorders() {
+		return this.recorders;
+	}
+
+	private void start(int N) {
+		this.counts = new ConcurrentHashMap<StableControlConfiguration, AtomicInteger>();
+		this.recorded = new ConcurrentHashMap<StableControlConfiguration, Set<Fingerprint>>();
+		this.candidates = new AtomicReference<Set<StableControlConfiguration>>(null);
+		this.claimed = new AtomicInteger(0);
+		this.finished = new AtomicInteger(0);
+		this.done = new AtomicInteger(0);
+		this.max = new AtomicInteger(0);
+		this.budget = new AtomicLong(N);
+		this.stopped = new AtomicBoolean(false);
+		this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
+		this.seed = this.random.nextLong();
+
+		List<Worker> workers = new ArrayList<Worker>();
+		for(int i = 0; i<this.nbWorkers; i++) {
+			RandomGen stream = new RandomGen(this.seed);
+			workers.add(new Worker(this.factory.newSampler(stream), stream));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(this.nbWorkers);
+		try {
+			List<Future<Void>> futures = executor.invokeAll(workers);
+			for(Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			if(e.getCause() instanceof Error) {
+				throw (Error)e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for(Worker worker : workers) {
+			for(Map.Entry<StableControlConfiguration, SupportingPowerRecorder> entry : worker.recorders.entrySet()) {
+				SupportingPowerRecorder recorder = this.recorders.get(entry.getKey());
+				if(recorder == null) {
+					this.recorders.put(entry.getKey(), entry.getValue());
+				} else {
+					recorder.merge(entry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * number of simulations needed so far
+	 */
+	private int getNeeded() {
+		int needed = (int)this.budget.get();
+		if(this.adaptive) {
+			needed = Math.max(needed, Util.MINIMUM_SIMULATION);
+		}
+		return needed;
+	}
+
+	/**
+	 * index of a new simulation (-1 if no simulation can be started)
+	 * the index is only taken while it is below the budget, so that every index is simulated once
+	 * with an error level, waits while the budget is reached but can still grow
+	 * (simulations running), returns -1 once it is final
+	 */
+	private int claim() {
+		while(true) {
+			if(this.stopped.get()) {
+				return -1;
+			}
+			int index = this.claimed.get();
+			if(index < this.getNeeded()) {
+				if(this.claimed.compareAndSet(index, index + 1)) {
+					return index;
+				}
+				continue;
+			}
+			if(!this.adaptive) {
+				return -1;
+			}
+			synchronized(this.budgetLock) {
+				if(this.stopped.get()) {
+					return -1;
+				}
+				if(this.claimed.get() >= this.getNeeded()) {
+					if(this.finished.get() == this.claimed.get()) {
+						// no simulation running: the budget is final
+						return -1;
+					}
+					try {
+						this.budgetLock.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return -1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * end of a claimed simulation (after its aggregation and the update of the budget)
+	 * wakes up the workers waiting in claim
+	 */
+	private void release() {
+		this.finished.incrementAndGet();
+		synchronized(this.budgetLock) {
+			this.budgetLock.notifyAll();
+		}
+	}
+
+	/**
+	 * adds the control configurations of one completion to the shared counts
+	 * returns the number of simulations done (-1 if the run is stopped)
+	 */
+	private int aggregate(Set<StableControlConfiguration> cc_list) {
+		if(this.stopped.get()) {
+			return -1;
+		}
+		// if there ever is a root AF with no control configuration
+		// we can stop the search here
+		if(cc_list.isEmpty() && this.stopWhenNotControlled) {
+			this.stopped.set(true);
+			return -1;
+		}
+		int localMax = 0;
+		for(StableControlConfiguration scc : cc_list) {
+			AtomicInteger count = this.counts.get(scc);
+			if(count == null) {
+				AtomicInteger created = new AtomicInteger(0);
+				count = this.counts.putIfAbsent(scc, created);
+				if(count == null) {
+					count = created;
+				}
+			}
+			localMax = Math.max(localMax, count.incrementAndGet());
+		}
+		int current = this.max.get();
+		while(localMax > current && !this.max.compareAndSet(current, localMax)) {
+			current = this.max.get();
+		}
+		// control configurations found in all completions so far
+		// (a control entity with controlling power of 1 is still possible if not empty)
+		Set<StableControlConfiguration> old = null;
+		Set<StableControlConfiguration> remaining = null;
+		do {
+			old = this.candidates.get();
+			remaining = new HashSet<StableControlConfiguration>(cc_list);
+			if(old != null) {
+				remaining.retainAll(old);
+			}
+		} while(!this.candidates.compareAndSet(old, remaining));
+		int nbSimu = this.done.incrementAndGet();
+		if(remaining.isEmpty() && this.stopWhenNotControlled) {
+			this.stopped.set(true);
+			return -1;
+		}
+		if(this.adaptive) {
+			this.updateBudget(nbSimu);
+		}
+		return nbSimu;
+	}
+
+	/**
+	 * new number of simulations needed, computed with the latest number of simulations
+	 */
+	private void updateBudget(int nbSimu) {
+		while(true) {
+			long old = this.budget.get();
+			if((old >>> 32) > nbSimu) {
+				// already updated by a worker with more simulations
+				return;
+			}
+			long needed = (long)this.stoppingRule.getNewSimulationNumber(this.max.get(), nbSimu, this.error);
+			needed = Math.max(0, Math.min(needed, Integer.MAX_VALUE));
+			long value = ((long)nbSimu << 32) | needed;
+			if(this.budget.compareAndSet(old, value)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * one worker: its own sampler and its own recorders
+	 */
+	private class Worker implements Callable<Void> {
+		private Sampler sampler;
+		// stream given to the sampler, moved to the substream of each simulation
+		private RandomGen stream;
+		private Map<StableControlConfiguration, SupportingPowerRecorder> recorders;
+
+		private Worker(Sampler sampler, RandomGen stream) {
+			this.sampler = sampler;
+			this.stream = stream;
+			this.recorders = new HashMap<StableControlConfiguration, SupportingPowerRecorder>();
+		}
+
+		public Void call() {
+			int index = claim();
+			while(index >= 0) {
+				try {
+					if(!this.simulate(index)) {
+						return null;
+					}
+				} finally {
+					release();
+				}
+				index = claim();
+			}
+			return null;
+		}
+
+		/**
+		 * runs the simulation index, false if the run is stopped
+		 */
+		private boolean simulate(int index) {
+			this.stream.setSubstream(seed, index);
+			ArgumentFramework af = this.sampler.getRandomRootCompletion();
+			I_Completion_Solver solver = this.sampler.getSolver(af);
+			if(cache != null) {
+				solver = new Cached_Completion_Solver(solver, cache);
+			}
+			Map<StableControlConfiguration, Set<StableExtension>> solutions = null;
+			Set<StableControlConfiguration> cc_list = null;
+			if(!recordSupportingPower) {
+				// control configurations only (projected enumeration), no extension collected
+				if(type == ControllabilityEncoder.CREDULOUS) {
+					cc_list = solver.getCredulousControlConfigurationsOnly();
+				} else {
+					cc_list = solver.getSkepticalControlConfigurationsOnly();
+				}
+			} else {
+				if(type == ControllabilityEncoder.CREDULOUS) {
+					solutions = solver.getCredulousControlConfigurations();
+				} else {
+					solutions = solver.getSkepticalControlConfigurations();
+				}
+				cc_list = solutions.keySet();
+			}
+			if(aggregate(cc_list) < 0) {
+				return false;
+			}
+			if(solutions != null) {
+				this.record(solutions, af, solver.getCAF());
+			}
+			return true;
+		}
+
+		private void record(Map<StableControlConfiguration, Set<StableExtension>> solutions, ArgumentFramework af, ControlAF CAF) {
+			Fingerprint fingerprint = af.getFingerprint();
+			for(StableControlConfiguration scc : solutions.keySet()) {
+				Set<Fingerprint> seen = recorded.get(scc);
+				if(seen == null) {
+					Set<Fingerprint> created = ConcurrentHashMap.<Fingerprint>newKeySet();
+					seen = recorded.putIfAbsent(scc, created);
+					if(seen == null) {
+						seen = created;
+					}
+				}
+				// completion already recorded for scc (by this worker or another one)
+				if(!seen.add(fingerprint)) {
+					continue;
+				}
+				SupportingPowerRecorder recorder = this.recorders.get(scc);
+				if(recorder == null) {
+					recorder = new SupportingPowerRecorder(CAF, false);
+					this.recorders.put(scc, recorder);
+				}
+				recorder.updateOccurencesList(solutions.get(scc), af);
+			}
+		}
+	}
+}
@@ -2,7 +2,6 @@ package solvers;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -14,9 +13,9 @@ import org.sat4j.specs.TimeoutException;
 import org.sat4j.tools.ModelIterator;
 
 import generators.ControllabilityEncoder;
-import generators.SATQDIMACSConverter;
-import generators.StrongSATEncoder;
+import generators.DirectSATEncoder;
 import javafx.util.Pair;
+import model.Argument;
 import model.ArgumentFramework;
 import model.CArgument;
 import model.ControlAF;
@@ -28,6 +27,8 @@ public class SAT_Completion_Solver implements I_Completion_Solver {
 
 	protected ControlAF CAF;
 	protected ArgumentFramework completion;
+	// kept from one completion to the next (the clause buffer is reused)
+	protected DirectSATEncoder encoder;
 
 	public SAT_Completion_Solver(ControlAF CAF, ArgumentFramework completion) {
 		this.CAF = CAF;
@@ -40,6 +41,9 @@ public class SAT_Completion_Solver implements I_Completion_Solver {
 
 	public void setCAF(ControlAF cAF) {
 		CAF = cAF;
+		if(this.encoder != null) {
+			this.encoder.setCAF(cAF);
+		}
 	}
 
 
@@ -70,7 +74,72 @@ public class SAT_Completion_Solver implements I_Completion_Solver {
 		}
 	}
 
-	
+
+	public Set<StableControlConfiguration> getCredulousControlConfigurationsOnly()  {
+		try {
+			return this.getControlConfigurationsOnly(ControllabilityEncoder.CREDULOUS);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public Set<StableControlConfiguration> getSkepticalControlConfigurationsOnly()  {
+		try {
+			return this.getControlConfigurationsOnly(ControllabilityEncoder.SKEPTICAL);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * returns the control configurations of getControlConfigurations(type) without the extensions
+	 * projected enumeration: each model found is blocked on the on variables only
+	 * so each control configuration is found once
+	 */
+	public Set<StableControlConfiguration> getControlConfigurationsOnly(int type) throws ContradictionException, TimeoutException {
+		DirectSATEncoder encoder = this.getEncoder();
+		encoder.encode(type);
+		ISolver solver = SolverFactory.newDefault();
+		solver.newVar(encoder.getNbVar());
+		solver.setExpectedNumberOfClauses(encoder.getNbClause());
+
+		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
+		try {
+			encoder.addClausesTo(solver);
+		} catch (ContradictionException e) {
+			return result;
+		}
+		int k = encoder.getNbControlArguments();
+		while(solver.isSatisfiable()) {
+			StableControlConfiguration scc = new StableControlConfiguration();
+			if(k == 0) {
+				// only the empty configuration
+				result.add(scc);
+				break;
+			}
+			VecInt blocking = new VecInt(k);
+			for(int i = 0; i<k; i++) {
+				int on = encoder.getOnVar(i);
+				if(solver.model(on)) {
+					scc.addOnControl(CAF.getArgumentByName(encoder.getArgument(on).getName()));
+					blocking.push(-on);
+				} else {
+					blocking.push(on);
+				}
+			}
+			result.add(scc);
+			try {
+				solver.addClause(blocking);
+			} catch (ContradictionException e) {
+				// all the configurations have been found
+				break;
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * returns a Map of control configurations that credulously/skeptically controls the CAF together
 	 * with all the extensions that correspond to each control configuration
@@ -79,33 +148,32 @@ public class SAT_Completion_Solver implements I_Completion_Solver {
 	 */
 	public Map<StableControlConfiguration, Set<StableExtension>> getControlConfigurations(int type) throws ContradictionException, TimeoutException {
 
-		StrongSATEncoder encoder = new StrongSATEncoder(this.completion, this.CAF);
-		SATQDIMACSConverter converter = new SATQDIMACSConverter(encoder.encode(type));
-	
-		List<int[]> converted = converter.convertToListOfClauses();
-		int MAXVAR = converter.getNbVar();
-		int NBCLAUSES = converter.getNbClause();
+		// clauses written directly as ints (no Formula tree)
+		DirectSATEncoder encoder = this.getEncoder();
+		encoder.encode(type);
+		int MAXVAR = encoder.getNbVar();
+		int NBCLAUSES = encoder.getNbClause();
 
 		ISolver solver = SolverFactory.newDefault();
 
 		// prepare the solver to accept MAXVAR variables. MANDATORY for MAXSAT solving
 		solver.newVar(MAXVAR);
 		solver.setExpectedNumberOfClauses(NBCLAUSES);
-			
-	
-		for(int[] clause : converted) {
-			solver.addClause(new VecInt(clause));
-		}
 
 		// structures to store the solution
 		Map<StableControlConfiguration, Set<StableExtension>> result = new HashMap<StableControlConfiguration, Set<StableExtension>>();
+		try {
+			encoder.addClausesTo(solver);
+		} catch (ContradictionException e) {
+			// unsatisfiable as soon as the clauses are added (unit clauses in conflict): no model
+			return result;
+		}
 		Set<StableExtension> extensions = null;
 		// need an iterator to scope the models of the solver.
 		ISolver solveriter = new ModelIterator(solver);
 		while (solveriter.isSatisfiable()) {
 			int [] model = solveriter.model();
-			List<String> decoded = converter.decodeModel(model);
-			Pair<StableControlConfiguration, StableExtension> solution = this.buildStableExtension(decoded);
+			Pair<StableControlConfiguration, StableExtension> solution = this.buildStableExtension(model, encoder);
 			StableControlConfiguration scc = util.Util.find(result.keySet(), solution.getKey());
 			if( scc == null) {
 				extensions = new HashSet<StableExtension>();
@@ -119,26 +187,38 @@ public class SAT_Completion_Solver implements I_Completion_Solver {
 		return result;
 	}
 	
-	protected Pair<StableControlConfiguration, StableExtension> buildStableExtension(List<String> accepted) {
+	/**
+	 * encoder of the current completion, created once then moved with setInstance()
+	 */
+	protected DirectSATEncoder getEncoder() {
+		if(this.encoder == null) {
+			this.encoder = new DirectSATEncoder(this.completion, this.CAF);
+		} else {
+			this.encoder.setInstance(this.completion);
+		}
+		return this.encoder;
+	}
+
+	/**
+	 * decodes a model of the DirectSATEncoder
+	 * on variables => control configuration, acc variables => extension
+	 */
+	protected Pair<StableControlConfiguration, StableExtension> buildStableExtension(int[] model, DirectSATEncoder encoder) {
 		StableControlConfiguration scc = new StableControlConfiguration();
 		StableExtension se = new StableExtension();
-		// stable control configuration scc => variables starting with on_
-		// extension => variables starting with acc_
-		for(String variable : accepted) {
-			if(variable.startsWith("on_")) {
-				String argName = variable.replace("on_", "");
-				CArgument currentArg = CAF.getArgumentByName(argName);
-				if(currentArg == null) {
-					throw new UnknownArgumentError("weird, argument " + argName + " is on but cannot be found in the CAF");
-				}
-				scc.addOnControl(currentArg);
+		for(int literal : model) {
+			Argument arg = encoder.getArgument(literal);
+			if(arg == null) {
+				// false or Tseitin variable
+				continue;
 			}
-			if(variable.startsWith("acc_")) {
-				String argName = variable.replace("acc_", "");
-				CArgument currentArg = CAF.getArgumentByName(argName);
-				if(currentArg == null) {
-					throw new UnknownArgumentError("weird, argument " + argName + " is accepted but cannot be found in the CAF");
-				}
+			CArgument currentArg = CAF.getArgumentByName(arg.getName());
+			if(currentArg == null) {
+				throw new UnknownArgumentError("weird, argument " + arg.getName() + " is in the model but cannot be found in the CAF");
+			}
+			if(encoder.isOnVar(literal)) {
+				scc.addOnControl(currentArg);
+			} else {
 				se.addAccepted(currentArg);
 			}
 		}
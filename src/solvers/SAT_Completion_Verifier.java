@@ -0,0 +1,237 @@
+package solvers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import model.Argument;
+import model.ArgumentFramework;
+import model.CArgument;
+import model.CAttack;
+import model.CompactArgumentFramework;
+import model.ControlAF;
+import model.StableControlConfiguration;
+
+/**
+ * Same answers as CSP_Completion_Verifier but each check is a single SAT query
+ * instead of the enumeration of all the stable extensions of buildAF(completion, cc).
+ * The completion plus all the control arguments are encoded once (stable semantics),
+ * each control argument being present or not according to a selector variable.
+ * A configuration cc is checked under assumptions on the selectors:
+ * - credulous: is there a stable extension containing T and cc
+ * - skeptical: is there a stable extension, then is there one missing an argument of T or of cc (counter example)
+ * The same sat4j instance is used for all the configurations checked on the completion
+ * so learned clauses are kept from one check to the next.
+ */
+public class SAT_Completion_Verifier {
+
+	protected ControlAF CAF;
+	protected ArgumentFramework completion;
+
+	protected CompactArgumentFramework graph;
+	protected CArgument[] controlArgs;
+	protected Map<Argument, Integer> controlIds;
+	protected int n;
+	protected int k;
+
+	protected ISolver solver;
+	protected boolean inconsistent;
+
+	public SAT_Completion_Verifier(ControlAF CAF, ArgumentFramework completion) {
+		this.CAF = CAF;
+		this.completion = completion;
+		this.encode();
+	}
+
+	public ControlAF getCAF() {
+		return CAF;
+	}
+
+	/**
+	 * checks if cc is a control configuration for credulous acceptance:
+	 * one stable extension of buildAF(completion, cc) contains T and cc
+	 * @param cc
+	 * @return
+	 */
+	public boolean isCredulousControlConfigurations(StableControlConfiguration cc) {
+		if(this.inconsistent) {
+			return false;
+		}
+		IVecInt assumptions = this.getAssumptions(cc);
+		for(CArgument t : this.CAF.getTarget()) {
+			assumptions.push(this.getAccVar(t));
+		}
+		for(CArgument c : cc.getOnControl()) {
+			assumptions.push(this.getAccVar(c));
+		}
+		try {
+			return this.solver.isSatisfiable(assumptions);
+		} catch (TimeoutException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * checks if cc is a control configuration for skeptical acceptance:
+	 * buildAF(completion, cc) has a stable extension and all its stable extensions contain T and cc
+	 * one query for the existence of an extension, then one for a counter example
+	 * @param cc
+	 * @return
+	 */
+	public boolean isSkepticalControlConfigurations(StableControlConfiguration cc) {
+		if(this.inconsistent) {
+			// no stable extension at all
+			return false;
+		}
+		IVecInt assumptions = this.getAssumptions(cc);
+		try {
+			if(!this.solver.isSatisfiable(assumptions)) {
+				// no stable extension for cc
+				return false;
+			}
+			// counter example clause, only active for this check
+			int guard = this.solver.nextFreeVarId(true);
+			IVecInt counterExample = new VecInt();
+			counterExample.push(-guard);
+			for(CArgument t : this.CAF.getTarget()) {
+				counterExample.push(-this.getAccVar(t));
+			}
+			for(CArgument c : cc.getOnControl()) {
+				counterExample.push(-this.getAccVar(c));
+			}
+			assumptions.push(guard);
+			IConstr clause = this.solver.addClause(counterExample);
+			boolean found = this.solver.isSatisfiable(assumptions);
+			// removes the counter example clause and disables it for good
+			// (removeSubsumedConstr keeps the learned clauses)
+			if(clause != null) {
+				this.solver.removeSubsumedConstr(clause);
+			}
+			IConstr disabled = this.solver.addClause(new VecInt(new int[] {-guard}));
+			if(disabled != null) {
+				this.solver.removeSubsumedConstr(disabled);
+			}
+			return !found;
+		} catch (ContradictionException e) {
+			throw new RuntimeException(e);
+		} catch (TimeoutException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * selectors of the control arguments: present iff on in cc
+	 */
+	protected IVecInt getAssumptions(StableControlConfiguration cc) {
+		IVecInt result = new VecInt(this.k + this.CAF.getTargetSize() + cc.getOnControl().size() + 1);
+		for(int i = 0; i<this.k; i++) {
+			int selector = this.getSelectorVar(i);
+			result.push(cc.getOnControl().contains(this.controlArgs[i]) ? selector : -selector);
+		}
+		return result;
+	}
+
+	/**
+	 * acc variable of an argument of the completion or of a control argument, 0 otherwise
+	 */
+	protected int getAccVar(Argument a) {
+		int id = this.graph.getId(a);
+		if(id >= 0) {
+			return id + 1;
+		}
+		Integer control = this.controlIds.get(a);
+		if(control == null) {
+			return 0;
+		}
+		return this.n + control.intValue() + 1;
+	}
+
+	protected int getSelectorVar(int i) {
+		return this.n + this.k + i + 1;
+	}
+
+	/**
+	 * stable semantics over the completion and the present control arguments
+	 * variables: acc (completion), acc (control), selectors (control)
+	 */
+	protected void encode() {
+		this.graph = this.completion.getCompact();
+		Set<CArgument> controls = this.CAF.getArgumentsByType(CArgument.Type.CONTROL);
+		this.controlArgs = controls.toArray(new CArgument[0]);
+		this.controlIds = new HashMap<Argument, Integer>();
+		for(int i = 0; i<this.controlArgs.length; i++) {
+			this.controlIds.put(this.controlArgs[i], Integer.valueOf(i));
+		}
+		this.n = this.graph.getNbArguments();
+		this.k = this.controlArgs.length;
+
+		// control attacks grouped by attacked variable (both arguments must be known)
+		int[] nbControlAttackers = new int[this.n + this.k + 1];
+		Set<CAttack> control = this.CAF.getAttacksByType(CAttack.Type.CONTROL);
+		int[] from = new int[control.size()];
+		int[] to = new int[control.size()];
+		int m = 0;
+		for(CAttack att : control) {
+			from[m] = this.getAccVar(att.getFrom());
+			to[m] = this.getAccVar(att.getTo());
+			if(from[m] != 0 && to[m] != 0) {
+				nbControlAttackers[to[m]]++;
+				m++;
+			}
+		}
+		int[][] controlAttackers = new int[this.n + this.k + 1][];
+		for(int var = 1; var <= this.n + this.k; var++) {
+			controlAttackers[var] = new int[nbControlAttackers[var]];
+			nbControlAttackers[var] = 0;
+		}
+		for(int i = 0; i<m; i++) {
+			controlAttackers[to[i]][nbControlAttackers[to[i]]] = from[i];
+			nbControlAttackers[to[i]]++;
+		}
+
+		this.solver = SolverFactory.newDefault();
+		this.solver.newVar(this.n + 2*this.k);
+		this.inconsistent = false;
+		try {
+			for(int var = 1; var <= this.n + this.k; var++) {
+				int nbAttackers = controlAttackers[var].length;
+				if(var <= this.n) {
+					nbAttackers += this.graph.getNbAttackers(var - 1);
+				}
+				IVecInt attacked = new VecInt(nbAttackers + 2);
+				if(var > this.n) {
+					int selector = this.getSelectorVar(var - this.n - 1);
+					// absent => not accepted
+					this.solver.addClause(new VecInt(new int[] {selector, -var}));
+					attacked.push(-selector);
+				}
+				attacked.push(var);
+				if(var <= this.n) {
+					int id = var - 1;
+					for(int j = this.graph.getAttackersStart(id); j < this.graph.getAttackersEnd(id); j++) {
+						int attacker = this.graph.getAttacker(j) + 1;
+						this.solver.addClause(new VecInt(new int[] {-var, -attacker}));
+						attacked.push(attacker);
+					}
+				}
+				for(int attacker : controlAttackers[var]) {
+					// an absent control argument is not accepted, so it does not attack
+					this.solver.addClause(new VecInt(new int[] {-var, -attacker}));
+					attacked.push(attacker);
+				}
+				// present and not accepted => attacked by an accepted argument
+				this.solver.addClause(attacked);
+			}
+		} catch (ContradictionException e) {
+			this.inconsistent = true;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import model.ArgumentFramework;
+import model.CompactArgumentFramework;
+import model.StableExtension;
+import model.StronglyConnectedComponents;
+
+/**
+ * This class enables the determination of stables extensions
+ * of the Argument Framework passed at construction by splitting it
+ * into its strongly connected components (StronglyConnectedComponents).
+ * Components are solved one by one in topological order: the arguments of a component
+ * attacked by an accepted argument of a previous component are rejected, the others
+ * form a sub framework whose stable extensions are computed alone (getComponentExtensions).
+ * A stable extension of the AF is one extension of each component.
+ * The extensions of a component are computed once for each set of rejected arguments
+ * (independent components are solved once, whatever the choices made in the other ones).
+ * Same results as Labelling_AF_Solver and CSP_AF_Solver.
+ */
+public class SCC_AF_Solver implements Iterable<StableExtension> {
+
+	protected ArgumentFramework af;
+
+	public SCC_AF_Solver(ArgumentFramework af) {
+		this.af = af;
+	}
+
+	public ArgumentFramework getAF() {
+		return af;
+	}
+
+	public void setAF(ArgumentFramework af) {
+		this.af = af;
+	}
+
+	/**
+	 * returns the set of solutions (stable sets) for the AF
+	 */
+	public Set<StableExtension> getStableSets() {
+		Set<StableExtension> result = new HashSet<StableExtension>();
+		for(StableExtension ext : this) {
+			result.add(ext);
+		}
+		return result;
+	}
+
+	/**
+	 * returns true if the AF has at least one stable extension
+	 */
+	public boolean hasStableExtension() {
+		return this.iterator().hasNext();
+	}
+
+	/**
+	 * returns the stable extensions one by one
+	 * (the extensions of a component are computed when the component is reached)
+	 */
+	public Iterator<StableExtension> iterator() {
+		return new Split(this.af.getCompact());
+	}
+
+	/**
+	 * stable extensions of a sub framework (ids of the sub framework)
+	 * labelling search by default
+	 * @param component
+	 * @return
+	 */
+	protected List<int[]> getComponentExtensions(CompactArgumentFramework component) {
+		List<int[]> result = new ArrayList<int[]>();
+		Labelling_AF_Solver.Search search = new Labelling_AF_Solver.Search(component);
+		while(search.hasNext()) {
+			result.add(search.nextAccepted());
+		}
+		return result;
+	}
+
+	/**
+	 * depth first search over the components: one extension chosen per component
+	 */
+	protected class Split implements Iterator<StableExtension> {
+
+		protected CompactArgumentFramework graph;
+		protected StronglyConnectedComponents components;
+		protected int nbComponents;
+		// extensions (global ids) of each component in the current context, and the chosen one
+		protected List<List<int[]>> options;
+		protected int[] choice;
+		protected int depth;
+		protected boolean[] accepted;
+		// extensions of each component by set of rejected members
+		protected List<Map<BitSet, List<int[]>>> memo;
+
+		protected boolean started;
+		protected boolean ready;
+		protected boolean exhausted;
+
+		protected Split(CompactArgumentFramework graph) {
+			this.graph = graph;
+			this.components = new StronglyConnectedComponents(graph);
+			this.nbComponents = this.components.getNbComponents();
+			this.options = new ArrayList<List<int[]>>(this.nbComponents);
+			this.memo = new ArrayList<Map<BitSet, List<int[]>>>(this.nbComponents);
+			for(int c = 0; c<this.nbComponents; c++) {
+				this.options.add(null);
+				this.memo.add(new HashMap<BitSet, List<int[]>>());
+			}
+			this.choice = new int[this.nbComponents];
+			this.accepted = new boolean[graph.getNbArguments()];
+			this.depth = 0;
+		}
+
+		public boolean hasNext() {
+			if(!this.ready && !this.exhausted) {
+				this.ready = this.search();
+				if(!this.ready) {
+					this.exhausted = true;
+				}
+			}
+			return this.ready;
+		}
+
+		public StableExtension next() {
+			if(!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.ready = false;
+			StableExtension result = new StableExtension();
+			for(int c = 0; c<this.nbComponents; c++) {
+				for(int x : this.options.get(c).get(this.choice[c])) {
+					result.addAccepted(this.graph.getArgument(x));
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * moves to the next combination of extensions of the components
+		 * returns false if there is none
+		 */
+		protected boolean search() {
+			if(!this.started) {
+				this.started = true;
+				if(this.nbComponents == 0) {
+					// empty AF: the empty extension
+					return true;
+				}
+				this.enter(0);
+			} else {
+				if(this.nbComponents == 0) {
+					return false;
+				}
+				// the last component takes its next extension
+				this.depth = this.nbComponents - 1;
+			}
+			while(this.depth >= 0) {
+				int c = this.depth;
+				List<int[]> extensions = this.options.get(c);
+				if(this.choice[c] >= 0) {
+					this.setAccepted(extensions.get(this.choice[c]), false);
+				}
+				this.choice[c]++;
+				if(this.choice[c] >= extensions.size()) {
+					this.depth--;
+					continue;
+				}
+				this.setAccepted(extensions.get(this.choice[c]), true);
+				if(c == this.nbComponents - 1) {
+					return true;
+				}
+				this.enter(c + 1);
+			}
+			return false;
+		}
+
+		/**
+		 * computes (or takes from the memo) the extensions of component c
+		 * knowing the accepted arguments of the previous components
+		 */
+		protected void enter(int c) {
+			this.depth = c;
+			this.choice[c] = -1;
+			int start = this.components.getMembersStart(c);
+			int end = this.components.getMembersEnd(c);
+			BitSet rejected = new BitSet(end - start);
+			int[] remaining = new int[end - start];
+			int size = 0;
+			for(int k = start; k<end; k++) {
+				int x = this.components.getMember(k);
+				if(this.isAttackedFromOutside(x, c)) {
+					rejected.set(k - start);
+				} else {
+					remaining[size++] = x;
+				}
+			}
+			List<int[]> extensions = this.memo.get(c).get(rejected);
+			if(extensions == null) {
+				extensions = new ArrayList<int[]>();
+				if(size == 0) {
+					extensions.add(new int[0]);
+				} else {
+					for(int[] local : SCC_AF_Solver.this.getComponentExtensions(this.graph.getRestriction(remaining, size))) {
+						int[] global = new int[local.length];
+						for(int i = 0; i<local.length; i++) {
+							global[i] = remaining[local[i]];
+						}
+						extensions.add(global);
+					}
+				}
+				this.memo.get(c).put(rejected, extensions);
+			}
+			this.options.set(c, extensions);
+		}
+
+		/**
+		 * true if x is attacked by an accepted argument of a previous component
+		 */
+		protected boolean isAttackedFromOutside(int x, int c) {
+			for(int k = this.graph.getAttackersStart(x); k<this.graph.getAttackersEnd(x); k++) {
+				int y = this.graph.getAttacker(k);
+				if(this.accepted[y] && this.components.getComponent(y) != c) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		protected void setAccepted(int[] extension, boolean value) {
+			for(int x : extension) {
+				this.accepted[x] = value;
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package solvers;
+
+import util.Util;
+
+/**
+ * Sequential probability ratio test of "controlling power = 1"
+ * H0: p = 1 against H1: p <= 1 - error
+ * - one failure rejects H0 at once (no more simulation needed)
+ * - after n successes the likelihood ratio is (1-error)^n,
+ * H0 is accepted when it is below the risk level of Util.CONFIDENCE_INT
+ * (risk of answering "controlled" if p = 1 - error): n = ln(risk)/ln(1-error)
+ * Only answers the controllability question: with Most_Probable_Controlling_Entities_Solver
+ * a controlling power below 1 is only estimated on Util.MINIMUM_SIMULATION simulations.
+ */
+public class SPRT_Stopping_Rule implements I_Stopping_Rule {
+
+	public double getNewSimulationNumber(double success, double nbSimu, double error) {
+		if(success < nbSimu) {
+			// H0 rejected
+			return nbSimu;
+		}
+		return this.getMaxSimulationNumber(error);
+	}
+
+	public double getMaxSimulationNumber(double error) {
+		return Math.log(Util.getRiskLevel(Util.CONFIDENCE_INT))/Math.log(1 - error);
+	}
+}
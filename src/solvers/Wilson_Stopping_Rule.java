@@ -0,0 +1,37 @@
+package solvers;
+
+import util.Util;
+
+/**
+ * Wilson score interval of half width error (confidence Util.CONFIDENCE_INT)
+ * the half width at p estimated on the simulations done is
+ * z.sqrt(p(1-p)/n + z2/4n2)/(1 + z2/n)
+ * and n is the largest root of the corresponding second degree equation.
+ * Needs less simulations than Agresti-Coull when p is close to 0 or 1
+ * (z2/2.error - z2 when all the simulations are successful).
+ */
+public class Wilson_Stopping_Rule implements I_Stopping_Rule {
+
+	public double getNewSimulationNumber(double success, double nbSimu, double error) {
+		double p = 0.5;
+		if(nbSimu > 0) {
+			p = success/nbSimu;
+		}
+		return this.getSimulationNumber(p*(1-p), error);
+	}
+
+	public double getMaxSimulationNumber(double error) {
+		return this.getSimulationNumber(0.25, error);
+	}
+
+	/**
+	 * smallest n such that the half width is at most error
+	 * @param variance p(1-p)
+	 */
+	protected double getSimulationNumber(double variance, double error) {
+		double z2 = Math.pow(Util.CONFIDENCE_INT, 2);
+		double epsilon2 = Math.pow(error, 2);
+		double delta = variance*variance + epsilon2*(1 - 4*variance);
+		return z2*(variance - 2*epsilon2 + Math.sqrt(delta))/(2*epsilon2);
+	}
+}
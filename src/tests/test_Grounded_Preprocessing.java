@@ -0,0 +1,144 @@
+package tests;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+import generators.ControllabilityEncoder;
+import generators.DirectSATEncoder;
+import generators.RandomCAFRootCompletionGenerator;
+import generators.SATQDIMACSConverter;
+import generators.StrongSATEncoder;
+import model.Argument;
+import model.ArgumentFramework;
+import model.ControlAF;
+import model.GroundedLabelling;
+import util.RandomGen;
+
+/**
+ * Checks that the grounded preprocessing (GroundedLabelling) does not change the encodings:
+ * DirectSATEncoder and StrongSATEncoder must have the same models on the acc and on variables
+ * with and without preprocessing, credulous and skeptical, on random completions of random CAFs
+ * usage: test_Grounded_Preprocessing [number of CAFs] [seed]
+ */
+public class test_Grounded_Preprocessing {
+
+	public static final int COMPLETIONS_PER_CAF = 3;
+
+	/**
+	 * all the models of the clauses projected on the original variables (named)
+	 * each model is the set of the names of the original variables set to true
+	 */
+	public static Set<Set<String>> getModels(List<int[]> clauses, int nbVar, Map<Integer, String> originals) throws TimeoutException {
+		Set<Set<String>> result = new HashSet<Set<String>>();
+		ISolver solver = SolverFactory.newDefault();
+		solver.newVar(nbVar);
+		try {
+			for(int[] clause : clauses) {
+				solver.addClause(new VecInt(clause));
+			}
+		} catch (ContradictionException e) {
+			return result;
+		}
+		while(solver.isSatisfiable()) {
+			Set<String> model = new HashSet<String>();
+			VecInt blocking = new VecInt();
+			for(Map.Entry<Integer, String> entry : originals.entrySet()) {
+				int var = entry.getKey().intValue();
+				if(solver.model(var)) {
+					model.add(entry.getValue());
+					blocking.push(-var);
+				} else {
+					blocking.push(var);
+				}
+			}
+			result.add(model);
+			try {
+				solver.addClause(blocking);
+			} catch (ContradictionException e) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	public static Set<Set<String>> getDirectModels(ControlAF CAF, ArgumentFramework completion, int type, boolean grounded) throws TimeoutException {
+		DirectSATEncoder encoder = new DirectSATEncoder(completion, CAF);
+		encoder.setGroundedPreprocessing(grounded);
+		encoder.encode(type);
+		Map<Integer, String> originals = new HashMap<Integer, String>();
+		for(int var = 1; var <= encoder.getNbOriginalVar(); var++) {
+			Argument arg = encoder.getArgument(var);
+			originals.put(Integer.valueOf(var), (encoder.isOnVar(var) ? "on_" : "acc_") + arg.getName());
+		}
+		return getModels(Arrays.asList(encoder.getClauses()), encoder.getNbVar(), originals);
+	}
+
+	public static Set<Set<String>> getStrongModels(ControlAF CAF, ArgumentFramework completion, int type, boolean grounded) throws TimeoutException {
+		StrongSATEncoder encoder = new StrongSATEncoder(completion, CAF);
+		encoder.setGroundedPreprocessing(grounded);
+		SATQDIMACSConverter converter = new SATQDIMACSConverter(encoder.encode(type));
+		List<int[]> clauses = converter.convertToListOfClauses();
+		Map<Integer, String> originals = new HashMap<Integer, String>();
+		for(int var = 1; var <= converter.getNbVar(); var++) {
+			List<String> names = converter.decodeModel(new int[] {var});
+			if(!names.isEmpty()) {
+				originals.put(Integer.valueOf(var), names.get(0));
+			}
+		}
+		return getModels(clauses, converter.getNbVar(), originals);
+	}
+
+	public static void main(String[] args) throws TimeoutException {
+		int nbCAFs = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		RandomGen.setSeed(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		RandomGen random = new RandomGen(RandomGen.randInt(0, Integer.MAX_VALUE - 1));
+		int errors = 0;
+		int checked = 0;
+		int nbArguments = 0;
+		int nbDecided = 0;
+		int[] types = new int[] {ControllabilityEncoder.CREDULOUS, ControllabilityEncoder.SKEPTICAL};
+		for(int i = 0; i<nbCAFs; i++) {
+			ControlAF CAF = test_Incremental_SAT.randomCAF(random, random.nextInt(3, 8));
+			if(CAF == null) {
+				continue;
+			}
+			RandomCAFRootCompletionGenerator generator = new RandomCAFRootCompletionGenerator(CAF);
+			for(int c = 0; c<COMPLETIONS_PER_CAF; c++) {
+				ArgumentFramework completion = generator.getRandomRootCompletion();
+				GroundedLabelling labelling = new GroundedLabelling(CAF, completion);
+				for(Argument arg : completion.getAllArguments()) {
+					nbArguments++;
+					if(labelling.getLabel(arg) != GroundedLabelling.UNDEC) {
+						nbDecided++;
+					}
+				}
+				for(int type : types) {
+					checked++;
+					boolean same = getDirectModels(CAF, completion, type, true).equals(getDirectModels(CAF, completion, type, false))
+							&& getStrongModels(CAF, completion, type, true).equals(getStrongModels(CAF, completion, type, false));
+					if(!same) {
+						errors++;
+						System.out.println("grounded preprocessing changes the models (type " + type + ") on completion:");
+						System.out.println(completion.toString());
+						System.out.println("of CAF:");
+						System.out.println(CAF.toString());
+					}
+				}
+			}
+		}
+		System.out.println(checked + " encodings checked (" + nbDecided + " of " + nbArguments + " arguments decided), " + errors + " errors");
+		if(errors > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package tests;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import generators.CAFGenerator;
+import generators.ControllabilityEncoder;
+import generators.RandomCAFRootCompletionGenerator;
+import model.ArgumentFramework;
+import model.CArgument;
+import model.ControlAF;
+import model.StableControlConfiguration;
+import model.StableExtension;
+import solvers.Incremental_SAT_Completion_Solver;
+import solvers.Labelling_AF_Solver;
+import solvers.SAT_Completion_Solver;
+import util.RandomGen;
+
+/**
+ * Checks that one Incremental_SAT_Completion_Solver reused across completions
+ * gives the same credulous control configurations (and extensions) as a new SAT_Completion_Solver
+ * per completion, and the skeptical control configurations of a brute force check
+ * (every control configuration, stable extensions of the resulting AF) on random CAFs.
+ * A SAT_Completion_Solver moved from one completion to the next (setCompletion) must give
+ * the same results as a new one.
+ * Also checks that the session does not grow with the number of completions
+ * usage: test_Incremental_SAT [number of CAFs] [seed]
+ */
+public class test_Incremental_SAT {
+
+	public static final int COMPLETIONS_PER_CAF = 10;
+	// more than Incremental_SAT_Completion_Solver.MAX_GUARDS enumerations
+	public static final int LONG_RUN = 6000;
+
+	/**
+	 * random CAF built on a random AF of n arguments (null if the generator fails)
+	 */
+	public static ControlAF randomCAF(RandomGen random, int n) {
+		ArgumentFramework af = test_Stable_Extensions.randomAF(random, n, random.nextInt(n/2, 2*n));
+		return new CAFGenerator(af, 50, 20, 60, 20).generate(1);
+	}
+
+	/**
+	 * control configurations of the completion by testing every subset of control arguments
+	 * (stable extensions of buildAF(completion, cc), an extension accepts cc if it contains the target
+	 * and the control arguments of cc)
+	 * credulous: one stable extension accepts cc
+	 * skeptical: there is a stable extension and all of them accept cc
+	 */
+	public static Set<StableControlConfiguration> bruteForce(ControlAF CAF, ArgumentFramework completion, int type) {
+		CArgument[] controls = CAF.getArgumentsByType(CArgument.Type.CONTROL).toArray(new CArgument[0]);
+		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
+		for(long subset = 0; subset < (1L << controls.length); subset++) {
+			StableControlConfiguration cc = new StableControlConfiguration();
+			for(int i = 0; i<controls.length; i++) {
+				if((subset & (1L << i)) != 0) {
+					cc.addOnControl(controls[i]);
+				}
+			}
+			Set<StableExtension> extensions = new Labelling_AF_Solver(CAF.buildAF(completion, cc)).getStableSets();
+			int accepting = 0;
+			for(StableExtension ext : extensions) {
+				if(ext.contains(CAF.getTarget()) && ext.contains(cc.getOnControl())) {
+					accepting++;
+				}
+			}
+			if(type == ControllabilityEncoder.CREDULOUS && accepting > 0) {
+				result.add(cc);
+			}
+			if(type == ControllabilityEncoder.SKEPTICAL && accepting > 0 && accepting == extensions.size()) {
+				result.add(cc);
+			}
+		}
+		return result;
+	}
+
+	public static void main(String[] args) {
+		int nbCAFs = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		RandomGen.setSeed(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		RandomGen random = new RandomGen(RandomGen.randInt(0, Integer.MAX_VALUE - 1));
+		int errors = 0;
+		int checked = 0;
+		ControlAF last = null;
+		for(int i = 0; i<nbCAFs; i++) {
+			ControlAF CAF = randomCAF(random, random.nextInt(3, 8));
+			if(CAF == null) {
+				continue;
+			}
+			last = CAF;
+			RandomCAFRootCompletionGenerator generator = new RandomCAFRootCompletionGenerator(CAF);
+			Incremental_SAT_Completion_Solver session = new Incremental_SAT_Completion_Solver(CAF);
+			SAT_Completion_Solver moved = null;
+			for(int c = 0; c<COMPLETIONS_PER_CAF; c++) {
+				ArgumentFramework completion = generator.getRandomRootCompletion();
+				session.setCompletion(completion);
+				SAT_Completion_Solver fresh = new SAT_Completion_Solver(CAF, completion);
+				if(moved == null) {
+					moved = new SAT_Completion_Solver(CAF, completion);
+				}
+				moved.setCompletion(completion);
+				Set<StableControlConfiguration> skeptical = bruteForce(CAF, completion, ControllabilityEncoder.SKEPTICAL);
+				boolean same = session.getCredulousControlConfigurations().equals(fresh.getCredulousControlConfigurations())
+						&& session.getCredulousControlConfigurationsOnly().equals(fresh.getCredulousControlConfigurationsOnly())
+						&& session.getSkepticalControlConfigurations().keySet().equals(skeptical)
+						&& session.getSkepticalControlConfigurationsOnly().equals(skeptical)
+						&& moved.getCredulousControlConfigurations().equals(fresh.getCredulousControlConfigurations())
+						&& moved.getSkepticalControlConfigurationsOnly().equals(fresh.getSkepticalControlConfigurationsOnly());
+				checked++;
+				if(!same) {
+					errors++;
+					System.out.println("Incremental_SAT_Completion_Solver or moved SAT_Completion_Solver differs on completion:");
+					System.out.println(completion.toString());
+					System.out.println("of CAF:");
+					System.out.println(CAF.toString());
+				}
+			}
+		}
+		System.out.println(checked + " completions checked, " + errors + " errors");
+
+		// long run on the last CAF: the number of constraints must stay the same
+		if(last != null) {
+			RandomCAFRootCompletionGenerator generator = new RandomCAFRootCompletionGenerator(last);
+			Incremental_SAT_Completion_Solver session = new Incremental_SAT_Completion_Solver(last);
+			int initial = session.getNbConstraints();
+			for(int c = 0; c<LONG_RUN; c++) {
+				ArgumentFramework completion = generator.getRandomRootCompletion();
+				session.setCompletion(completion);
+				Set<StableControlConfiguration> credulous = session.getCredulousControlConfigurations().keySet();
+				Set<StableControlConfiguration> only = session.getCredulousControlConfigurationsOnly();
+				if(c % 250 == 0 && !(credulous.equals(only) && only.equals(bruteForce(last, completion, ControllabilityEncoder.CREDULOUS)))) {
+					errors++;
+					System.out.println("Incremental_SAT_Completion_Solver differs after " + c + " completions");
+				}
+			}
+			System.out.println("constraints: " + initial + " at start, " + session.getNbConstraints() + " after " + LONG_RUN + " completions");
+			if(session.getNbConstraints() != initial) {
+				errors++;
+			}
+		}
+		if(errors > 0) {
+			System.exit(1);
+		}
+	}
+}
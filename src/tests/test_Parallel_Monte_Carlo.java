@@ -0,0 +1,128 @@
+package tests;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import generators.ControllabilityEncoder;
+import model.ArgumentFramework;
+import model.ControlAF;
+import model.PControlAF;
+import model.StableControlConfiguration;
+import solvers.I_Completion_Solver;
+import solvers.I_Monte_Carlo_Solver;
+import solvers.Monte_Carlo_CAF_Solver;
+import solvers.Most_Probable_Controlling_Entities_Solver;
+import solvers.Parallel_Monte_Carlo_Engine;
+import util.RandomGen;
+
+/**
+ * Checks that seeded parallel runs with a fixed number of simulations are reproducible:
+ * Monte_Carlo_CAF_Solver and Most_Probable_Controlling_Entities_Solver (equiprobable PCAF of the CAF)
+ * must give the same controlling power and control configurations with 2 and 4 workers on random CAFs.
+ * An engine run with an error level (growing number of simulations) on 4 workers must simulate
+ * each index once: the substreams used are the ones of the indices 0 to the number of simulations - 1
+ * usage: test_Parallel_Monte_Carlo [number of CAFs] [seed]
+ */
+public class test_Parallel_Monte_Carlo {
+
+	public static final int SIMULATIONS = 200;
+	public static final double ERROR = 0.05;
+	public static final int WORKERS = 4;
+
+	/**
+	 * true if an engine run with an error level draws from the substreams of the indices
+	 * 0 to getNbSimulations() - 1, each one once
+	 * (the first value of each substream is taken before the completion)
+	 */
+	public static boolean checkIndices(final ControlAF CAF, long seed) {
+		final Set<Long> drawn = ConcurrentHashMap.<Long>newKeySet();
+		final AtomicInteger nbDraws = new AtomicInteger(0);
+		Parallel_Monte_Carlo_Engine engine = new Parallel_Monte_Carlo_Engine(new Parallel_Monte_Carlo_Engine.SamplerFactory() {
+			public Parallel_Monte_Carlo_Engine.Sampler newSampler(final RandomGen random) {
+				final Parallel_Monte_Carlo_Engine.Sampler sampler = new Parallel_Monte_Carlo_Engine.CompletionSampler(CAF, I_Monte_Carlo_Solver.SAT_SOLVER, random);
+				return new Parallel_Monte_Carlo_Engine.Sampler() {
+					public ArgumentFramework getRandomRootCompletion() {
+						drawn.add(random.nextLong());
+						nbDraws.incrementAndGet();
+						return sampler.getRandomRootCompletion();
+					}
+					public I_Completion_Solver getSolver(ArgumentFramework af) {
+						return sampler.getSolver(af);
+					}
+				};
+			}
+		}, WORKERS, ControllabilityEncoder.CREDULOUS);
+		engine.setRecordSupportingPower(false);
+		engine.setRandom(new RandomGen(seed));
+		engine.run(ERROR);
+		long substreamsSeed = new RandomGen(seed).nextLong();
+		Set<Long> expected = new HashSet<Long>();
+		RandomGen stream = new RandomGen(0);
+		for(int index = 0; index<engine.getNbSimulations(); index++) {
+			stream.setSubstream(substreamsSeed, index);
+			expected.add(stream.nextLong());
+		}
+		return nbDraws.get() == engine.getNbSimulations() && drawn.equals(expected);
+	}
+
+	public static void main(String[] args) {
+		int nbCAFs = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		RandomGen.setSeed(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		RandomGen random = new RandomGen(RandomGen.randInt(0, Integer.MAX_VALUE - 1));
+		int errors = 0;
+		int checked = 0;
+		for(int i = 0; i<nbCAFs; i++) {
+			ControlAF CAF = test_Incremental_SAT.randomCAF(random, random.nextInt(3, 8));
+			if(CAF == null) {
+				continue;
+			}
+			long seed = random.nextLong();
+			Set<StableControlConfiguration> expected = null;
+			double expectedPower = 0;
+			Set<StableControlConfiguration> expectedMP = null;
+			double expectedPowerMP = 0;
+			for(int nbWorkers = 2; nbWorkers <= 4; nbWorkers += 2) {
+				Monte_Carlo_CAF_Solver solver = new Monte_Carlo_CAF_Solver(CAF, I_Monte_Carlo_Solver.SAT_SOLVER);
+				solver.setExactEnumeration(false);
+				solver.setNbWorkers(nbWorkers);
+				solver.setRandom(new RandomGen(seed));
+				Set<StableControlConfiguration> result = solver.getCredulousControlConfigurations(SIMULATIONS);
+
+				Most_Probable_Controlling_Entities_Solver mpSolver = new Most_Probable_Controlling_Entities_Solver(new PControlAF(CAF), I_Monte_Carlo_Solver.SAT_SOLVER);
+				mpSolver.setExactEnumeration(false);
+				mpSolver.setNbWorkers(nbWorkers);
+				mpSolver.setRandom(new RandomGen(seed));
+				Set<StableControlConfiguration> resultMP = mpSolver.getCredulousControlConfigurations(SIMULATIONS);
+
+				if(expectedMP == null) {
+					expected = result;
+					expectedPower = solver.getControllingPower();
+					expectedMP = resultMP;
+					expectedPowerMP = mpSolver.getControllingPower();
+					continue;
+				}
+				checked++;
+				boolean same = (expected == null ? result == null : expected.equals(result))
+						&& expectedPower == solver.getControllingPower()
+						&& expectedMP.equals(resultMP)
+						&& expectedPowerMP == mpSolver.getControllingPower();
+				if(!same) {
+					errors++;
+					System.out.println("runs with 2 and " + nbWorkers + " workers differ on CAF:");
+					System.out.println(CAF.toString());
+				}
+			}
+			if(!checkIndices(CAF, seed)) {
+				errors++;
+				System.out.println("run with an error level and " + WORKERS + " workers skips or repeats simulations on CAF:");
+				System.out.println(CAF.toString());
+			}
+		}
+		System.out.println(checked + " CAFs checked, " + errors + " errors");
+		if(errors > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import generators.ControllabilityEncoder;
+import generators.RandomCAFRootCompletionGenerator;
+import generators.RootCompletionEnumerator;
+import model.Argument;
+import model.ArgumentFramework;
+import model.Attack;
+import model.CArgument;
+import model.ControlAF;
+import model.PControlAF;
+import model.StableControlConfiguration;
+import solvers.I_Monte_Carlo_Solver;
+import solvers.Monte_Carlo_CAF_Solver;
+import solvers.Most_Probable_Controlling_Entities_Solver;
+import util.RandomGen;
+
+/**
+ * Checks ControlAF.getRelevantPart on random CAFs:
+ * - for random completions, the control configurations of the CAF (brute force of test_Incremental_SAT)
+ * with the removed control arguments off must be the ones of the relevant part on the completion
+ * restricted to the kept arguments, and turning the removed control arguments off keeps a configuration
+ * - with setRelevancePruning, Monte_Carlo_CAF_Solver and Most_Probable_Controlling_Entities_Solver
+ * (exact enumeration) must give the same controlling power and the control configurations
+ * found without pruning that have the removed control arguments off
+ * - sampled runs of solvers with pruning turned on after a first run must give the results of new solvers
+ * with pruning and the same stream (the cache of the solver must not answer for the previous CAF)
+ * usage: test_Relevant_Part [number of CAFs] [seed]
+ */
+public class test_Relevant_Part {
+
+	public static final int COMPLETIONS_PER_CAF = 4;
+	// number of simulations of the solvers (all the completions are enumerated below)
+	public static final int SIMULATIONS = 1 << 12;
+	// number of simulations of the sampled runs
+	public static final int TOGGLE_SIMULATIONS = 200;
+
+	/**
+	 * completion restricted to the kept arguments
+	 */
+	public static ArgumentFramework restrict(ArgumentFramework completion, Set<CArgument> kept) {
+		ArgumentFramework result = new ArgumentFramework();
+		for(Argument a : completion.getAllArguments()) {
+			if(kept.contains(a)) {
+				result.addArgument(a);
+			}
+		}
+		for(Argument a : completion.getAllArguments()) {
+			for(Argument b : completion.getAttackedArguments(a)) {
+				if(kept.contains(a) && kept.contains(b)) {
+					result.addAttack(new Attack(a, b));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * control configurations with all their on control arguments kept
+	 * (null stays null)
+	 */
+	public static Set<StableControlConfiguration> keptOnly(Set<StableControlConfiguration> configurations, Set<CArgument> kept) {
+		if(configurations == null) {
+			return null;
+		}
+		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
+		for(StableControlConfiguration cc : configurations) {
+			if(kept.containsAll(cc.getOnControl())) {
+				result.add(cc);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * same control configuration with the removed control arguments off
+	 */
+	public static StableControlConfiguration keptPart(StableControlConfiguration cc, Set<CArgument> kept) {
+		StableControlConfiguration result = new StableControlConfiguration();
+		for(CArgument c : cc.getOnControl()) {
+			if(kept.contains(c)) {
+				result.addOnControl(c);
+			}
+		}
+		return result;
+	}
+
+	private static Set<StableControlConfiguration> getControlConfigurations(I_Monte_Carlo_Solver solver, int type, int N) {
+		if(type == ControllabilityEncoder.CREDULOUS) {
+			return solver.getCredulousControlConfigurations(N);
+		}
+		return solver.getSkepticalControlConfigurations(N);
+	}
+
+	/**
+	 * sampled runs (the completions go through the cache) of solvers that ran on the whole CAF
+	 * then got relevance pruning must give the results of new solvers with relevance pruning
+	 * and the same stream
+	 */
+	public static boolean checkToggle(ControlAF CAF, int type, long seed) {
+		boolean ok = true;
+		for(int turnedOn = 0; turnedOn<2; turnedOn++) {
+			I_Monte_Carlo_Solver[] solvers = new I_Monte_Carlo_Solver[2];
+			List<Set<StableControlConfiguration>> results = new ArrayList<Set<StableControlConfiguration>>();
+			for(int k = 0; k<2; k++) {
+				if(turnedOn == 0) {
+					Monte_Carlo_CAF_Solver solver = new Monte_Carlo_CAF_Solver(CAF, I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER);
+					solver.setExactEnumeration(false);
+					if(k == 0) {
+						solver.getCredulousControlConfigurations(TOGGLE_SIMULATIONS);
+						solver.getSkepticalControlConfigurations(TOGGLE_SIMULATIONS);
+					}
+					solver.setRelevancePruning(true);
+					solver.setRandom(new RandomGen(seed));
+					solvers[k] = solver;
+				} else {
+					Most_Probable_Controlling_Entities_Solver solver = new Most_Probable_Controlling_Entities_Solver(new PControlAF(CAF), I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER);
+					solver.setExactEnumeration(false);
+					if(k == 0) {
+						solver.getCredulousControlConfigurations(TOGGLE_SIMULATIONS);
+						solver.getSkepticalControlConfigurations(TOGGLE_SIMULATIONS);
+					}
+					solver.setRelevancePruning(true);
+					solver.setRandom(new RandomGen(seed));
+					solvers[k] = solver;
+				}
+				results.add(getControlConfigurations(solvers[k], type, TOGGLE_SIMULATIONS));
+			}
+			ok = ok && same(results.get(0), results.get(1)) && solvers[0].getControllingPower() == solvers[1].getControllingPower();
+		}
+		return ok;
+	}
+
+	private static boolean same(Set<StableControlConfiguration> a, Set<StableControlConfiguration> b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	public static void main(String[] args) {
+		int nbCAFs = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		RandomGen.setSeed(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		RandomGen random = new RandomGen(RandomGen.randInt(0, Integer.MAX_VALUE - 1));
+		int errors = 0;
+		int checked = 0;
+		int exact = 0;
+		long nbKept = 0;
+		long nbArguments = 0;
+		int[] types = new int[] {ControllabilityEncoder.CREDULOUS, ControllabilityEncoder.SKEPTICAL};
+		for(int i = 0; i<nbCAFs; i++) {
+			ControlAF CAF = test_Incremental_SAT.randomCAF(random, random.nextInt(4, 10));
+			if(CAF == null) {
+				continue;
+			}
+			ControlAF relevant = CAF.getRelevantPart();
+			Set<CArgument> kept = relevant.getAllArguments();
+			nbKept = nbKept + kept.size();
+			nbArguments = nbArguments + CAF.getAllArguments().size();
+
+			// completion by completion
+			RandomCAFRootCompletionGenerator generator = new RandomCAFRootCompletionGenerator(CAF);
+			for(int c = 0; c<COMPLETIONS_PER_CAF; c++) {
+				ArgumentFramework completion = generator.getRandomRootCompletion();
+				for(int type : types) {
+					checked++;
+					Set<StableControlConfiguration> full = test_Incremental_SAT.bruteForce(CAF, completion, type);
+					Set<StableControlConfiguration> reduced = test_Incremental_SAT.bruteForce(relevant, restrict(completion, kept), type);
+					boolean ok = keptOnly(full, kept).equals(reduced);
+					for(StableControlConfiguration cc : full) {
+						ok = ok && reduced.contains(keptPart(cc, kept));
+					}
+					if(!ok) {
+						errors++;
+						System.out.println("relevant part differs (type " + type + ") on completion:");
+						System.out.println(completion.toString());
+						System.out.println("of CAF:");
+						System.out.println(CAF.toString());
+					}
+				}
+			}
+
+			// solvers with and without relevance pruning
+			if(RootCompletionEnumerator.getSpaceSize(CAF.getCompletionSkeleton()) > SIMULATIONS) {
+				continue;
+			}
+			PControlAF PCAF = new PControlAF(CAF);
+			for(int type : types) {
+				exact++;
+				List<Set<StableControlConfiguration>> results = new ArrayList<Set<StableControlConfiguration>>();
+				List<Set<StableControlConfiguration>> mpResults = new ArrayList<Set<StableControlConfiguration>>();
+				Monte_Carlo_CAF_Solver[] solvers = new Monte_Carlo_CAF_Solver[2];
+				Most_Probable_Controlling_Entities_Solver[] mpSolvers = new Most_Probable_Controlling_Entities_Solver[2];
+				for(int pruning = 0; pruning<2; pruning++) {
+					solvers[pruning] = new Monte_Carlo_CAF_Solver(CAF, I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER);
+					solvers[pruning].setRelevancePruning(pruning == 1);
+					mpSolvers[pruning] = new Most_Probable_Controlling_Entities_Solver(PCAF, I_Monte_Carlo_Solver.INCREMENTAL_SAT_SOLVER);
+					mpSolvers[pruning].setRelevancePruning(pruning == 1);
+					results.add(getControlConfigurations(solvers[pruning], type, SIMULATIONS));
+					mpResults.add(getControlConfigurations(mpSolvers[pruning], type, SIMULATIONS));
+				}
+				boolean ok = solvers[0].isExact() && solvers[1].isExact() && mpSolvers[0].isExact() && mpSolvers[1].isExact()
+						&& solvers[0].getControllingPower() == solvers[1].getControllingPower()
+						&& Math.abs(mpSolvers[0].getControllingPower() - mpSolvers[1].getControllingPower()) < 1e-9
+						&& same(keptOnly(results.get(0), kept), results.get(1))
+						&& same(keptOnly(mpResults.get(0), kept), mpResults.get(1));
+				if(!ok) {
+					errors++;
+					System.out.println("relevance pruning changes the result of the solvers (type " + type + ") on CAF:");
+					System.out.println(CAF.toString());
+				}
+				if(!checkToggle(CAF, type, random.nextLong())) {
+					errors++;
+					System.out.println("relevance pruning turned on after a run gives another result (type " + type + ") on CAF:");
+					System.out.println(CAF.toString());
+				}
+			}
+		}
+		System.out.println(checked + " completions and " + exact + " exact solver runs checked ("
+				+ (100*nbKept/Math.max(1, nbArguments)) + "% of the arguments kept), " + errors + " errors");
+		if(errors > 0) {
+			System.exit(1);
+		}
+	}
+}
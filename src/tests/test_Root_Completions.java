@@ -0,0 +1,226 @@
+package tests;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import generators.BiasedPCAFRootCompletionGenerator;
+import generators.RootCompletionEnumerator;
+import model.BitsetCompletion;
+import model.CArgument;
+import model.CAttack;
+import model.CompletionSkeleton;
+import model.ControlAF;
+import model.Fingerprint;
+import model.PControlAF;
+import solvers.Completion_Proba_Calculator;
+import solvers.Incremental_SAT_Completion_Solver;
+import util.RandomGen;
+
+/**
+ * Checks RootCompletionEnumerator on random PCAFs against a brute force enumeration
+ * (every value of every bit of the skeleton, the completions with the same arguments and attacks
+ * being counted once): each root completion must be given exactly once
+ * and the probabilities of the completions must sum to 1.
+ * Each step must change one uncertain element, the bits given by getChangedBit being the bits changed;
+ * the probability computed on the bits must be the one of the AF, and an Incremental_SAT_Completion_Solver
+ * following the steps (updateBit) must give the same control configurations as one set on each completion.
+ * The proposal of a BiasedPCAFRootCompletionGenerator must also be a distribution on the completions
+ * (positive where the PCAF is) and leave the PCAF unchanged
+ * usage: test_Root_Completions [number of PCAFs] [seed]
+ */
+public class test_Root_Completions {
+
+	// larger skeletons are skipped (brute force)
+	public static final double MAX_SPACE_SIZE = 1 << 14;
+
+	/**
+	 * PCAF of a random CAF with random probabilities
+	 * null if the generator fails or gives attacks sharing a direction
+	 * (an undirected attack and another attack on the same arguments, an undirected self attack):
+	 * different values of the skeleton then give the same completion
+	 */
+	public static PControlAF randomPCAF(RandomGen random, int n) {
+		ControlAF CAF = test_Incremental_SAT.randomCAF(random, n);
+		if(CAF == null) {
+			return null;
+		}
+		Set<String> directions = new HashSet<String>();
+		for(CAttack.Type type : CAttack.Type.values()) {
+			for(CAttack att : CAF.getAttacksByType(type)) {
+				boolean added = directions.add(att.getFrom().getName() + "->" + att.getTo().getName());
+				if(type == CAttack.Type.UNDIRECTED) {
+					added = directions.add(att.getTo().getName() + "->" + att.getFrom().getName()) && added;
+				}
+				if(!added) {
+					return null;
+				}
+			}
+		}
+		PControlAF PCAF = new PControlAF();
+		for(CArgument arg : CAF.getAllArguments()) {
+			if(arg.getType() == CArgument.Type.UNCERTAIN) {
+				PCAF.addArgument(arg, random.nextDouble(0.05, 0.95));
+			} else {
+				PCAF.addArgument(arg);
+			}
+		}
+		for(CAttack att : CAF.getAttacksByType(CAttack.Type.CERTAIN)) {
+			PCAF.addAttack(att);
+		}
+		for(CAttack att : CAF.getAttacksByType(CAttack.Type.CONTROL)) {
+			PCAF.addAttack(att);
+		}
+		for(CAttack att : CAF.getAttacksByType(CAttack.Type.UNCERTAIN)) {
+			PCAF.addAttack(att, random.nextDouble(0.05, 0.95));
+		}
+		for(CAttack att : CAF.getAttacksByType(CAttack.Type.UNDIRECTED)) {
+			double fromTo = random.nextDouble(0.05, 0.9);
+			PCAF.addAttack(att, fromTo, random.nextDouble(0.05, 0.95 - fromTo));
+		}
+		PCAF.setTarget(CAF.getTarget());
+		return PCAF;
+	}
+
+	/**
+	 * fingerprints of the root completions by testing every value of the bits of the skeleton
+	 * (uncertain arguments and attacks: 2 values, undirected attacks: 3 values)
+	 */
+	public static Set<Fingerprint> bruteForce(CompletionSkeleton skeleton) {
+		int nbBinary = skeleton.getNbUncertainArguments() + skeleton.getNbUncertainAttacks();
+		int nbUndirected = skeleton.getNbUndirectedAttacks();
+		Set<Fingerprint> result = new HashSet<Fingerprint>();
+		int[] digits = new int[nbBinary + nbUndirected];
+		BitsetCompletion completion = new BitsetCompletion(skeleton);
+		while(true) {
+			completion.clear();
+			for(int i = 0; i<skeleton.getNbUncertainArguments(); i++) {
+				completion.set(skeleton.getUncertainArgumentBit(i), digits[i] == 1);
+			}
+			for(int i = 0; i<skeleton.getNbUncertainAttacks(); i++) {
+				completion.set(skeleton.getUncertainAttackBit(i), digits[skeleton.getNbUncertainArguments() + i] == 1);
+			}
+			for(int i = 0; i<nbUndirected; i++) {
+				// 0: from->to, 1: both, 2: to->from
+				int value = digits[nbBinary + i];
+				completion.set(skeleton.getUndirectedAttackBit(i), value != 2);
+				completion.set(skeleton.getUndirectedAttackBit(i) + 1, value != 0);
+			}
+			result.add(completion.toArgumentFramework().getFingerprint());
+			// next assignment (odometer)
+			int digit = 0;
+			while(digit < digits.length && digits[digit] == (digit < nbBinary ? 1 : 2)) {
+				digits[digit] = 0;
+				digit++;
+			}
+			if(digit == digits.length) {
+				return result;
+			}
+			digits[digit]++;
+		}
+	}
+
+	/**
+	 * true if current follows previous by one step of the enumerator:
+	 * the changed bits are the bits of one uncertain element and no other bit changed
+	 */
+	public static boolean isGrayStep(BitsetCompletion previous, BitsetCompletion current, RootCompletionEnumerator enumerator) {
+		CompletionSkeleton skeleton = current.getSkeleton();
+		int nbChanged = enumerator.getNbChangedBits();
+		if(nbChanged < 1 || nbChanged > 2) {
+			return false;
+		}
+		Set<Integer> changed = new HashSet<Integer>();
+		for(int i = 0; i<nbChanged; i++) {
+			changed.add(enumerator.getChangedBit(i));
+		}
+		for(int bit = 0; bit<skeleton.getNbBits(); bit++) {
+			if((previous.get(bit) != current.get(bit)) != changed.contains(bit)) {
+				return false;
+			}
+		}
+		if(nbChanged == 1) {
+			return true;
+		}
+		// two bits: both directions of one undirected attack
+		for(int i = 0; i<skeleton.getNbUndirectedAttacks(); i++) {
+			int bit = skeleton.getUndirectedAttackBit(i);
+			if(changed.contains(bit) && changed.contains(bit + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static void main(String[] args) {
+		int nbPCAFs = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		RandomGen.setSeed(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		RandomGen random = new RandomGen(RandomGen.randInt(0, Integer.MAX_VALUE - 1));
+		int errors = 0;
+		int checked = 0;
+		long nbCompletions = 0;
+		for(int i = 0; i<nbPCAFs; i++) {
+			PControlAF PCAF = randomPCAF(random, random.nextInt(3, 10));
+			if(PCAF == null || RootCompletionEnumerator.getSpaceSize(PCAF.getCompletionSkeleton()) > MAX_SPACE_SIZE) {
+				continue;
+			}
+			checked++;
+			CompletionSkeleton skeleton = PCAF.getCompletionSkeleton();
+			String before = PCAF.toString();
+			Completion_Proba_Calculator calculator = new Completion_Proba_Calculator(PCAF);
+			Completion_Proba_Calculator proposal = new Completion_Proba_Calculator(new BiasedPCAFRootCompletionGenerator(PCAF, 0.5).getProposal());
+			Set<Fingerprint> expected = bruteForce(skeleton);
+			Set<Fingerprint> enumerated = new HashSet<Fingerprint>();
+			RootCompletionEnumerator enumerator = new RootCompletionEnumerator(skeleton);
+			Incremental_SAT_Completion_Solver stepped = new Incremental_SAT_Completion_Solver(PCAF);
+			Incremental_SAT_Completion_Solver reset = new Incremental_SAT_Completion_Solver(PCAF);
+			BitsetCompletion previous = null;
+			int count = 0;
+			double sum = 0;
+			double proposalSum = 0;
+			boolean positive = true;
+			boolean steps = true;
+			while(enumerator.hasNext()) {
+				BitsetCompletion completion = enumerator.next();
+				enumerated.add(completion.toArgumentFramework().getFingerprint());
+				sum = sum + calculator.getProbability(completion.toArgumentFramework());
+				proposalSum = proposalSum + proposal.getProbability(completion.toArgumentFramework());
+				positive = positive && (calculator.getProbability(completion) == 0 || proposal.getProbability(completion) > 0);
+				count++;
+				if(previous == null) {
+					stepped.setCompletion(completion);
+				} else {
+					steps = steps && isGrayStep(previous, completion, enumerator);
+					for(int b = 0; b<enumerator.getNbChangedBits(); b++) {
+						stepped.updateBit(enumerator.getChangedBit(b));
+					}
+				}
+				reset.setCompletion(completion);
+				steps = steps && Math.abs(calculator.getProbability(completion) - calculator.getProbability(completion.toArgumentFramework())) < 1e-12
+						&& stepped.getCredulousControlConfigurationsOnly().equals(reset.getCredulousControlConfigurationsOnly())
+						&& stepped.getSkepticalControlConfigurationsOnly().equals(reset.getSkepticalControlConfigurationsOnly());
+				previous = completion.copy();
+			}
+			nbCompletions = nbCompletions + count;
+			if(count != enumerated.size() || !enumerated.equals(expected) || Math.abs(sum - 1) > 1e-9) {
+				errors++;
+				System.out.println("RootCompletionEnumerator gives " + count + " completions (" + enumerated.size() + " different, "
+						+ expected.size() + " expected), probability sum " + sum + " on PCAF:");
+				System.out.println(PCAF.toString());
+			}
+			if(Math.abs(proposalSum - 1) > 1e-9 || !positive || !before.equals(PCAF.toString())) {
+				errors++;
+				System.out.println("wrong proposal of BiasedPCAFRootCompletionGenerator (probability sum " + proposalSum + ") on PCAF:");
+				System.out.println(before);
+			}
+			if(!steps) {
+				errors++;
+				System.out.println("wrong step of RootCompletionEnumerator (changed bits, probability or incremental update) on PCAF:");
+				System.out.println(PCAF.toString());
+			}
+		}
+		System.out.println(checked + " PCAFs checked (" + nbCompletions + " completions), " + errors + " errors");
+		if(errors > 0) {
+			System.exit(1);
+		}
+	}
+}
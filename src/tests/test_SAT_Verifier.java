@@ -0,0 +1,71 @@
+package tests;
+
+import java.util.Set;
+
+import generators.ControllabilityEncoder;
+import generators.RandomCAFRootCompletionGenerator;
+import model.ArgumentFramework;
+import model.CArgument;
+import model.ControlAF;
+import model.StableControlConfiguration;
+import solvers.Labelling_AF_Solver;
+import solvers.SAT_Completion_Verifier;
+import util.RandomGen;
+
+/**
+ * Checks SAT_Completion_Verifier against the brute force of test_Incremental_SAT
+ * for every control configuration of random completions (one verifier per completion,
+ * all the configurations checked with it), including the configurations with no stable extension
+ * usage: test_SAT_Verifier [number of CAFs] [seed]
+ */
+public class test_SAT_Verifier {
+
+	public static final int COMPLETIONS_PER_CAF = 5;
+
+	public static void main(String[] args) {
+		int nbCAFs = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		RandomGen.setSeed(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		RandomGen random = new RandomGen(RandomGen.randInt(0, Integer.MAX_VALUE - 1));
+		int errors = 0;
+		int checked = 0;
+		int noExtension = 0;
+		for(int i = 0; i<nbCAFs; i++) {
+			ControlAF CAF = test_Incremental_SAT.randomCAF(random, random.nextInt(3, 8));
+			if(CAF == null) {
+				continue;
+			}
+			CArgument[] controls = CAF.getArgumentsByType(CArgument.Type.CONTROL).toArray(new CArgument[0]);
+			RandomCAFRootCompletionGenerator generator = new RandomCAFRootCompletionGenerator(CAF);
+			for(int c = 0; c<COMPLETIONS_PER_CAF; c++) {
+				ArgumentFramework completion = generator.getRandomRootCompletion();
+				Set<StableControlConfiguration> credulous = test_Incremental_SAT.bruteForce(CAF, completion, ControllabilityEncoder.CREDULOUS);
+				Set<StableControlConfiguration> skeptical = test_Incremental_SAT.bruteForce(CAF, completion, ControllabilityEncoder.SKEPTICAL);
+				SAT_Completion_Verifier verifier = new SAT_Completion_Verifier(CAF, completion);
+				for(long subset = 0; subset < (1L << controls.length); subset++) {
+					StableControlConfiguration cc = new StableControlConfiguration();
+					for(int j = 0; j<controls.length; j++) {
+						if((subset & (1L << j)) != 0) {
+							cc.addOnControl(controls[j]);
+						}
+					}
+					if(!new Labelling_AF_Solver(CAF.buildAF(completion, cc)).hasStableExtension()) {
+						noExtension++;
+					}
+					checked++;
+					if(verifier.isCredulousControlConfigurations(cc) != credulous.contains(cc)
+							|| verifier.isSkepticalControlConfigurations(cc) != skeptical.contains(cc)) {
+						errors++;
+						System.out.println("SAT_Completion_Verifier differs for " + cc + " on completion:");
+						System.out.println(completion.toString());
+						System.out.println("of CAF:");
+						System.out.println(CAF.toString());
+					}
+				}
+			}
+		}
+		System.out.println(checked + " configurations checked (" + noExtension + " without stable extension), " + errors + " errors");
+		if(errors > 0) {
+			System.exit(1);
+		}
+	}
+}
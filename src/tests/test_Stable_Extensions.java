@@ -0,0 +1,100 @@
+package tests;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import model.Argument;
+import model.ArgumentFramework;
+import model.Attack;
+import model.StableExtension;
+import solvers.Labelling_AF_Solver;
+import solvers.SCC_AF_Solver;
+import util.RandomGen;
+
+/**
+ * Checks the stable extensions found by Labelling_AF_Solver and SCC_AF_Solver
+ * against a brute force enumeration (all the subsets of arguments) on random AFs
+ * usage: test_Stable_Extensions [number of AFs] [seed]
+ */
+public class test_Stable_Extensions {
+
+	/**
+	 * random AF with n arguments (x0..xn-1) and m attacks (self attacks allowed)
+	 */
+	public static ArgumentFramework randomAF(RandomGen random, int n, int m) {
+		ArgumentFramework af = new ArgumentFramework();
+		Argument[] args = new Argument[n];
+		for(int i = 0; i<n; i++) {
+			args[i] = new Argument("x" + i);
+			af.addArgument(args[i]);
+		}
+		for(int j = 0; j<m; j++) {
+			af.addAttack(new Attack(args[random.nextInt(0, n-1)], args[random.nextInt(0, n-1)]));
+		}
+		return af;
+	}
+
+	/**
+	 * stable extensions by testing every subset of arguments (small AFs only)
+	 */
+	public static Set<StableExtension> bruteForce(ArgumentFramework af) {
+		Argument[] args = af.getAllArguments().toArray(new Argument[0]);
+		int n = args.length;
+		Set<StableExtension> result = new HashSet<StableExtension>();
+		for(long subset = 0; subset < (1L << n); subset++) {
+			Set<Argument> accepted = new HashSet<Argument>();
+			for(int i = 0; i<n; i++) {
+				if((subset & (1L << i)) != 0) {
+					accepted.add(args[i]);
+				}
+			}
+			Set<Argument> attacked = new HashSet<Argument>();
+			for(Argument a : accepted) {
+				attacked.addAll(af.getAttackedArguments(a));
+			}
+			boolean stable = true;
+			for(Argument a : args) {
+				// conflict free and attacks all the other arguments
+				if(accepted.contains(a) == attacked.contains(a)) {
+					stable = false;
+					break;
+				}
+			}
+			if(stable) {
+				StableExtension ext = new StableExtension();
+				for(Argument a : accepted) {
+					ext.addAccepted(a);
+				}
+				result.add(ext);
+			}
+		}
+		return result;
+	}
+
+	public static void main(String[] args) {
+		int nbAFs = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		RandomGen random = args.length > 1 ? new RandomGen(Long.parseLong(args[1])) : new RandomGen(1);
+		int errors = 0;
+		for(int i = 0; i<nbAFs; i++) {
+			int n = random.nextInt(1, 12);
+			ArgumentFramework af = randomAF(random, n, random.nextInt(0, 2*n));
+			Set<StableExtension> expected = bruteForce(af);
+			Set<StableExtension> labelling = new Labelling_AF_Solver(af).getStableSets();
+			if(!expected.equals(labelling)) {
+				errors++;
+				System.out.println("Labelling_AF_Solver differs on:");
+				System.out.println(af.toString());
+			}
+			SCC_AF_Solver scc = new SCC_AF_Solver(af);
+			if(!expected.equals(scc.getStableSets()) || scc.hasStableExtension() == expected.isEmpty()) {
+				errors++;
+				System.out.println("SCC_AF_Solver differs on:");
+				System.out.println(af.toString());
+			}
+		}
+		System.out.println(nbAFs + " AFs checked, " + errors + " errors");
+		if(errors > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -1,9 +1,150 @@
 package util;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
+/**
+ * Random draws, either through the static methods or through an instance owning its own stream.
+ * The static methods use one SplittableRandom per thread (no allocation, no contention).
+ * The streams of the threads are split from a root stream:
+ * after setSeed(seed), a run on one thread (or a Monte Carlo engine splitting
+ * the streams of its workers from the calling thread) is reproducible.
+ * An instance is not thread safe: each worker must use its own stream (see split())
+ */
 public class RandomGen {
 
+	// root of the streams of the threads, replaced by setSeed
+	private static SplittableRandom root = new SplittableRandom();
+	// incremented by setSeed: the threads then take a new stream from the new root
+	private static volatile int generation = 0;
+	private static final ThreadLocal<ThreadStream> streams = new ThreadLocal<ThreadStream>();
+	// odd constant separating the substreams of a seed (same as SplittableRandom)
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static class ThreadStream {
+		private int generation;
+		private SplittableRandom stream;
+	}
+
+	// null: the instance uses the stream of the calling thread (static methods)
+	protected SplittableRandom stream;
+
+	/**
+	 * instance using the static methods
+	 */
+	public RandomGen() {
+		this.stream = null;
+	}
+
+	/**
+	 * instance with its own stream, reproducible from the seed
+	 * @param seed
+	 */
+	public RandomGen(long seed) {
+		this.stream = new SplittableRandom(seed);
+	}
+
+	protected RandomGen(SplittableRandom stream) {
+		this.stream = stream;
+	}
+
+	/**
+	 * seeds the root stream: the streams of the threads are derived again from it
+	 * (the calling thread then draws the same values for the same seed)
+	 * @param seed
+	 */
+	public static void setSeed(long seed) {
+		synchronized(RandomGen.class) {
+			root = new SplittableRandom(seed);
+			generation++;
+		}
+	}
+
+	/**
+	 * stream of the calling thread
+	 */
+	protected static SplittableRandom current() {
+		ThreadStream local = streams.get();
+		if(local == null) {
+			local = new ThreadStream();
+			local.generation = -1;
+			streams.set(local);
+		}
+		if(local.generation != generation) {
+			synchronized(RandomGen.class) {
+				local.stream = root.split();
+				local.generation = generation;
+			}
+		}
+		return local.stream;
+	}
+
+	/**
+	 * returns a new independent stream
+	 * (derived from this one, or from the stream of the calling thread)
+	 */
+	public RandomGen split() {
+		if(this.stream == null) {
+			return new RandomGen(current().split());
+		}
+		return new RandomGen(this.stream.split());
+	}
+
+	/**
+	 * restarts this instance on the substream number index of seed
+	 * (same draws for the same seed and index, whatever the thread or the instance)
+	 * @param seed
+	 * @param index
+	 */
+	public void setSubstream(long seed, long index) {
+		long z = seed + index * GOLDEN_GAMMA;
+		// variant 13 of the MurmurHash3 finalizer: substreams start far apart
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		this.stream = new SplittableRandom(z ^ (z >>> 31));
+	}
+
+	protected SplittableRandom getStream() {
+		if(this.stream == null) {
+			return current();
+		}
+		return this.stream;
+	}
+
+	/**
+	 * same as randInt(min, max) on the stream of this instance
+	 */
+	public int nextInt(int min, int max) {
+		return this.getStream().nextInt(min, max + 1);
+	}
+
+	/**
+	 * random long on the stream of this instance
+	 */
+	public long nextLong() {
+		return this.getStream().nextLong();
+	}
+
+	/**
+	 * same as randomBoolean() on the stream of this instance
+	 */
+	public boolean nextBoolean() {
+		return this.getStream().nextDouble() < 0.5;
+	}
+
+	/**
+	 * same as randomDouble(min, max) on the stream of this instance
+	 */
+	public double nextDouble(double min, double max) {
+		return min + (max - min) * this.getStream().nextDouble();
+	}
+
+	/**
+	 * same as randomBits(words, from, to) on the stream of this instance
+	 */
+	public void nextBits(long[] words, int from, int to) {
+		fillBits(this.getStream(), words, from, to);
+	}
+
 	/**
 	 * Returns a pseudo-random number between min and max, inclusive. The difference
 	 * between min and max can be at most <code>Integer.MAX_VALUE - 1</code>.
@@ -11,17 +152,14 @@ public class RandomGen {
 	 * @param min Minimum value
 	 * @param max Maximum value. Must be greater than min.
 	 * @return Integer between min and max, inclusive.
-	 * @see java.util.Random#nextInt(int)
+	 * @see java.util.SplittableRandom#nextInt(int, int)
 	 */
 	public static int randInt(int min, int max) {
-		Random rand = new Random();
 		// nextInt is normally exclusive of the top value,
 		// so add 1 to make it inclusive
-		int randomNum = rand.nextInt((max - min) + 1) + min;
-
-		return randomNum;
+		return current().nextInt(min, max + 1);
 	}
-	
+
 	/**
 	 * Returns a random number between 0 and max, inclusive.
 	 * @param max
@@ -30,29 +168,50 @@ public class RandomGen {
 	public static int getIndex(int max) {
 		return randInt(0, max);
 	}
-	
+
 	public static int getProba() {
 		return randInt(1,100);
 	}
-	
+
 	/**
 	 * Returns a random boolean based on a uniform distribution
-	 *  
+	 *
 	 */
 	public static boolean randomBoolean() {
-		double random = Math.random();
-		if(random <0.5) {
-			return true;
-		} else {
-			return false;
-		}
+		return current().nextDouble() < 0.5;
 	}
-	
+
 	/**
 	 * Returns a random double between min incl  and max excl
 	 */
 	public static double randomDouble(double min, double max) {
-		Random rand = new Random();
-		return min + (max - min) * rand.nextDouble();
+		return min + (max - min) * current().nextDouble();
+	}
+
+	/**
+	 * draws bits from (incl) to to (excl) of the bit vector words
+	 * each bit is 1 with p=1/2 (one random long per 64 bits)
+	 * the other bits are not changed
+	 */
+	public static void randomBits(long[] words, int from, int to) {
+		fillBits(current(), words, from, to);
+	}
+
+	private static void fillBits(SplittableRandom stream, long[] words, int from, int to) {
+		if(from >= to) {
+			return;
+		}
+		int first = from >>> 6;
+		int last = (to - 1) >>> 6;
+		for(int w = first; w <= last; w++) {
+			long mask = -1L;
+			if(w == first) {
+				mask &= -1L << from;
+			}
+			if(w == last) {
+				mask &= -1L >>> (63 - ((to - 1) & 63));
+			}
+			words[w] = (words[w] & ~mask) | (stream.nextLong() & mask);
+		}
 	}
 }
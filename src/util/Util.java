@@ -23,21 +23,21 @@ public class Util {
 	public static Set<StableControlConfiguration> intersect(Set<StableControlConfiguration> set1, Set<StableControlConfiguration> set2) {
 		Set<StableControlConfiguration> result = new HashSet<StableControlConfiguration>();
 		for(StableControlConfiguration scc1 : set1) {
-			for(StableControlConfiguration scc2 : set2) {
-				if(scc2.equals(scc1)) {
-					result.add(scc1);
-					break;
-				}
+			if(set2.contains(scc1)) {
+				result.add(scc1);
 			}
 		}
 		return result;
 	}
 
+	/**
+	 * returns a control configuration of list equal to scc, null if there is none
+	 * control configurations have value based equals/hashCode, so scc itself is returned
+	 * (O(1) for hash based sets such as the key set of a HashMap)
+	 */
 	public static StableControlConfiguration find(Set<StableControlConfiguration> list, StableControlConfiguration scc) {
-		for(StableControlConfiguration elem : list) {
-			if(scc.equals(elem)) {
-				return elem;
-			}
+		if(list.contains(scc)) {
+			return scc;
 		}
 		return null;
 	}
@@ -63,5 +63,44 @@ public class Util {
 		 double result = p*(1-p)*alpha2/epsilon2;
 		 return result;
 	 }
+
+	 /**
+	  * half width of the Agresti-Coull interval of a proportion
+	  * never 0, even when success is 0 or nbSimu (floor for intervals estimated by a variance)
+	  * @param success number of success (may be a weighted count)
+	  * @param nbSimu number of trials (may be an effective sample size)
+	  * @return
+	  */
+	 public static double getAgrestiCoullInterval(double success, double nbSimu) {
+		 double alpha2 = Math.pow(Util.CONFIDENCE_INT,2);
+		 double p = (success + alpha2/2)/(nbSimu + alpha2);
+		 return Util.CONFIDENCE_INT*Math.sqrt(p*(1-p)/(nbSimu + alpha2));
+	 }
+
+	 /**
+	  * highest number of simulations getNewSimulationNumber can ask for (p=1/2)
+	  * @param error error level
+	  * @return
+	  */
+	 public static double getMaxSimulationNumber(double error) {
+		 double epsilon2 = Math.pow(error,2);
+		 double alpha2 = Math.pow(Util.CONFIDENCE_INT,2);
+		 return 0.25*alpha2/epsilon2;
+	 }
 	
+	 /**
+	  * two sided risk level of a confidence interval of z standard deviations
+	  * (0.05 for 1.96, 0.01 for 2.58)
+	  * 2.(1 - Phi(z)) with the approximation 7.1.26 of Abramowitz and Stegun (error < 1.5e-7)
+	  * @param z
+	  * @return
+	  */
+	 public static double getRiskLevel(double z) {
+		 double x = Math.abs(z)/Math.sqrt(2);
+		 double t = 1/(1 + 0.3275911*x);
+		 double poly = t*(0.254829592 + t*(-0.284496736 + t*(1.421413741 + t*(-1.453152027 + t*1.061405429))));
+		 // erfc(x)
+		 return poly*Math.exp(-x*x);
+	 }
+
 }